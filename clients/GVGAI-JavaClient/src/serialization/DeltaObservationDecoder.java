@@ -0,0 +1,183 @@
+package serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Rebuilds the observations that the server sends as deltas from the previous observation
+ * (DeltaObservationEncoder in the server). Every complete observation received must be
+ * passed to setBase(), and every delta to decode(), in the order they arrive.
+ * Observations of sprites that did not change are shared between consecutive observations,
+ * so agents should not modify them.
+ */
+public class DeltaObservationDecoder {
+
+    /**
+     * Observations of sprites of the last observation, by sprite ID.
+     */
+    private HashMap<Integer, Observation> observations = new HashMap<>();
+
+    /**
+     * Sprite IDs of the last observation, for the grid (one row per cell, column by column)
+     * and for the six lists of positions. Null if there is no such structure.
+     */
+    private int[][][] structures = new int[7][][];
+
+    /**
+     * Indicates if a complete observation has been received.
+     */
+    private boolean hasBase;
+
+    /**
+     * Sets the observation the next delta is applied to.
+     * @param sso complete observation received.
+     */
+    public void setBase(SerializableStateObservation sso) {
+        observations.clear();
+        Observation[][][] current = structures(sso);
+        for (int s = 0; s < current.length; s++) {
+            structures[s] = ids(current[s]);
+            if (current[s] == null)
+                continue;
+            for (Observation[] row : current[s])
+                if (row != null)
+                    for (Observation obs : row)
+                        observations.put(obs.obsID, obs);
+        }
+        hasBase = true;
+    }
+
+    /**
+     * Rebuilds an observation from a delta, and makes it the base for the next delta.
+     * @param data bytes of the delta.
+     * @return the complete observation.
+     */
+    public SerializableStateObservation decode(byte[] data) throws IOException {
+        if (!hasBase)
+            throw new IOException("Delta observation received before a complete one");
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        SerializableStateObservation sso = SerializableStateObservation.readBinaryHeader(in);
+
+        int numRemoved = in.readInt();
+        for (int i = 0; i < numRemoved; i++)
+            observations.remove(in.readInt());
+        int numChanged = in.readInt();
+        for (int i = 0; i < numChanged; i++) {
+            Observation obs = SerializableStateObservation.readObservation(in);
+            observations.put(obs.obsID, obs);
+        }
+
+        int gridWidth = in.readInt();
+        int gridHeight = in.readInt();
+        for (int s = 0; s < structures.length; s++)
+            structures[s] = readRows(in, structures[s]);
+
+        if (gridWidth >= 0) {
+            sso.observationGrid = new Observation[gridWidth][gridHeight][];
+            for (int i = 0; i < gridWidth; i++)
+                for (int j = 0; j < gridHeight; j++)
+                    sso.observationGrid[i][j] = resolve(structures[0][i * gridHeight + j]);
+        }
+        sso.NPCPositions = resolve(structures[1]);
+        sso.immovablePositions = resolve(structures[2]);
+        sso.movablePositions = resolve(structures[3]);
+        sso.resourcesPositions = resolve(structures[4]);
+        sso.portalsPositions = resolve(structures[5]);
+        sso.fromAvatarSpritesPositions = resolve(structures[6]);
+
+        return sso;
+    }
+
+    /**
+     * Reads the sprite IDs of a structure: the number of rows (-1 if null), then either
+     * all rows (mode 1) or only the rows that differ from the base (mode 0).
+     */
+    private static int[][] readRows(DataInputStream in, int[][] base) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+
+        byte mode = in.readByte();
+        if (mode == 1) {
+            int[][] rows = new int[length][];
+            for (int i = 0; i < length; i++)
+                rows[i] = readRow(in);
+            return rows;
+        }
+
+        if (base == null || base.length != length)
+            throw new IOException("Delta observation does not match the previous one");
+        int[][] rows = base.clone();
+        int numChanged = in.readInt();
+        for (int i = 0; i < numChanged; i++) {
+            int index = in.readInt();
+            rows[index] = readRow(in);
+        }
+        return rows;
+    }
+
+    private static int[] readRow(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        int[] row = new int[length];
+        for (int i = 0; i < length; i++)
+            row[i] = in.readInt();
+        return row;
+    }
+
+    private Observation[][] resolve(int[][] rows) throws IOException {
+        if (rows == null)
+            return null;
+        Observation[][] structure = new Observation[rows.length][];
+        for (int i = 0; i < rows.length; i++)
+            structure[i] = resolve(rows[i]);
+        return structure;
+    }
+
+    private Observation[] resolve(int[] row) throws IOException {
+        if (row == null)
+            return null;
+        Observation[] resolved = new Observation[row.length];
+        for (int i = 0; i < row.length; i++) {
+            resolved[i] = observations.get(row[i]);
+            if (resolved[i] == null)
+                throw new IOException("Delta observation refers to unknown sprite " + row[i]);
+        }
+        return resolved;
+    }
+
+    /**
+     * Gets the observation grid (flattened, one row per cell) and the lists of positions.
+     */
+    private static Observation[][][] structures(SerializableStateObservation sso) {
+        Observation[][] grid = null;
+        if (sso.observationGrid != null) {
+            int height = sso.observationGrid.length == 0 ? 0 : sso.observationGrid[0].length;
+            grid = new Observation[sso.observationGrid.length * height][];
+            for (int i = 0; i < sso.observationGrid.length; i++)
+                for (int j = 0; j < height; j++)
+                    grid[i * height + j] = sso.observationGrid[i][j];
+        }
+        return new Observation[][][] { grid, sso.NPCPositions, sso.immovablePositions,
+                sso.movablePositions, sso.resourcesPositions, sso.portalsPositions,
+                sso.fromAvatarSpritesPositions };
+    }
+
+    private static int[][] ids(Observation[][] structure) {
+        if (structure == null)
+            return null;
+        int[][] ids = new int[structure.length][];
+        for (int i = 0; i < structure.length; i++) {
+            if (structure[i] == null)
+                continue;
+            ids[i] = new int[structure[i].length];
+            for (int j = 0; j < structure[i].length; j++)
+                ids[i][j] = structure[i][j].obsID;
+        }
+        return ids;
+    }
+}
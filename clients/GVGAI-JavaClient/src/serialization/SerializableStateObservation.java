@@ -27,6 +27,13 @@ public class SerializableStateObservation {
      */
     public byte[] imageArray;
 
+    /**
+     * Encoding and dimensions of the image in imageArray.
+     */
+    public Types.LEARNING_IMAGE_FORMAT imageFormat;
+    public int imageWidth;
+    public int imageHeight;
+
     /**
      * Indicates the state of the protocol
      */
@@ -119,6 +126,145 @@ public class SerializableStateObservation {
         }
     }
 
+    /**
+     * Version of the binary encoding this class can decode.
+     */
+    public static final int BINARY_VERSION = 1;
+
+    /**
+     * Decodes an observation sent by the server with the binary protocol. The order
+     * of the fields must match SerializableStateObservation.serializeBinary() in the server.
+     * @param data bytes of the observation.
+     * @return the observation decoded.
+     */
+    public static SerializableStateObservation deserializeBinary(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        SerializableStateObservation sso = readBinaryHeader(in);
+
+        int gridWidth = in.readInt();
+        if (gridWidth >= 0) {
+            sso.observationGrid = new Observation[gridWidth][][];
+            for (int i = 0; i < gridWidth; i++)
+                sso.observationGrid[i] = readObservations(in);
+        }
+        sso.NPCPositions = readObservations(in);
+        sso.immovablePositions = readObservations(in);
+        sso.movablePositions = readObservations(in);
+        sso.resourcesPositions = readObservations(in);
+        sso.portalsPositions = readObservations(in);
+        sso.fromAvatarSpritesPositions = readObservations(in);
+
+        return sso;
+    }
+
+    /**
+     * Reads the binary version and all fields of an observation except the observations of
+     * sprites, which deserializeBinary() and DeltaObservationDecoder decode in different ways.
+     * @param in stream to read from.
+     * @return the observation decoded, with no observations of sprites.
+     */
+    static SerializableStateObservation readBinaryHeader(DataInputStream in) throws IOException {
+        SerializableStateObservation sso = new SerializableStateObservation();
+
+        int version = in.readInt();
+        if (version != BINARY_VERSION)
+            throw new IOException("Unsupported binary observation version: " + version);
+
+        String phase = in.readUTF();
+        sso.phase = phase.isEmpty() ? null : Phase.valueOf(phase);
+        sso.isValidation = in.readBoolean();
+        sso.gameScore = in.readFloat();
+        sso.gameTick = in.readInt();
+        String winner = in.readUTF();
+        sso.gameWinner = winner.isEmpty() ? null : Types.WINNER.valueOf(winner);
+        sso.isGameOver = in.readBoolean();
+        sso.worldDimension = readDoubles(in);
+        sso.blockSize = in.readInt();
+
+        sso.noOfPlayers = in.readInt();
+        sso.avatarSpeed = in.readFloat();
+        sso.avatarOrientation = readDoubles(in);
+        sso.avatarPosition = readDoubles(in);
+        String lastAction = in.readUTF();
+        sso.avatarLastAction = lastAction.isEmpty() ? null : Types.ACTIONS.valueOf(lastAction);
+        sso.avatarType = in.readInt();
+        sso.avatarHealthPoints = in.readInt();
+        sso.avatarMaxHealthPoints = in.readInt();
+        sso.avatarLimitHealthPoints = in.readInt();
+        sso.isAvatarAlive = in.readBoolean();
+
+        int numActions = in.readInt();
+        if (numActions >= 0) {
+            sso.availableActions = new ArrayList<>(numActions);
+            for (int i = 0; i < numActions; i++)
+                sso.availableActions.add(Types.ACTIONS.valueOf(in.readUTF()));
+        }
+
+        int numResources = in.readInt();
+        if (numResources >= 0) {
+            sso.avatarResources = new HashMap<>();
+            for (int i = 0; i < numResources; i++)
+                sso.avatarResources.put(in.readInt(), in.readInt());
+        }
+
+        String format = in.readUTF();
+        sso.imageFormat = format.isEmpty() ? null : Types.LEARNING_IMAGE_FORMAT.valueOf(format);
+        sso.imageWidth = in.readInt();
+        sso.imageHeight = in.readInt();
+        int imageLength = in.readInt();
+        if (imageLength >= 0) {
+            sso.imageArray = new byte[imageLength];
+            in.readFully(sso.imageArray);
+        }
+
+        return sso;
+    }
+
+    private static double[] readDoubles(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++)
+            values[i] = in.readDouble();
+        return values;
+    }
+
+    private static Vector2d readVector(DataInputStream in) throws IOException {
+        if (!in.readBoolean())
+            return null;
+        double x = in.readDouble();
+        double y = in.readDouble();
+        return new Vector2d(x, y);
+    }
+
+    private static Observation[][] readObservations(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        Observation[][] observations = new Observation[length][];
+        for (int i = 0; i < length; i++) {
+            int rowLength = in.readInt();
+            if (rowLength < 0)
+                continue;
+            observations[i] = new Observation[rowLength];
+            for (int j = 0; j < rowLength; j++)
+                observations[i][j] = readObservation(in);
+        }
+        return observations;
+    }
+
+    static Observation readObservation(DataInputStream in) throws IOException {
+        Observation obs = new Observation();
+        obs.category = in.readInt();
+        obs.itype = in.readInt();
+        obs.obsID = in.readInt();
+        obs.position = readVector(in);
+        obs.reference = readVector(in);
+        obs.sqDist = in.readDouble();
+        return obs;
+    }
+
     // Helper method to decompress a byte array. Used by convertBytesToPng
     public byte[] decompress(byte[] data) throws IOException, DataFormatException {
         Inflater inflater = new Inflater();
@@ -43,4 +43,14 @@ public class Types {
         JSON,
         BOTH
     }
+
+    /**
+     * Encoding of the image of the screen: PNG, or raw pixels row by row with three
+     * bytes (red, green, blue) or one byte (luminance) per pixel.
+     */
+    public static enum LEARNING_IMAGE_FORMAT {
+        PNG,
+        RGB,
+        GRAY
+    }
 }
@@ -1,11 +1,18 @@
 package utils;
 
+import serialization.DeltaObservationDecoder;
 import serialization.SerializableStateObservation;
+import serialization.Types.LEARNING_IMAGE_FORMAT;
 import serialization.Types.LEARNING_SSO_TYPE;
 import utils.com.google.gson.Gson;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 
 /**
  *  -----  DO NOT MODIFY THIS CLASS -----
@@ -42,6 +49,15 @@ public class ClientComm {
      */
     public static String TOKEN_SEP = "#";
 
+    /**
+     * Token added to START_DONE to ask the server for the binary protocol, and kinds of binary frames.
+     */
+    public static final String BINARY_TOKEN = "BINARY";
+    public static final String DELTA_TOKEN = "DELTA";
+    public static final byte FRAME_TEXT = 0;
+    public static final byte FRAME_SSO = 1;
+    public static final byte FRAME_SSO_DELTA = 2;
+
     /**
      * If true, all messages sent to server are also printed to the log file
      */
@@ -62,6 +78,16 @@ public class ClientComm {
      */
     private LEARNING_SSO_TYPE lastSsoType = LEARNING_SSO_TYPE.JSON;
 
+    /**
+     * True once the server has been asked to send binary frames instead of lines of JSON.
+     */
+    private boolean binary = false;
+
+    /**
+     * Rebuilds the observations that the server sends as deltas.
+     */
+    private DeltaObservationDecoder deltaDecoder = new DeltaObservationDecoder();
+
     /**
      * Creates the client.
      */
@@ -98,11 +124,16 @@ public class ClientComm {
         // Continuously listen for messages
         while (line != null) {
 
-            // Read a line from System.in and save it as a String
-            line = io.readLine();
+            if (binary) {
+                // Read a binary frame and process it
+                processFrame(io.readFrame());
+            } else {
+                // Read a line from System.in and save it as a String
+                line = io.readLine();
 
-            // Process the line
-            processLine(line);
+                // Process the line
+                processLine(line);
+            }
             //io.writeToFile("line: " + line);
 
             if(sso.phase == SerializableStateObservation.Phase.START)
@@ -177,15 +208,7 @@ public class ClientComm {
 
             // Else, deserialize the json using GSon
             this.sso = gson.fromJson(json, SerializableStateObservation.class);
-
-            // If expect image
-            if (lastSsoType == LEARNING_SSO_TYPE.IMAGE || lastSsoType == LEARNING_SSO_TYPE.BOTH) {
-                if ((sso.phase != SerializableStateObservation.Phase.INIT
-                    && sso.phase != SerializableStateObservation.Phase.ABORT)) {
-                    // If an image has been received, then save its PNG equivalent
-                    sso.convertBytesToPng(sso.imageArray);
-                }
-            }
+            checkImage();
             // Used for debugging
 //            io.writeToFile(sso.toString());
         } catch (Exception e){
@@ -194,6 +217,62 @@ public class ClientComm {
 
     }
 
+    /***
+     * Method that interprets a binary frame received from the server: the message ID,
+     * the kind of frame, and either a text message (START, FINISH) or an observation
+     * encoded in binary, complete or as a delta from the previous one.
+     * @param frame bytes of the frame received, after its length.
+     * @throws IOException
+     */
+    public void processFrame(byte[] frame) throws IOException {
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+            lastMessageId = in.readLong();
+            byte kind = in.readByte();
+            byte[] payload = Arrays.copyOfRange(frame, 8 + 1, frame.length);
+
+            if (kind == FRAME_SSO) {
+                this.sso = SerializableStateObservation.deserializeBinary(payload);
+                deltaDecoder.setBase(this.sso);
+                checkImage();
+                return;
+            }
+            if (kind == FRAME_SSO_DELTA) {
+                this.sso = deltaDecoder.decode(payload);
+                checkImage();
+                return;
+            }
+
+            String msg = new String(payload, StandardCharsets.UTF_8);
+            if (msg.equals("START")) {
+                this.sso.phase = SerializableStateObservation.Phase.START;
+            } else if (msg.equals("FINISH")) {
+                this.sso.phase = SerializableStateObservation.Phase.FINISH;
+            } else {
+                this.sso = new Gson().fromJson(msg, SerializableStateObservation.class);
+                checkImage();
+            }
+        } catch (Exception e){
+            io.logStackTrace(e);
+        }
+    }
+
+    /**
+     * Saves the image received to a PNG file, if the agent asked for images.
+     */
+    private void checkImage() throws IOException, DataFormatException {
+        // If expect image
+        if (lastSsoType == LEARNING_SSO_TYPE.IMAGE || lastSsoType == LEARNING_SSO_TYPE.BOTH) {
+            if ((sso.phase != SerializableStateObservation.Phase.INIT
+                && sso.phase != SerializableStateObservation.Phase.ABORT)) {
+                // If an image has been received, then save its PNG equivalent
+                if (sso.imageFormat == null || sso.imageFormat == LEARNING_IMAGE_FORMAT.PNG)
+                    sso.convertBytesToPng(sso.imageArray);
+            }
+        }
+    }
+
 
     /// Specific state functions
 
@@ -219,7 +298,14 @@ public class ClientComm {
             io.writeToServer(lastMessageId, "START_FAILED", LOG);
         }else {
             //io.writeToFile("start done");
-            io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType, LOG);
+            if (CompetitionParameters.USE_SOCKETS && CompetitionParameters.USE_BINARY) {
+                // From now on, the server sends binary frames.
+                String tokens = TOKEN_SEP + BINARY_TOKEN + (CompetitionParameters.USE_DELTA ? TOKEN_SEP + DELTA_TOKEN : "");
+                io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType + tokens, LOG);
+                binary = true;
+            } else {
+                io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType, LOG);
+            }
         }
 
     }
@@ -59,5 +59,15 @@ public class CompetitionParameters
      */
     public static final int SOCKET_PORT = 8080;//3000;
 
+    /**
+     * Ask the server for the binary protocol instead of JSON? Only available with sockets.
+     */
+    public static final boolean USE_BINARY = true;
+
+    /**
+     * Ask the server to send observations as deltas from the previous one? Only used with USE_BINARY.
+     */
+    public static final boolean USE_DELTA = true;
+
     public static String SCREENSHOT_FILENAME = "gameStateByBytes.png";
 }
@@ -60,6 +60,15 @@ public abstract class IO extends Thread{
 
     public abstract String readLine() throws IOException;
 
+    /**
+     * Reads a binary frame from the server. Only used once the binary protocol
+     * has been agreed with the server.
+     * @return the bytes of the frame, after its length.
+     */
+    public byte[] readFrame() throws IOException {
+        throw new IOException("Binary frames are not supported by this channel.");
+    }
+
     public void logStackTrace(Exception e) {
         e.printStackTrace(this.fileOutput);
     }
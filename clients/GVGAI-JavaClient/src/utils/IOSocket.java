@@ -3,7 +3,7 @@ package utils;
 import java.io.*;
 import java.net.ConnectException;
 import java.net.Socket;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Created by dperez on 23/05/2017.
@@ -12,7 +12,7 @@ public class IOSocket extends IO {
 
 
     private Socket socket;
-    private Scanner in;
+    private DataInputStream in;
     private PrintStream out;
 
     private String hostname = "localhost";
@@ -45,7 +45,7 @@ public class IOSocket extends IO {
             }
 
             out = new PrintStream(socket.getOutputStream());
-            in = new Scanner(socket.getInputStream());
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 
         } catch (Exception e) {
             System.out.println("Exception creating the client process: " + e);
@@ -69,9 +69,35 @@ public class IOSocket extends IO {
         if(log) this.writeToFile(msg);
     }
 
+    /**
+     * Reads a line from the server. Lines are read byte by byte from the same stream as
+     * the binary frames, so both kinds of messages can follow each other.
+     * @return the line read, without the line separator, or null at the end of the stream.
+     */
     @Override
     public String readLine() throws IOException{
-        return in.nextLine();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b = in.read();
+        if (b == -1)
+            return null;
+
+        while (b != -1 && b != '\n') {
+            if (b != '\r')
+                line.write(b);
+            b = in.read();
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a binary frame from the server: its length, followed by that many bytes.
+     * @return the bytes of the frame, after the length.
+     */
+    @Override
+    public byte[] readFrame() throws IOException {
+        byte[] frame = new byte[in.readInt()];
+        in.readFully(frame);
+        return frame;
     }
 
     /**
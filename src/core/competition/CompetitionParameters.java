@@ -154,6 +154,12 @@ public class CompetitionParameters
     public static final int KEY_PULSE = 1;
     public static int KEY_HANDLER = KEY_INPUT;
 
+    /**
+     * Use a spatial grid to find collisions between sprites. If false, every pair of
+     * sprites is checked (slower, but useful to verify the grid gives the same results).
+     */
+    public static boolean USE_COLLISION_GRID = true;
+
     public static double MAX_WINDOW_SIZE = 800.0;
     public static int LEARNING_BLOCK_SIZE = 10;
     public static boolean IS_LEARNING = false;
@@ -5,8 +5,8 @@ import java.util.ArrayList;
 import java.util.Random;
 
 import core.competition.CompetitionParameters;
+import core.vgdl.CollisionGrid;
 import core.vgdl.VGDLFactory;
-import core.vgdl.VGDLRegistry;
 import core.vgdl.VGDLSprite;
 import core.logging.Logger;
 import core.logging.Message;
@@ -55,9 +55,8 @@ public class BasicGame extends Game {
 		charMapping.put('A', new ArrayList<String>());
 		charMapping.get('A').add("avatar");
 
-		// Default values for frame rate and maximum number of sprites allowed.
+		// Default value for the size of the squares.
 		square_size = -1;
-		MAX_SPRITES = 10000;
 
 		// Parse the arguments.
 		this.parseParameters(content);
@@ -78,7 +77,7 @@ public class BasicGame extends Game {
 
 		if (obs != null) {
 			doPathf = true;
-			int obsArray[] = VGDLRegistry.GetInstance().explode(obs);
+			int obsArray[] = registry.explode(obs);
 			for (Integer it : obsArray)
 				obstacles.add(it);
 		}
@@ -122,6 +121,10 @@ public class BasicGame extends Game {
 		}
 		screenSize = new Dimension(size.width * block_size, size.height * block_size);
 
+		if (CompetitionParameters.USE_COLLISION_GRID) {
+			collisionGrid = new CollisionGrid(screenSize, block_size);
+		}
+
 		for (int i = 0; i < size.height; ++i) {
 			String line = desc_lines[i];
 			if (line.length() < size.width) {
@@ -197,6 +200,11 @@ public class BasicGame extends Game {
 					this.spriteGroups[i].removeSprite(avatars.get(j));
 				}
 			}
+			if (collisionGrid != null) {
+				for(int j=no_players; j<avatars.size(); j++){
+					collisionGrid.remove(avatars.get(j));
+				}
+			}
 		}
 
 		// Nobody has been killed... yet!
@@ -242,7 +250,7 @@ public class BasicGame extends Game {
 	 *            position where the sprite will be placed
 	 */
 	public VGDLSprite addSpriteIn(String key, Vector2d position) {
-		int itype = VGDLRegistry.GetInstance().getRegisteredSpriteValue(key);
+		int itype = registry.getRegisteredSpriteValue(key);
 		return addSprite(itype, position);
 	}
 
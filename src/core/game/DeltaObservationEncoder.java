@@ -0,0 +1,276 @@
+package core.game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import tools.Vector2d;
+
+/**
+ * Encodes the observations sent to a learning client as differences with the previous
+ * observation sent, for the binary protocol. Most sprites don't change from one tick to the
+ * next, so a delta only carries:
+ *  - All fields of the observation except the observations of sprites, as in serializeBinary().
+ *  - The IDs of the sprites that are gone, and the sprites that are new or changed.
+ *  - For the observation grid and each list of positions, the rows whose sprite IDs changed.
+ * The client rebuilds the full observation from the last one it received. Keyframes (complete
+ * observations, see SerializableStateObservation.serializeBinary()) must be sent first and
+ * every now and then, calling setBase() with each of them.
+ */
+public class DeltaObservationEncoder
+{
+    /**
+     * Observations of sprites of the base, by sprite ID. These are copies, as the game
+     * updates its observations in place.
+     */
+    private HashMap<Integer, Observation> observations;
+
+    /**
+     * Sprite IDs of the base, for the grid (one row per cell, column by column) and for the
+     * six lists of positions. Null if the base has no such structure.
+     */
+    private int[][][] structures;
+
+    /**
+     * Height of the observation grid of the base.
+     */
+    private int gridHeight;
+
+    /**
+     * Indicates if there is a base to encode the next observation against.
+     */
+    private boolean hasBase;
+
+    /**
+     * Creates an encoder with no base.
+     */
+    public DeltaObservationEncoder()
+    {
+        observations = new HashMap<Integer, Observation>();
+        structures = new int[7][][];
+    }
+
+    /**
+     * Indicates if the next observation can be sent as a delta.
+     * @return true if there is a base to encode it against.
+     */
+    public boolean hasBase()
+    {
+        return hasBase;
+    }
+
+    /**
+     * Drops the base, so the next observation must be sent as a keyframe.
+     */
+    public void reset()
+    {
+        hasBase = false;
+        observations.clear();
+    }
+
+    /**
+     * Sets the observation the next delta is encoded against. To be called with every
+     * observation sent as a keyframe.
+     * @param sso observation sent.
+     */
+    public void setBase(SerializableStateObservation sso)
+    {
+        observations.clear();
+        Observation[][][] current = structures(sso);
+        for (int s = 0; s < current.length; s++) {
+            structures[s] = ids(current[s]);
+            addAll(current[s], null);
+        }
+        gridHeight = gridHeight(sso);
+        hasBase = true;
+    }
+
+    /**
+     * Encodes an observation as a delta from the base, and makes it the new base.
+     * @param sso observation to encode.
+     * @return the bytes of the delta.
+     */
+    public byte[] encode(SerializableStateObservation sso) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        //Sprites that are new or have changed, and the ones that are gone.
+        HashMap<Integer, Observation> previous = observations;
+        observations = new HashMap<Integer, Observation>();
+        ArrayList<Observation> changed = new ArrayList<Observation>();
+        Observation[][][] current = structures(sso);
+        for (Observation[][] structure : current)
+            addAll(structure, changed);
+
+        Iterator<Observation> it = changed.iterator();
+        while (it.hasNext()) {
+            Observation old = previous.get(it.next().obsID);
+            if (old != null && same(old, observations.get(old.obsID)))
+                it.remove();
+        }
+
+        ArrayList<Integer> removed = new ArrayList<Integer>();
+        for (Integer id : previous.keySet())
+            if (!observations.containsKey(id))
+                removed.add(id);
+
+        sso.writeBinaryHeader(out);
+        out.writeInt(removed.size());
+        for (Integer id : removed)
+            out.writeInt(id);
+        out.writeInt(changed.size());
+        for (Observation obs : changed)
+            SerializableStateObservation.writeObservation(out, obs);
+
+        //Structure of the grid and the lists.
+        int height = gridHeight(sso);
+        out.writeInt(current[0] == null ? -1 : sso.observationGrid.length);
+        out.writeInt(height);
+        for (int s = 0; s < current.length; s++) {
+            int[][] ids = ids(current[s]);
+            int[][] base = (s == 0 && height != gridHeight) ? null : structures[s];
+            writeRows(out, base, ids);
+            structures[s] = ids;
+        }
+        gridHeight = height;
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the sprite IDs of a structure: the number of rows (-1 if null), then either
+     * all rows (mode 1) or only the rows that differ from the base (mode 0).
+     */
+    private static void writeRows(DataOutputStream out, int[][] base, int[][] rows) throws IOException
+    {
+        if (rows == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(rows.length);
+        if (base == null || base.length != rows.length) {
+            out.writeByte(1);
+            for (int[] row : rows)
+                writeRow(out, row);
+            return;
+        }
+
+        out.writeByte(0);
+        int numChanged = 0;
+        for (int i = 0; i < rows.length; i++)
+            if (!Arrays.equals(base[i], rows[i]))
+                numChanged++;
+        out.writeInt(numChanged);
+        for (int i = 0; i < rows.length; i++) {
+            if (!Arrays.equals(base[i], rows[i])) {
+                out.writeInt(i);
+                writeRow(out, rows[i]);
+            }
+        }
+    }
+
+    private static void writeRow(DataOutputStream out, int[] row) throws IOException
+    {
+        if (row == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(row.length);
+        for (int id : row)
+            out.writeInt(id);
+    }
+
+    /**
+     * Adds copies of all observations of a structure to the base. Observations that were
+     * not in the base yet are added to 'added', if not null.
+     */
+    private void addAll(Observation[][] structure, ArrayList<Observation> added)
+    {
+        if (structure == null)
+            return;
+        for (Observation[] row : structure) {
+            if (row == null)
+                continue;
+            for (Observation obs : row) {
+                if (!observations.containsKey(obs.obsID)) {
+                    observations.put(obs.obsID, copy(obs));
+                    if (added != null)
+                        added.add(obs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the observation grid (flattened, one row per cell) and the lists of positions.
+     */
+    private static Observation[][][] structures(SerializableStateObservation sso)
+    {
+        Observation[][] grid = null;
+        if (sso.observationGrid != null) {
+            int height = gridHeight(sso);
+            grid = new Observation[sso.observationGrid.length * height][];
+            for (int i = 0; i < sso.observationGrid.length; i++)
+                for (int j = 0; j < height; j++)
+                    grid[i * height + j] = sso.observationGrid[i][j];
+        }
+        return new Observation[][][] { grid, sso.NPCPositions, sso.immovablePositions,
+                sso.movablePositions, sso.resourcesPositions, sso.portalsPositions,
+                sso.fromAvatarSpritesPositions };
+    }
+
+    private static int gridHeight(SerializableStateObservation sso)
+    {
+        if (sso.observationGrid == null || sso.observationGrid.length == 0)
+            return 0;
+        return sso.observationGrid[0].length;
+    }
+
+    private static int[][] ids(Observation[][] structure)
+    {
+        if (structure == null)
+            return null;
+        int[][] ids = new int[structure.length][];
+        for (int i = 0; i < structure.length; i++) {
+            if (structure[i] == null)
+                continue;
+            ids[i] = new int[structure[i].length];
+            for (int j = 0; j < structure[i].length; j++)
+                ids[i][j] = structure[i][j].obsID;
+        }
+        return ids;
+    }
+
+    private static Observation copy(Observation obs)
+    {
+        Observation copy = new Observation();
+        copy.category = obs.category;
+        copy.itype = obs.itype;
+        copy.obsID = obs.obsID;
+        copy.position = (obs.position == null) ? null : obs.position.copy();
+        copy.reference = (obs.reference == null) ? null : obs.reference.copy();
+        copy.sqDist = obs.sqDist;
+        return copy;
+    }
+
+    private static boolean same(Observation a, Observation b)
+    {
+        return a.category == b.category && a.itype == b.itype
+                && same(a.position, b.position) && same(a.reference, b.reference)
+                && Double.compare(a.sqDist, b.sqDist) == 0;
+    }
+
+    private static boolean same(Vector2d a, Vector2d b)
+    {
+        if (a == null || b == null)
+            return a == b;
+        return Double.compare(a.x, b.x) == 0 && Double.compare(a.y, b.y) == 0;
+    }
+}
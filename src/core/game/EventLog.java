@@ -0,0 +1,125 @@
+package core.game;
+
+import java.util.TreeSet;
+
+/**
+ * Log of the historic events of a game. Events are only appended, so copies of a game share
+ * the events logged until they were copied, and only keep the events that happen after that:
+ * copying a log is just taking the last event of the other log.
+ * Events are shared between the logs, so they must not be modified.
+ */
+public class EventLog
+{
+    /**
+     * An event in the log, with the one logged before it.
+     */
+    private static final class Entry
+    {
+        final Event event;
+        final Entry previous;
+        final int size;
+
+        Entry(Event event, Entry previous)
+        {
+            this.event = event;
+            this.previous = previous;
+            this.size = (previous == null) ? 1 : previous.size + 1;
+        }
+    }
+
+    /**
+     * Last event logged, or null if the log is empty.
+     */
+    private Entry last;
+
+    /**
+     * Events of the log as returned by getEvents(), and the last event when they were
+     * collected. Null if they haven't been collected yet.
+     */
+    private TreeSet<Event> events;
+    private Entry eventsLast;
+
+    /**
+     * Adds an event to the log, unless there's an event that compares equal to it (see
+     * Event.compareTo()), as a TreeSet of the events would. Events must be added in
+     * order of game step.
+     * @param event event to add.
+     * @return true if the event was added.
+     */
+    public boolean add(Event event)
+    {
+        for(Entry e = last; e != null && e.event.gameStep == event.gameStep; e = e.previous)
+            if(e.event.compareTo(event) == 0)
+                return false;
+
+        last = new Entry(event, last);
+        return true;
+    }
+
+    /**
+     * Removes all events from the log.
+     */
+    public void clear()
+    {
+        last = null;
+    }
+
+    /**
+     * Makes this log hold the same events as another one, sharing them.
+     * @param other log to copy.
+     */
+    public void set(EventLog other)
+    {
+        last = other.last;
+    }
+
+    /**
+     * Returns the number of events in the log.
+     * @return the number of events in the log.
+     */
+    public int size()
+    {
+        return (last == null) ? 0 : last.size;
+    }
+
+    /**
+     * Returns the events of the log, ordered asc. by game step. The set is kept and
+     * extended with the events added after this call, so it must not be modified.
+     * @return the events of the log.
+     */
+    public TreeSet<Event> getEvents()
+    {
+        if(events != null && eventsLast == last)
+            return events;
+
+        //The events kept can be extended if this log has only added events since.
+        Entry e = last;
+        while(e != null && eventsLast != null && e.size > eventsLast.size)
+            e = e.previous;
+        if(events == null || e != eventsLast)
+        {
+            events = new TreeSet<Event>();
+            e = null;
+        }
+
+        for(Entry n = last; n != e; n = n.previous)
+            events.add(n.event);
+        eventsLast = last;
+        return events;
+    }
+
+    /**
+     * Returns the events of the log that happened from a game step on, ordered asc. by
+     * game step. Only those events are visited, so this is cheaper than getEvents() to
+     * look at the last steps of a long game.
+     * @param fromStep first game step of the events returned.
+     * @return a new set with the events of the log from that step on.
+     */
+    public TreeSet<Event> getEvents(int fromStep)
+    {
+        TreeSet<Event> recent = new TreeSet<Event>();
+        for(Entry e = last; e != null && e.event.gameStep >= fromStep; e = e.previous)
+            recent.add(e.event);
+        return recent;
+    }
+}
@@ -5,11 +5,13 @@ import java.util.*;
 
 import core.competition.CompetitionParameters;
 import core.logging.Logger;
+import core.vgdl.CollisionGrid;
 import core.vgdl.SpriteGroup;
+import core.vgdl.SpriteHashSum;
+import core.vgdl.VGDLRegistry;
 import core.vgdl.VGDLSprite;
 import ontology.Types;
 import ontology.avatar.MovingAvatar;
-import ontology.effects.TimeEffect;
 import tools.*;
 
 /**
@@ -95,11 +97,32 @@ public class ForwardModel extends Game
      */
     private HashMap<Integer, Observation> observations;
 
+    /**
+     * The same observations, by sprite type, in the order of the sprites in spriteGroups.
+     * They are only updated when observations are created or removed, so the positions
+     * of a sprite type can be queried without looking every sprite up.
+     */
+    private ArrayList<Observation>[] typeObservations;
+
     /**
      * Observation grid
      */
     private ArrayList<Observation>[][] observationGrid;
 
+    /**
+     * Sprites and observations of the previous state, indexed by sprite ID, that
+     * copyFrom() reuses for the new one. Empty outside of copyFrom().
+     */
+    private HashMap<Integer, VGDLSprite> spareSprites;
+    private HashMap<Integer, Observation> spareObservations;
+
+    /**
+     * Hash of the state (see getStateHash()). It is computed when it is asked for, and
+     * kept until the state changes.
+     */
+    private long stateHash;
+    private boolean stateHashValid;
+
     /**
      * Constructor for StateObservation. Initializes everything
      * @param a_gameState
@@ -108,11 +131,16 @@ public class ForwardModel extends Game
     {
         this.playerID = playerID;
 
-        //All static elements of the game are assigned from the game we create the copy from.
-        initNonVolatile(a_gameState);
+        VGDLRegistry previous = VGDLRegistry.SetInstance(a_gameState.registry);
+        try {
+            //All static elements of the game are assigned from the game we create the copy from.
+            initNonVolatile(a_gameState);
 
-        //Init those variables that take a determined value at the beginning of a game.
-        init();
+            //Init those variables that take a determined value at the beginning of a game.
+            init();
+        } finally {
+            VGDLRegistry.SetInstance(previous);
+        }
     }
 
 
@@ -121,36 +149,121 @@ public class ForwardModel extends Game
      * from a game state (of class Game).
      * @param a_gameState game to take the state from.
      */
-    @SuppressWarnings("unchecked")
     final public void update(Game a_gameState)
     {
+        //Avatars look up the types they refer to again when they are copied.
+        VGDLRegistry previous = VGDLRegistry.SetInstance(a_gameState.registry);
+        try {
+            update(a_gameState, false);
+        } finally {
+            VGDLRegistry.SetInstance(previous);
+        }
+    }
+
+    /**
+     * Dumps the game state into 'this' object, as update() does, but overwriting the
+     * sprites of the previous state with the copies of the sprites with the same ID
+     * instead of allocating new ones (see copySprite()). The game keeps its own forward
+     * model updated this way, as it only hands out copies of it.
+     * @param a_gameState game to take the state from.
+     */
+    final void refresh(Game a_gameState)
+    {
+        if(spriteGroups == null)
+        {
+            update(a_gameState);
+            return;
+        }
+
+        VGDLRegistry previous = VGDLRegistry.SetInstance(a_gameState.registry);
+        try {
+            if(spareSprites == null)
+                spareSprites = new HashMap<Integer, VGDLSprite>();
+            for(SpriteGroup group : spriteGroups)
+                for(VGDLSprite sp : group.getSprites())
+                    if(!sp.is_avatar)
+                        spareSprites.put(sp.spriteID, sp);
+
+            update(a_gameState, true);
+            spareSprites.clear();
+        } finally {
+            VGDLRegistry.SetInstance(previous);
+        }
+    }
+
+    /**
+     * Dumps the game state into 'this' object.
+     * @param a_gameState game to take the state from.
+     * @param reuse if true, the containers of the current state of this object are cleared and
+     *              filled again, and the sprites in spareSprites are used for the copies,
+     *              instead of allocating new ones.
+     */
+    @SuppressWarnings("unchecked")
+    private void update(Game a_gameState, boolean reuse)
+    {
+        stateHashValid = false;
         int numSpriteTypes = a_gameState.spriteGroups.length;
-        kill_list = new ArrayList<VGDLSprite>();
-        bucketList = new Bucket[numSpriteTypes];
-        historicEvents = new TreeSet<Event>();
-        shieldedEffects = new ArrayList[numSpriteTypes];
+        if(reuse)
+        {
+            kill_list.clear();
+            historicEvents.clear();
+        }else
+        {
+            kill_list = new ArrayList<VGDLSprite>();
+            bucketList = new Bucket[numSpriteTypes];
+            historicEvents = new EventLog();
+            shieldedEffects = new ArrayList[numSpriteTypes];
 
-        //Copy of sprites from the game.
-        spriteGroups = new SpriteGroup[numSpriteTypes];
+            //Copy of sprites from the game.
+            spriteGroups = new SpriteGroup[numSpriteTypes];
+        }
         num_sprites = 0;
 
+        //The collision grid is rebuilt with the copies of the sprites.
+        if(a_gameState.collisionGrid == null)
+            collisionGrid = null;
+        else if(collisionGrid == null)
+            collisionGrid = new CollisionGrid(screenSize, block_size);
+        else
+            collisionGrid.clear();
+
+        //So is the sum of the position keys of the state hash.
+        if(hashSum == null)
+            hashSum = new SpriteHashSum();
+        else
+            hashSum.clear();
+
         for(int i = 0; i < spriteGroups.length; ++i)
         {
-            bucketList[i] = new Bucket();
-            spriteGroups[i] = new SpriteGroup(i);
+            if(reuse)
+            {
+                bucketList[i].clear();
+                spriteGroups[i].clear();
+                shieldedEffects[i].clear();
+            }else
+            {
+                bucketList[i] = new Bucket();
+                spriteGroups[i] = new SpriteGroup(i);
+                shieldedEffects[i] = new ArrayList<>();
+            }
 
             /**
              * Index in the sprite group passed to the checkSpriteFeatures method to
              * identify player in case of avatar sprites (index used as
              * playerID in the avatars array).
              */
+            Game pathGame = pathf != null && pathf.isObstacleType(i) ? this : null;
             Iterator<VGDLSprite> spriteIt = a_gameState.spriteGroups[i].getSpriteIterator();
             if(spriteIt != null) while(spriteIt.hasNext())
             {
                 VGDLSprite sp = spriteIt.next();
-                VGDLSprite spCopy = sp.copy();
+                VGDLSprite spCopy = reuse ? copySprite(sp) : sp.copy();
 
                 spriteGroups[i].addSprite(spCopy.spriteID, spCopy);
+                if(collisionGrid != null)
+                    collisionGrid.add(spCopy);
+                hashSum.add(spCopy);
+                spCopy.pathGame = pathGame;
 
                 String hidden = "False";
                 if (spCopy.hidden != null) {
@@ -170,34 +283,132 @@ public class ForwardModel extends Game
             num_sprites += nSprites;
 
             //copy the shields
-            shieldedEffects[i] = new ArrayList<>();
             for(Pair p : a_gameState.shieldedEffects[i])
                 shieldedEffects[i].add(p.copy());
         }
 
-        //events:
-        for (Event historicEvent : a_gameState.historicEvents) {
-            historicEvents.add(historicEvent.copy());
-        }
+        //events, shared with the game:
+        historicEvents.set(a_gameState.historicEvents);
 
-        //copy the time effects:
-        this.timeEffects = new TreeSet<TimeEffect>();
-        Iterator<TimeEffect> timeEffects = a_gameState.timeEffects.descendingIterator();
-        while(timeEffects.hasNext())
-        {
-            TimeEffect tef = timeEffects.next().copy();
-            this.timeEffects.add(tef);
-        }
-        //System.out.println("Tef size: " + this.timeEffects.size());
+        //copy the time effects (the effects themselves are shared with the game):
+        if(!reuse)
+            this.timeEffects = new TimeEffectQueue();
+        this.timeEffects.set(a_gameState.timeEffects);
 
         //Game state variables:
         this.gameTick = a_gameState.gameTick;
+        resetPathChanges();
         this.isEnded = a_gameState.isEnded;
-        this.avatarLastAction = new Types.ACTIONS[no_players];
+        this.canEnd = a_gameState.canEnd;
+        this.is_stochastic = a_gameState.is_stochastic;
+        if(!reuse)
+            this.avatarLastAction = new Types.ACTIONS[no_players];
         System.arraycopy(a_gameState.avatarLastAction, 0, avatarLastAction, 0, no_players);
         this.nextSpriteID = a_gameState.nextSpriteID;
     }
 
+    /**
+     * Restores this forward model, in place, to the state of another one. After this call, 'this'
+     * is equivalent to a_gameState.copy(), but the sprites, sprite groups, buckets, observations
+     * and observation grid of its previous state are reused instead of allocated again.
+     * Observations obtained from this object before the call must not be used afterwards.
+     * If both models are not from the same game, nothing is reused.
+     * @param a_gameState forward model to take the state from.
+     */
+    final public void copyFrom(ForwardModel a_gameState)
+    {
+        if(a_gameState == this)
+            return;
+
+        VGDLRegistry previous = VGDLRegistry.SetInstance(a_gameState.registry);
+        try {
+            restore(a_gameState);
+        } finally {
+            VGDLRegistry.SetInstance(previous);
+        }
+    }
+
+    /**
+     * Does the work of copyFrom(), once the registry of the game is set.
+     * @param a_gameState forward model to take the state from.
+     */
+    private void restore(ForwardModel a_gameState)
+    {
+        this.playerID = a_gameState.playerID;
+        if(this.spriteOrder != a_gameState.spriteOrder || this.spriteGroups == null)
+        {
+            initNonVolatile(a_gameState);
+            update(a_gameState, false);
+            return;
+        }
+
+        //Game state variables that a new copy takes in initNonVolatile()
+        System.arraycopy(a_gameState.counter, 0, this.counter, 0, no_counters);
+        Arrays.fill(npcList, false);
+        Arrays.fill(immList, false);
+        Arrays.fill(movList, false);
+        Arrays.fill(resList, false);
+        Arrays.fill(portalList, false);
+        Arrays.fill(fromAvatar, false);
+        Arrays.fill(unknownList, false);
+        Arrays.fill(playerList, false);
+        for(boolean[] visible : visibleList)
+            Arrays.fill(visible, false);
+
+        //Non-avatar sprites of the current state are overwritten by the copies of the sprites
+        //with the same ID (see copySprite()). Avatars are always copied again.
+        if(spareSprites == null)
+            spareSprites = new HashMap<Integer, VGDLSprite>();
+        for(SpriteGroup group : spriteGroups)
+            for(VGDLSprite sp : group.getSprites())
+                if(!sp.is_avatar)
+                    spareSprites.put(sp.spriteID, sp);
+
+        //Observations are also recycled, so the map starts empty as in a new copy.
+        HashMap<Integer, Observation> previous = observations;
+        observations = (spareObservations != null) ? spareObservations : new HashMap<Integer, Observation>();
+        spareObservations = previous;
+        for(ArrayList<Observation> typeObs : typeObservations)
+            typeObs.clear();
+        for(int i = 0; i < observationGrid.length; ++i)
+            for(int j = 0; j < observationGrid[i].length; ++j)
+                observationGrid[i][j].clear();
+
+        Arrays.fill(avatars, null);
+        update(a_gameState, true);
+
+        //Avatars that are not in the sprite groups are copied as in initNonVolatile().
+        for (int i = 0; i < no_players; i++) {
+            if(avatars[i] == null && a_gameState.avatars[i] != null){
+                avatars[i] = (MovingAvatar) a_gameState.avatars[i].copy();
+                avatars[i].setKeyHandler(a_gameState.avatars[i].getKeyHandler());
+            }
+        }
+
+        spareSprites.clear();
+        spareObservations.clear();
+    }
+
+    /**
+     * Copies a sprite during copyFrom() or refresh(), overwriting the spare sprite with the
+     * same ID if there is one of the same class.
+     * @param sp sprite to copy.
+     * @return the copy of the sprite.
+     */
+    private VGDLSprite copySprite(VGDLSprite sp)
+    {
+        if(sp.is_avatar)
+            return sp.copy();
+
+        VGDLSprite spare = spareSprites.remove(sp.spriteID);
+        if(spare == null || spare.getClass() != sp.getClass())
+            return sp.copy();
+
+        sp.copyTo(spare);
+        spare.setKilled(false);
+        return spare;
+    }
+
     /**
      * Updates the persistent observation of this sprite, or creates it if the
      * observation is new.
@@ -213,10 +424,17 @@ public class ForwardModel extends Game
         Observation obs = observations.get(spriteId);
         if(obs != null)
         {
+            //A new position is only created if the sprite moved.
             oldPosition = obs.position;
-            Vector2d position = sprite.getPosition();
-            moved = ! obs.position.equals(position);
-            obs.position = position;
+            moved = obs.position.x != sprite.rect.x || obs.position.y != sprite.rect.y;
+            if(moved)
+                obs.position = sprite.getPosition();
+        }else if(spareObservations != null && (obs = spareObservations.remove(spriteId)) != null)
+        {
+            obs.update(sprite.getType(), spriteId, sprite.getPosition(), Types.NIL, getSpriteCategory(sprite));
+            observations.put(spriteId, obs);
+            typeObservations[sprite.getType()].add(obs);
+            newObs = true;
         }else
         {
             obs = createSpriteObservation(sprite);
@@ -239,6 +457,7 @@ public class ForwardModel extends Game
         {
             removeObservationFromGrid(obs, obs.position);
             observations.remove(spriteId);
+            typeObservations[sprite.getType()].remove(obs);
         }
     }
 
@@ -345,6 +564,7 @@ public class ForwardModel extends Game
         int category = getSpriteCategory(sprite);
         Observation obs = new Observation(sprite.getType(), sprite.spriteID, sprite.getPosition(), Types.NIL, category);
         observations.put(sprite.spriteID, obs);
+        typeObservations[sprite.getType()].add(obs);
         return obs;
     }
 
@@ -473,13 +693,15 @@ public class ForwardModel extends Game
         this.eosEffects = a_gameState.eosEffects;
         this.definedEOSEffects = a_gameState.definedEOSEffects;
         this.iSubTypes = a_gameState.iSubTypes;
+        this.subTypeRanks = a_gameState.subTypeRanks;
         this.charMapping = a_gameState.charMapping;
         this.terminations = a_gameState.terminations;
         this.resources_limits = a_gameState.resources_limits;
         this.screenSize = a_gameState.screenSize;
         this.size = a_gameState.size;
         this.block_size = a_gameState.block_size;
-        this.MAX_SPRITES = a_gameState.MAX_SPRITES;
+        this.keyHandler = a_gameState.keyHandler;
+        this.registry = a_gameState.registry;
         this.no_players = a_gameState.no_players;
         this.no_counters = a_gameState.no_counters;
         this.avatarLastAction = new Types.ACTIONS[no_players];
@@ -506,6 +728,9 @@ public class ForwardModel extends Game
         playerList  = new boolean[a_gameState.spriteGroups.length];
 
         observations = new HashMap<Integer, Observation>();
+        typeObservations = new ArrayList[a_gameState.spriteGroups.length];
+        for(int i = 0; i < typeObservations.length; ++i)
+            typeObservations[i] = new ArrayList<Observation>();
         observationGrid = new ArrayList[screenSize.width/block_size][screenSize.height/block_size];
         for(int i = 0; i < observationGrid.length; ++i)
             for(int j = 0; j < observationGrid[i].length; ++j)
@@ -625,15 +850,73 @@ public class ForwardModel extends Game
         //System.out.println(isMultiGameOver());
     }
 
+    /**
+     * Advances the forward model with a sequence of actions of the player, one per game tick,
+     * until the sequence or the game (see isGameOver()) is over. It gives the same sprites, score and winner
+     * as calling advance() with each action, but the observations are only updated once, at the end, so the
+     * order of the observations within a cell of the observation grid is undefined.
+     * @param sequence actions to play.
+     * @param state observation of this model, passed to the listener.
+     * @param listener listener of the steps played, or null.
+     * @return the number of steps played.
+     */
+    final int advanceSequence(Types.ACTIONS[] sequence, StateObservation state, StepListener listener) {
+        int steps = 0;
+        boolean keepPlaying = true;
+        while(keepPlaying && steps < sequence.length && !isEnded && !isGameOver()) {
+            updateAvatars(sequence[steps], 0);
+            tick();
+            endTick();
+            keepPlaying = (listener == null) || listener.stepPlayed(steps, state);
+            steps++;
+        }
+        updateAllObservations();
+        return steps;
+    }
+
+    /**
+     * Advances the forward model with a sequence of actions of all players, as
+     * advanceSequence(Types.ACTIONS[], StateObservation, StepListener) does, until the
+     * sequence or the game for all players (see isMultiGameOver()) is over.
+     * @param sequence actions to play: sequence[i][j] is the action of the player j in the step i.
+     * @param state observation of this model, passed to the listener.
+     * @param listener listener of the steps played, or null.
+     * @return the number of steps played.
+     */
+    final int advanceSequence(Types.ACTIONS[][] sequence, StateObservation state, StepListener listener) {
+        int steps = 0;
+        boolean keepPlaying = true;
+        while(keepPlaying && steps < sequence.length && !isEnded && !isMultiGameOver()) {
+            Types.ACTIONS[] actions = sequence[steps];
+            for (int i = 0; i < actions.length; i++)
+                updateAvatars(actions[i], i);
+            tick();
+            endTick();
+            keepPlaying = (listener == null) || listener.stepPlayed(steps, state);
+            steps++;
+        }
+        updateAllObservations();
+        return steps;
+    }
+
     /**
      * Auxiliary method for advance methods, to avoid code duplication.
      */
     private void advance_aux() {
+        endTick();
+        updateAllObservations();
+    }
+
+    /**
+     * Updates the game state after the sprites have moved: events, killed sprites,
+     * termination and game tick. Observations are not updated.
+     */
+    private void endTick() {
+        stateHashValid = false;
         eventHandling();
         clearAll(this);
         terminationHandling();
         checkTimeOut();
-        updateAllObservations();
         gameTick++;
     }
 
@@ -834,15 +1117,34 @@ public class ForwardModel extends Game
             return owned;
 
         //And for each type, add their amount.
-        Set<Map.Entry<Integer, Integer>> entries = avatars[playerID].resources.entrySet();
-        for(Map.Entry<Integer, Integer> entry : entries)
+        VGDLSprite avatar = avatars[playerID];
+        int numResources = avatar.getNumResourceTypes();
+        for(int i = 0; i < numResources; ++i)
         {
-            owned.put(entry.getKey(), entry.getValue());
+            owned.put(avatar.getResourceId(i), avatar.getResourceAmount(i));
         }
 
         return owned;
     }
 
+    /**
+     * Returns the amount of a resource the avatar has (0 if it has none), without
+     * building the map of getAvatarResources().
+     * @param resourceId id of the resource to check.
+     * @return amount of the resource owned by the avatar.
+     */
+    public int getAvatarResource(int resourceId) { return getAvatarResource(0, resourceId); }
+
+    /**
+     * Method overloaded for multi player games.
+     * @param playerID ID of the player to query.
+     */
+    public int getAvatarResource(int playerID, int resourceId) {
+        if(avatars[playerID] == null)
+            return 0;
+        return avatars[playerID].getAmountResource(resourceId);
+    }
+
     /**
      * Returns the avatar's last move. At the first game cycle, it returns ACTION_NIL.
      * Note that this may NOT be the same as the last action given by the agent, as it may
@@ -937,16 +1239,135 @@ public class ForwardModel extends Game
         return !avatars[playerID].is_disabled();
     }
 
+    /**
+     * Returns a 64-bit hash of this state: the sprites (see VGDLSprite.positionHash() and
+     * stateHash()), the avatars and their scores, the game counters and the time effects
+     * still to be executed.
+     * Sprite IDs and the game tick are not part of it, so the same state reached with
+     * different sequences of actions (or different number of steps) has the same hash.
+     * Sprites are added up as Zobrist keys, so the order they are visited doesn't matter.
+     * The keys of their types and positions are kept up to date as the game is played (see
+     * SpriteHashSum), and only the rest of their state (see VGDLSprite.stateHash()) is
+     * hashed again, the first time the hash is asked for after every change.
+     * @return the hash of this state.
+     */
+    public long getStateHash()
+    {
+        if(stateHashValid)
+            return stateHash;
+
+        long spritesHash = hashSum.get();
+        for(SpriteGroup group : spriteGroups)
+        {
+            ArrayList<VGDLSprite> sprites = group.getSprites();
+            for(int i = 0; i < sprites.size(); ++i)
+                spritesHash += sprites.get(i).stateHash();
+        }
+
+        long h = StateHash.combine(no_players, isEnded ? 1 : 0);
+        for(int i = 0; i < no_players; ++i)
+            h = StateHash.combine(h, avatars[i] == null ? 0 : avatars[i].positionHash() + avatars[i].stateHash());
+        for(int i = 0; i < no_counters; ++i)
+            h = StateHash.combine(h, counter[i]);
+        h = StateHash.combine(h, timeEffects.stateHash(gameTick));
+
+        stateHash = StateHash.combine(h, spritesHash);
+        stateHashValid = true;
+        return stateHash;
+    }
+
+    /**
+     * Indicates if another state of the same game is the same as this one, comparing all
+     * that getStateHash() takes into account. States with different hashes are discarded
+     * without looking at their sprites.
+     * @param other state to compare to.
+     * @return true if both states are the same.
+     */
+    public boolean sameState(ForwardModel other)
+    {
+        if(other == this)
+            return true;
+        if(other.spriteOrder != this.spriteOrder || other.getStateHash() != this.getStateHash())
+            return false;
+        if(other.isEnded != this.isEnded || other.no_players != this.no_players)
+            return false;
+
+        for(int i = 0; i < no_players; ++i)
+        {
+            if(avatars[i] == null || other.avatars[i] == null)
+            {
+                if(avatars[i] != other.avatars[i]) return false;
+            }
+            else if(!avatars[i].sameState(other.avatars[i])) return false;
+        }
+        for(int i = 0; i < no_counters; ++i)
+            if(counter[i] != other.counter[i]) return false;
+        if(!timeEffects.sameState(gameTick, other.timeEffects, other.gameTick))
+            return false;
+
+        for(int i = 0; i < spriteGroups.length; ++i)
+            if(!sameSprites(spriteGroups[i].getSprites(), other.spriteGroups[i].getSprites()))
+                return false;
+        return true;
+    }
+
+    /**
+     * Indicates if two lists have sprites in the same states, in any order. Copies of a
+     * state keep their sprites in the same order, so sprites are first compared to the sprite
+     * in the same position of the other list, and only looked for in the rest of the list if
+     * they are not the same.
+     * @param sprites one list of sprites.
+     * @param others the other list of sprites.
+     * @return true if each sprite of a list is in the same state as a different sprite of the other.
+     */
+    private static boolean sameSprites(ArrayList<VGDLSprite> sprites, ArrayList<VGDLSprite> others)
+    {
+        int numSprites = sprites.size();
+        if(others.size() != numSprites)
+            return false;
+
+        boolean[] matched = null;
+        for(int i = 0; i < numSprites; ++i)
+        {
+            VGDLSprite sp = sprites.get(i);
+            if(matched == null)
+            {
+                if(sp.sameState(others.get(i)))
+                    continue;
+                matched = new boolean[numSprites];
+                Arrays.fill(matched, 0, i, true);
+            }
+
+            long hash = sp.positionHash() + sp.stateHash();
+            boolean found = false;
+            for(int j = i; j < numSprites + i && !found; ++j)
+            {
+                int k = j % numSprites;
+                VGDLSprite otherSp = others.get(k);
+                if(!matched[k] && otherSp.positionHash() + otherSp.stateHash() == hash && sp.sameState(otherSp))
+                {
+                    matched[k] = true;
+                    found = true;
+                }
+            }
+            if(!found)
+                return false;
+        }
+        return true;
+    }
+
     /** Methods that return positions of things **/
 
     /**
      * Gets position from the sprites corresponding to the boolean map passed by parameter.
      * @param groupArray boolean map that indicates which sprite types must be considered.
+     * @param refPosition reference position to sort the observations by distance, or null.
+     * @param k maximum number of observations of each sprite type, or -1 for all of them.
      * @return List of arrays with Observations. Each entry in the array corresponds to a different
      * sprite type.
      */
     @SuppressWarnings("unchecked")
-    private ArrayList<Observation>[] getPositionsFrom(boolean[] groupArray, Vector2d refPosition)
+    private ArrayList<Observation>[] getPositionsFrom(boolean[] groupArray, Vector2d refPosition, int k)
     {
         //First, get how many types we have. Need to consider hidden sprites out.
         int numDiffTypes = 0;
@@ -973,20 +1394,27 @@ public class ForwardModel extends Game
             //For each one of the sprite types that belong to the specified category
             if(groupArray[i] && visibleList[playerID][i])
             {
-                observations[idx] = new ArrayList<Observation>();
-                Iterator<VGDLSprite> spriteIt = spriteGroups[i].getSpriteIterator();
-                if(spriteIt != null) while(spriteIt.hasNext())
-                {
-                    VGDLSprite sp = spriteIt.next();
-
-                    Observation observation = getSpriteObservation(sp);
-                    observation.update(i, sp.spriteID, sp.getPosition(), reference, getSpriteCategory(sp));
+                ArrayList<Observation> typeObs = getTypeObservations(i);
+                int n = typeObs.size();
+                if(k >= 0 && k < n)
+                    observations[idx] = new ArrayList<Observation>(k);
+                else
+                    observations[idx] = new ArrayList<Observation>(n);
 
+                for(int j = 0; j < n; ++j)
+                {
+                    Observation observation = typeObs.get(j);
                     observation.reference = reference;
-                    observations[idx].add(observation);
+                    observation.sqDist = observation.position.sqDist(reference);
+
+                    if(k < 0 || (refPosition == null && observations[idx].size() < k))
+                        observations[idx].add(observation);
+                    else if(refPosition != null)
+                        addNearest(observations[idx], observation, k);
                 }
 
-                if(refPosition != null)
+                //The k nearest are already in order.
+                if(refPosition != null && k < 0)
                 {
                     Collections.sort(observations[idx]);
                 }
@@ -998,6 +1426,59 @@ public class ForwardModel extends Game
         return observations;
     }
 
+    /**
+     * Gets the observations of a sprite type, in the order of the sprites of its group.
+     * If any of them is missing, the list is built again from the sprites.
+     * @param itype sprite type.
+     * @return the observations of all the sprites of this type.
+     */
+    private ArrayList<Observation> getTypeObservations(int itype)
+    {
+        ArrayList<Observation> typeObs = typeObservations[itype];
+        if(typeObs.size() != spriteGroups[itype].numSprites())
+        {
+            typeObs.clear();
+            for(VGDLSprite sp : spriteGroups[itype].getSprites())
+            {
+                Observation obs = observations.get(sp.spriteID);
+                if(obs == null)
+                    createSpriteObservation(sp);
+                else
+                    typeObs.add(obs);
+            }
+        }
+        return typeObs;
+    }
+
+    /**
+     * Inserts an observation in a list of, at most, the k nearest observations to the
+     * reference, in ascending order of distance. Observations at the same distance keep
+     * the order in which they are added, as in a full sort.
+     * @param nearest nearest observations so far.
+     * @param obs observation to add, with its distance to the reference up to date.
+     * @param k maximum number of observations in the list.
+     */
+    private static void addNearest(ArrayList<Observation> nearest, Observation obs, int k)
+    {
+        int size = nearest.size();
+        if(k == 0 || (size == k && obs.sqDist >= nearest.get(size - 1).sqDist))
+            return;
+
+        int low = 0, high = size;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(nearest.get(mid).sqDist <= obs.sqDist)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        if(size == k)
+            nearest.remove(size - 1);
+        nearest.add(low, obs);
+    }
+
     /**
      * Returns a grid with all observations in the level.
      * @return the grid of observations
@@ -1013,7 +1494,17 @@ public class ForwardModel extends Game
      */
     public TreeSet<Event> getEventsHistory()
     {
-        return historicEvents;
+        return historicEvents.getEvents();
+    }
+
+    /**
+     * Returns the historic events happened in this game from a game step on.
+     * @param fromStep first game step of the events returned.
+     * @return list of historic events happened in this game from that step on.
+     */
+    public TreeSet<Event> getEventsHistory(int fromStep)
+    {
+        return historicEvents.getEvents(fromStep);
     }
 
     /**
@@ -1029,7 +1520,19 @@ public class ForwardModel extends Game
      */
     public ArrayList<Observation>[] getNPCPositions(Vector2d refPosition)
     {
-        return getPositionsFrom(npcList, refPosition);
+        return getPositionsFrom(npcList, refPosition, -1);
+    }
+
+    /**
+     * Returns, for each sprite type, the k observations of NPCs nearest to
+     * the reference position, ordered asc. by distance to it.
+     * @param refPosition Reference position to measure distances from.
+     * @param k Maximum number of observations of each sprite type.
+     * @return the nearest observations of NPCs.
+     */
+    public ArrayList<Observation>[] getNPCPositions(Vector2d refPosition, int k)
+    {
+        return getPositionsFrom(npcList, refPosition, k);
     }
 
     /**
@@ -1039,7 +1542,18 @@ public class ForwardModel extends Game
      * @return a list with the observations of static objects in the game..
      */
     public ArrayList<Observation>[] getImmovablePositions(Vector2d refPosition) {
-        return getPositionsFrom(immList, refPosition);
+        return getPositionsFrom(immList, refPosition, -1);
+    }
+
+    /**
+     * Returns, for each sprite type, the k observations of static objects nearest to
+     * the reference position, ordered asc. by distance to it.
+     * @param refPosition Reference position to measure distances from.
+     * @param k Maximum number of observations of each sprite type.
+     * @return the nearest observations of static objects.
+     */
+    public ArrayList<Observation>[] getImmovablePositions(Vector2d refPosition, int k) {
+        return getPositionsFrom(immList, refPosition, k);
     }
 
     /**
@@ -1049,7 +1563,18 @@ public class ForwardModel extends Game
      * @return a list with observations of sprites that move, but are NOT NPCs.
      */
     public ArrayList<Observation>[] getMovablePositions(Vector2d refPosition) {
-        return getPositionsFrom(movList, refPosition);
+        return getPositionsFrom(movList, refPosition, -1);
+    }
+
+    /**
+     * Returns, for each sprite type, the k observations of sprites that move, but are NOT NPCs nearest to
+     * the reference position, ordered asc. by distance to it.
+     * @param refPosition Reference position to measure distances from.
+     * @param k Maximum number of observations of each sprite type.
+     * @return the nearest observations of sprites that move, but are NOT NPCs.
+     */
+    public ArrayList<Observation>[] getMovablePositions(Vector2d refPosition, int k) {
+        return getPositionsFrom(movList, refPosition, k);
     }
 
     /*
@@ -1059,7 +1584,18 @@ public class ForwardModel extends Game
     * @return a list with observations of resources.
     */
     public ArrayList<Observation>[] getResourcesPositions(Vector2d refPosition) {
-        return getPositionsFrom(resList, refPosition);
+        return getPositionsFrom(resList, refPosition, -1);
+    }
+
+    /**
+     * Returns, for each sprite type, the k observations of resources nearest to
+     * the reference position, ordered asc. by distance to it.
+     * @param refPosition Reference position to measure distances from.
+     * @param k Maximum number of observations of each sprite type.
+     * @return the nearest observations of resources.
+     */
+    public ArrayList<Observation>[] getResourcesPositions(Vector2d refPosition, int k) {
+        return getPositionsFrom(resList, refPosition, k);
     }
 
     /*
@@ -1069,7 +1605,18 @@ public class ForwardModel extends Game
      * @return a list with observations of portals.
      */
     public ArrayList<Observation>[] getPortalsPositions(Vector2d refPosition) {
-        return getPositionsFrom(portalList, refPosition);
+        return getPositionsFrom(portalList, refPosition, -1);
+    }
+
+    /**
+     * Returns, for each sprite type, the k observations of portals nearest to
+     * the reference position, ordered asc. by distance to it.
+     * @param refPosition Reference position to measure distances from.
+     * @param k Maximum number of observations of each sprite type.
+     * @return the nearest observations of portals.
+     */
+    public ArrayList<Observation>[] getPortalsPositions(Vector2d refPosition, int k) {
+        return getPositionsFrom(portalList, refPosition, k);
     }
 
     /**
@@ -1080,7 +1627,19 @@ public class ForwardModel extends Game
      */
     public ArrayList<Observation>[] getFromAvatarSpPositions(Vector2d refPosition)
     {
-        return getPositionsFrom(fromAvatar, refPosition);
+        return getPositionsFrom(fromAvatar, refPosition, -1);
+    }
+
+    /**
+     * Returns, for each sprite type, the k observations of sprites created by the avatar nearest to
+     * the reference position, ordered asc. by distance to it.
+     * @param refPosition Reference position to measure distances from.
+     * @param k Maximum number of observations of each sprite type.
+     * @return the nearest observations of sprites created by the avatar.
+     */
+    public ArrayList<Observation>[] getFromAvatarSpPositions(Vector2d refPosition, int k)
+    {
+        return getPositionsFrom(fromAvatar, refPosition, k);
     }
 
 
@@ -20,6 +20,7 @@ import ontology.effects.TimeEffect;
 import ontology.sprites.Resource;
 import tools.*;
 import tools.pathfinder.Node;
+import tools.pathfinder.ObstacleChanges;
 import tools.pathfinder.PathFinder;
 
 import javax.swing.*;
@@ -92,9 +93,9 @@ public abstract class Game {
 	protected ArrayList<Effect>[] eosEffects;
 
 	/**
-	 * List of TIME effects
+	 * Queue of TIME effects, by the game tick when they are executed next.
 	 */
-	protected TreeSet<TimeEffect> timeEffects;
+	protected TimeEffectQueue timeEffects;
 
 	/**
 	 * List of types that can trigger an EOS effect.
@@ -103,9 +104,10 @@ public abstract class Game {
 
 	/**
 	 * Historic of events related to the avatar happened during the game. The
-	 * entries are ordered asc. by game step.
+	 * entries are ordered asc. by game step. Copies of the game share the
+	 * events logged before they were made.
 	 */
-	protected TreeSet<Event> historicEvents;
+	protected EventLog historicEvents;
 
 	/**
 	 * For each entry, int identifier of sprite type, a list with all the itypes
@@ -124,6 +126,36 @@ public abstract class Game {
 	 */
 	protected Bucket[] bucketList;
 
+	/**
+	 * Spatial index of all sprites in the game, used to find collisions. It is
+	 * null if CompetitionParameters.USE_COLLISION_GRID is false.
+	 */
+	protected CollisionGrid collisionGrid;
+
+	/**
+	 * Sum of the position keys of all sprites in the game, part of the hash of the
+	 * state (see ForwardModel.getStateHash()). It is only kept by forward models, and
+	 * null in the game itself.
+	 */
+	protected SpriteHashSum hashSum;
+
+	/**
+	 * For each sprite type, the position (starting at 1) of every other type in
+	 * its list of subtypes, or 0 if it is not a subtype. Built when first
+	 * needed, and shared with the forward model copies.
+	 */
+	protected int[][] subTypeRanks;
+
+	/**
+	 * Reusable list for the sprites returned by the collision grid.
+	 */
+	private ArrayList<VGDLSprite> gridCandidates = new ArrayList<VGDLSprite>();
+
+	/**
+	 * Reusable rectangle for collision grid queries.
+	 */
+	private Rectangle gridArea = new Rectangle();
+
 	/**
 	 * Mapping between characters in the level and the entities they represent.
 	 */
@@ -135,7 +167,9 @@ public abstract class Game {
 	protected ArrayList<Termination> terminations;
 
 	/**
-	 * List of sprites killed in the game.
+	 * List of sprites killed in the game. Sprites must be added through
+	 * killSprite(), which also flags them as killed so membership can be
+	 * checked with VGDLSprite.is_killed().
 	 */
 	public ArrayList<VGDLSprite> kill_list;
 
@@ -199,10 +233,20 @@ public abstract class Game {
 	 */
 	protected ForwardModel fwdModel;
 
+	/**
+	 * Indicates if the state observation doesn't need to be refreshed when it is
+	 * requested (see updateForwardModel()). It is refreshed at the start of each
+	 * game cycle in which an avatar is active, so players see the state before the
+	 * cycle is played. In cycles without an active avatar, and once the game is
+	 * over, it is only refreshed when an observation is requested: it then holds
+	 * the state of the game at that moment, after the cycle has been played.
+	 */
+	private boolean fwdModelUpToDate;
+
 	/**
 	 * Maximum number of sprites in a game.
 	 */
-	protected static int MAX_SPRITES;
+	protected static final int MAX_SPRITES = 10000;
 
 	/**
 	 * Random number generator for this game. It can only be received when the
@@ -242,6 +286,12 @@ public abstract class Game {
 	 */
 	protected PathFinder pathf;
 
+	/**
+	 * Differences between the obstacles of the game and the ones the pathfinder
+	 * was run with (see getPathChanges()), or null if they must be found again.
+	 */
+	private ObstacleChanges pathChanges;
+
 	/**
 	 * Avatars last actions. Array for all avatars in the game. Index in array
 	 * corresponds to playerID.
@@ -255,17 +305,39 @@ public abstract class Game {
 
 	public static KeyHandler ki;
 
+	/**
+	 * Key handler of the avatars of this game. Game.ki is the one of the last game
+	 * parsed, used by the game window and human players. Each game keeps its own so
+	 * that games played at the same time in different threads don't share it.
+	 */
+	protected KeyHandler keyHandler;
+
+	/**
+	 * Registry of the sprite types of this game. Sprites created for this game resolve
+	 * the types they refer to in it (see VGDLFactory.createSprite()).
+	 */
+	protected VGDLRegistry registry;
+
+	/**
+	 * Set by StopCounter terminations to allow or prevent the other terminations that
+	 * count sprites from ending this game.
+	 */
+	public boolean canEnd = true;
+
 	/**
 	 * Default constructor.
 	 */
 	public Game() {
+		// Sprite types of this game are registered in the registry of the thread that parses it.
+		registry = VGDLRegistry.GetInstance();
+
 		// data structures to hold the game definition.
 		definedEffects = new ArrayList<Pair<Integer, Integer>>();
 		definedEOSEffects = new ArrayList<Integer>();
 		charMapping = new HashMap<Character, ArrayList<String>>();
 		terminations = new ArrayList<Termination>();
-		historicEvents = new TreeSet<Event>();
-		timeEffects = new TreeSet<TimeEffect>();
+		historicEvents = new EventLog();
+		timeEffects = new TimeEffectQueue();
 
 		// Game attributes:
 		size = new Dimension();
@@ -283,8 +355,8 @@ public abstract class Game {
 	public void loadDefaultConstr() {
 		// If more elements are added here, initSprites() must be modified
 		// accordingly!
-		VGDLRegistry.GetInstance().registerSprite("wall");
-		VGDLRegistry.GetInstance().registerSprite("avatar");
+		registry.registerSprite("wall");
+		registry.registerSprite("avatar");
 	}
 
 	/**
@@ -307,8 +379,8 @@ public abstract class Game {
 	public void changeSpriteOrder(ArrayList<Integer> spOrder){
 		spriteOrder = new int[spOrder.size()];
 		// We need here the default 2 sprites:
-		avatarId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("avatar");
-		wallId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("wall");
+		avatarId = registry.getRegisteredSpriteValue("avatar");
+		wallId = registry.getRegisteredSpriteValue("wall");
 
 		// 1. "avatar" ALWAYS at the end of the array.
 		for (int i = 0; i < no_players; i++) {
@@ -339,21 +411,21 @@ public abstract class Game {
 		ArrayList<Resource> resources = new ArrayList<Resource>();
 
 		// We need here the default 2 sprites:
-		avatarId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("avatar");
-		wallId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("wall");
+		avatarId = registry.getRegisteredSpriteValue("avatar");
+		wallId = registry.getRegisteredSpriteValue("wall");
 
 		// Initialize the sprite render order.
 		this.changeSpriteOrder(spOrder);
 
 		// Singletons
-		singletons = new boolean[VGDLRegistry.GetInstance().numSpriteTypes()];
+		singletons = new boolean[registry.numSpriteTypes()];
 		for (Integer intId : sings) {
 			singletons[intId] = true;
 		}
 
 		// Constructors, as many as number of sprite types, so they are accessed
 		// by its id:
-		classConst = new Content[VGDLRegistry.GetInstance().numSpriteTypes()];
+		classConst = new Content[registry.numSpriteTypes()];
 		templateSprites = new VGDLSprite[classConst.length];
 
 		// By default, we have 2 constructors:
@@ -393,13 +465,14 @@ public abstract class Game {
 		resources_limits = new int[classConst.length];
 		resources_colors = new Color[classConst.length];
 
+		timeEffects = new TimeEffectQueue();
+
 		// For each sprite type...
 		for (int j = 0; j < spriteGroups.length; ++j) {
 			// Create the space for the sprites and effects of this type.
 			spriteGroups[j] = new SpriteGroup(j);
 			shieldedEffects[j] = new ArrayList<>();
 			eosEffects[j] = new ArrayList<Effect>();
-			timeEffects = new TreeSet<TimeEffect>();
 			bucketList[j] = new Bucket();
 
 			// Declare the extended types list of this sprite type.
@@ -479,7 +552,7 @@ public abstract class Game {
 			}
 
 			if (isLeafNode(current)) {
-				result.add(VGDLRegistry.GetInstance().getRegisteredSpriteKey(current));
+				result.add(registry.getRegisteredSpriteKey(current));
 			} else {
 				SpriteContent sc = (SpriteContent) classConst[current];
 				for(int s:sc.subtypes){
@@ -557,8 +630,8 @@ public abstract class Game {
 		data.name = sc.identifier;
 		data.type = sc.referenceClass;
 		for(int pIndex:sc.itypes){
-		    if( VGDLRegistry.GetInstance().getRegisteredSpriteValue(data.name) != pIndex){
-			data.parents.add(VGDLRegistry.GetInstance().getRegisteredSpriteKey(pIndex));
+		    if( registry.getRegisteredSpriteValue(data.name) != pIndex){
+			data.parents.add(registry.getRegisteredSpriteKey(pIndex));
 		    }
 		}
 
@@ -584,7 +657,7 @@ public abstract class Game {
 		ArrayList<String> dependentSprites = sprite.getDependentSprites();
 		for (String s : dependentSprites) {
 			ArrayList<String> expandedSprites = expandNonLeafNode(
-					VGDLRegistry.GetInstance().getRegisteredSpriteValue(s));
+					registry.getRegisteredSpriteValue(s));
 			data.sprites.addAll(expandedSprites);
 		}
 
@@ -615,7 +688,7 @@ public abstract class Game {
 	 * @return a temproary avatar sprite
 	 */
 	public VGDLSprite getTempAvatar(SpriteData sprite) {
-		avatarId = VGDLRegistry.GetInstance().getRegisteredSpriteValue(sprite.name);
+		avatarId = registry.getRegisteredSpriteValue(sprite.name);
 		if (((SpriteContent) classConst[avatarId]).referenceClass != null) {
 			VGDLSprite result = VGDLFactory.GetInstance().createSprite(this, (SpriteContent) classConst[avatarId],
 					new Vector2d(), new Dimension(1, 1));
@@ -646,7 +719,7 @@ public abstract class Game {
 
 			ArrayList<String> sprites = tr.getTerminationSprites();
 			for (String s : sprites) {
-				int itype = VGDLRegistry.GetInstance().getRegisteredSpriteValue(s);
+				int itype = registry.getRegisteredSpriteValue(s);
 				if (isLeafNode(itype)) {
 					td.sprites.add(s);
 				} else {
@@ -731,6 +804,7 @@ public abstract class Game {
 			counter[i] = 0;
 		}
 		isEnded = false;
+		canEnd = true;
 		gameTick = -1;
 		disqualified = false;
 		avatarLastAction = new Types.ACTIONS[no_players];
@@ -744,8 +818,16 @@ public abstract class Game {
 		}
 
 		if (kill_list != null) {
+			for (VGDLSprite sprite : kill_list)
+				sprite.setKilled(false);
 			kill_list.clear();
 		}
+		if (collisionGrid != null) {
+			collisionGrid.clear();
+		}
+		if (hashSum != null) {
+			hashSum.clear();
+		}
 		for (int j = 0; j < spriteGroups.length; ++j) {
 			bucketList[j].clear();
 		}
@@ -765,6 +847,18 @@ public abstract class Game {
 	public void initForwardModel() {
 		fwdModel = new ForwardModel(this, 0);
 		fwdModel.update(this);
+		fwdModelUpToDate = true;
+	}
+
+	/**
+	 * Updates the state observation (forward model) with the current game
+	 * state, unless it is marked as up to date (see fwdModelUpToDate).
+	 */
+	private void updateForwardModel() {
+		if (!fwdModelUpToDate) {
+			fwdModel.refresh(this);
+			fwdModelUpToDate = true;
+		}
 	}
 
 	/**
@@ -787,11 +881,10 @@ public abstract class Game {
 
 		// taking care of the key handler parameter:
 
-		if (key_handler != null && key_handler.equalsIgnoreCase("Pulse"))
-			CompetitionParameters.KEY_HANDLER = CompetitionParameters.KEY_PULSE;
-
-		ki = CompetitionParameters.KEY_HANDLER == CompetitionParameters.KEY_INPUT ? new KeyInput()
-				: new KeyPulse(no_players);
+		boolean pulse = CompetitionParameters.KEY_HANDLER == CompetitionParameters.KEY_PULSE
+				|| (key_handler != null && key_handler.equalsIgnoreCase("Pulse"));
+		keyHandler = pulse ? new KeyPulse(no_players) : new KeyInput();
+		ki = keyHandler;
 	}
 
 	/**
@@ -809,8 +902,18 @@ public abstract class Game {
 		spriteGroups[itype].addSprite(nextSpriteID++, sprite);
 		num_sprites++;
 
+		if (collisionGrid != null)
+			collisionGrid.add(sprite);
+		if (hashSum != null)
+			hashSum.add(sprite);
+
 		if (sprite.is_stochastic)
 			this.is_stochastic = true;
+
+		if (pathf != null && pathf.isObstacleType(itype)) {
+			sprite.pathGame = this;
+			pathChanges = null;
+		}
 	}
 
 	/**
@@ -873,8 +976,8 @@ public abstract class Game {
 			this.gameCycle(); // Execute a game cycle.
 		}
 
-		// Update the forward model for the game state sent to the controller.
-		fwdModel.update(this);
+		// The forward model is updated with the final game state when it's requested.
+		fwdModelUpToDate = false;
 
 		return handleResult();
 	}
@@ -902,6 +1005,8 @@ public abstract class Game {
 		JEasyFrame frame;
 		frame = new JEasyFrame(view, "Java-VGDL");
 
+		// The window and the human players read the keys of the game on screen.
+		ki = keyHandler;
 		frame.addKeyListener(ki);
 		frame.addWindowListener(wi);
 		wi.windowClosed = false;
@@ -969,8 +1074,8 @@ public abstract class Game {
 			frame.dispose();
 		}
 
-		// Update the forward model for the game state sent to the controller.
-		fwdModel.update(this);
+		// The forward model is updated with the final game state when it's requested.
+		fwdModelUpToDate = false;
 
 		return handleResult();
 	}
@@ -1017,8 +1122,8 @@ public abstract class Game {
 		}
 
 
-		// Update the forward model for the game state sent to the controller.
-		fwdModel.update(this);
+		// The forward model is updated with the final game state when it's requested.
+		fwdModelUpToDate = false;
 
 		return handleResult();
 	}
@@ -1093,8 +1198,15 @@ public abstract class Game {
 		gameTick++; // next game tick.
 
 		// Update our state observation (forward model) with the information of
-		// the current game state.
-		fwdModel.update(this);
+		// the current game state, if any player is going to ask for it in this
+		// cycle. Otherwise, it's only updated if requested later.
+		fwdModelUpToDate = false;
+		for (int i = 0; i < no_players; i++) {
+			if (avatars[i] != null && !avatars[i].is_disabled()) {
+				updateForwardModel();
+				break;
+			}
+		}
 		// System.out.println(avatars[0].rect);
 
 		// Execute a game cycle:
@@ -1301,7 +1413,7 @@ public abstract class Game {
 				if (numAvatarSprites > i) { // check if there's enough avatars
 					// just in case
 					avatars[i] = avSprites.get(i);
-					avatars[i].setKeyHandler(ki);
+					avatars[i].setKeyHandler(keyHandler);
 					avatars[i].setPlayerID(i);
 				}
 			}
@@ -1393,18 +1505,16 @@ public abstract class Game {
 		boolean noSprites[] = new boolean[spriteGroups.length];
 
 		// First, check the effects that are triggered in a timely manner.
-		while (timeEffects.size() > 0 && timeEffects.first().nextExecution <= gameTick) {
-			TimeEffect ef = timeEffects.pollFirst();
+		while (timeEffects.hasDue(gameTick)) {
+			TimeEffect ef = timeEffects.poll();
 			if (ef.enabled) {
 				int intId = ef.itype;
-				boolean exec = false;
 
 				// if intId==-1, we have no sprite
 				if (intId == -1) {
 					// With no sprite, the effect is independent from particular
 					// sprites.
 					ef.execute(null, null, this);
-					exec = true;
 
 					// Affect score for all players:
 					if (ef.applyScore) {
@@ -1422,9 +1532,8 @@ public abstract class Game {
 						for (VGDLSprite sp : sprites) {
 							// Check that they are not dead (could happen in
 							// this same cycle).
-							if (!kill_list.contains(sp) && !sp.is_disabled()) {
+							if (!sp.is_killed() && !sp.is_disabled()) {
 								executeEffect(ef, sp, null);
-								exec = true;
 							}
 						}
 					}
@@ -1432,11 +1541,8 @@ public abstract class Game {
 
 				// If the time effect is repetitive, need to reinsert in the
 				// list of effects
-				if (ef.repeating) {
-					if (!exec)
-						ef.planExecution(this);
-					this.addTimeEffect(ef);
-				}
+				if (ef.repeating)
+					timeEffects.add(ef, gameTick + ef.timer);
 			}
 
 		}
@@ -1461,7 +1567,7 @@ public abstract class Game {
 								// Check if they are at the edge to trigger the
 								// effect. Also check that they
 								// are not dead (could happen in this same cycle).
-								if (isAtEdge(sp.rect) && !kill_list.contains(sp) && !sp.is_disabled()) {
+								if (isAtEdge(sp.rect) && !sp.is_killed() && !sp.is_disabled()) {
 									executeEffect(ef, sp, null);
 								}
 							}
@@ -1495,9 +1601,19 @@ public abstract class Game {
 					for (int i : allTypes1) {
 						firstx.addAll(getSprites(i));
 					}
-					ArrayList<Integer> allTypes2 = iSubTypes[p.second];
-					for (int j : allTypes2) {
-						secondx.addAll(getSprites(j));
+
+					// With the collision grid, only the sprites close to s1 are checked. Sprites
+					// created while this effect is handled are not part of secondx, so they are
+					// filtered out by ID.
+					int[] ranks2 = null;
+					int idLimit = nextSpriteID;
+					if (collisionGrid != null) {
+						ranks2 = getSubTypeRanks(p.second);
+					} else {
+						ArrayList<Integer> allTypes2 = iSubTypes[p.second];
+						for (int j : allTypes2) {
+							secondx.addAll(getSprites(j));
+						}
 					}
 
 					ArrayList<VGDLSprite> new_secondx = new ArrayList<VGDLSprite>();
@@ -1505,9 +1621,13 @@ public abstract class Game {
 					for (VGDLSprite s1 : firstx) {
 						new_secondx = new ArrayList<VGDLSprite>();
 
-						for (VGDLSprite s2 : secondx) {
-							if ((s1 != s2 && s1.intersects(s2))) {
-								new_secondx.add(s2);
+						if (collisionGrid != null) {
+							findCollisions(s1, ranks2, idLimit, new_secondx);
+						} else {
+							for (VGDLSprite s2 : secondx) {
+								if ((s1 != s2 && s1.intersects(s2))) {
+									new_secondx.add(s2);
+								}
 							}
 						}
 
@@ -1517,7 +1637,7 @@ public abstract class Game {
 							} else {
 
 								for (int i = 0; i < new_secondx.size(); i++) {
-									if (!kill_list.contains(s1) && s1 != new_secondx.get(i) && s1.intersects(new_secondx.get(i))) {
+									if (!s1.is_killed() && s1 != new_secondx.get(i) && s1.intersects(new_secondx.get(i))) {
 										executeEffect(ef, s1, new_secondx.get(i));
 									}
 								}
@@ -1531,6 +1651,69 @@ public abstract class Game {
 	}
 
 
+	/**
+	 * Finds the sprites that collide with s1 using the collision grid. The
+	 * result is the same, and in the same order, as checking s1 against all
+	 * sprites of the subtypes of a type: sorted by position of their type in
+	 * the list of subtypes, and then by sprite ID (the order they have in their
+	 * sprite group).
+	 *
+	 * @param s1
+	 *            sprite to find collisions for.
+	 * @param typeRanks
+	 *            ranks of the subtypes to consider, from getSubTypeRanks().
+	 * @param idLimit
+	 *            sprites with this ID or higher are ignored.
+	 * @param result
+	 *            list where the colliding sprites are added.
+	 */
+	private void findCollisions(VGDLSprite s1, int[] typeRanks, int idLimit, ArrayList<VGDLSprite> result) {
+		// Some sprites also check for ground right below them when intersects() is
+		// called, so the area includes that margin.
+		gridArea.setBounds(s1.rect.x, s1.rect.y, s1.rect.width,
+				s1.rect.height + VGDLSprite.GROUND_CHECK_OFFSET);
+		gridCandidates.clear();
+		collisionGrid.collect(gridArea, gridCandidates);
+
+		for (VGDLSprite s2 : gridCandidates) {
+			if (s2.spriteID < idLimit && typeRanks[s2.getType()] > 0 && s1 != s2 && s1.intersects(s2)) {
+				// Insertion sort, lists are very short.
+				int rank = typeRanks[s2.getType()];
+				int pos = result.size();
+				while (pos > 0) {
+					VGDLSprite prev = result.get(pos - 1);
+					int prevRank = typeRanks[prev.getType()];
+					if (prevRank < rank || (prevRank == rank && prev.spriteID < s2.spriteID))
+						break;
+					pos--;
+				}
+				result.add(pos, s2);
+			}
+		}
+	}
+
+	/**
+	 * Returns, for each sprite type, its position (starting at 1) in the list
+	 * of subtypes of itype, or 0 if it is not a subtype of itype.
+	 *
+	 * @param itype
+	 *            parent type.
+	 * @return the ranks of all sprite types.
+	 */
+	private int[] getSubTypeRanks(int itype) {
+		if (subTypeRanks == null) {
+			int[][] allRanks = new int[iSubTypes.length][iSubTypes.length];
+			for (int t = 0; t < iSubTypes.length; ++t) {
+				ArrayList<Integer> allTypes = iSubTypes[t];
+				for (int i = allTypes.size() - 1; i >= 0; --i) {
+					allRanks[t][allTypes.get(i)] = i + 1;
+				}
+			}
+			subTypeRanks = allRanks;
+		}
+		return subTypeRanks[itype];
+	}
+
 	private void executeEffectBatch(Effect ef, VGDLSprite s1, ArrayList<VGDLSprite> s2list) {
 		// There is a collision. Apply the effect.
 		int batchCount = ef.executeBatch(s1, s2list, this);
@@ -1666,11 +1849,22 @@ public abstract class Game {
 	 */
 	protected void clearAll(ForwardModel fm) {
 		for (VGDLSprite sprite : kill_list) {
+			sprite.setKilled(false);
 			int spriteType = sprite.getType();
 			this.spriteGroups[spriteType].removeSprite(sprite);
+			if (collisionGrid != null) {
+				collisionGrid.remove(sprite);
+			}
+			if (hashSum != null) {
+				hashSum.remove(sprite);
+			}
 			if (fm != null) {
 				fm.removeSpriteObservation(sprite);
 			}
+			if (pathf != null && pathf.isObstacleType(spriteType)) {
+				sprite.pathGame = null;
+				pathChanges = null;
+			}
 
 			if (sprite.is_avatar)
 				// go through all avatars to see which avatar is dead
@@ -1778,26 +1972,35 @@ public abstract class Game {
 		if (!anyother) {
 			VGDLSprite newSprite;
 
-			Dimension spriteDim = new Dimension(block_size, block_size);
-			if (templateSprites[itype] == null) // don't have a template yet, so
-			// need to create one
-			{
-				newSprite = VGDLFactory.GetInstance().createSprite(this, content, position, spriteDim);
-
-				// Assign its types and add it to the collection of sprites.
-				newSprite.itypes = (ArrayList<Integer>) content.itypes.clone();
-
-				// save a copy as template object
-				templateSprites[itype] = newSprite.copy();
-			} else // we already have a template, so simply copy that one
-			{
-				newSprite = templateSprites[itype].copy();
-
-				// make sure the copy is moved to the correct position
-				newSprite.setRect(position, spriteDim);
-
-				// Set last rect
-				newSprite.lastrect = new Rectangle(newSprite.rect);
+			// Avatars look up the types they refer to again when they are copied.
+			VGDLRegistry previous = VGDLRegistry.SetInstance(registry);
+			try {
+				Dimension spriteDim = new Dimension(block_size, block_size);
+				if (templateSprites[itype] == null) // don't have a template yet, so
+				// need to create one
+				{
+					newSprite = VGDLFactory.GetInstance().createSprite(this, content, position, spriteDim);
+
+					// Assign its types and add it to the collection of sprites.
+					int[] itypes = new int[content.itypes.size()];
+					for (int i = 0; i < itypes.length; ++i)
+						itypes[i] = content.itypes.get(i);
+					newSprite.itypes = itypes;
+
+					// save a copy as template object
+					templateSprites[itype] = newSprite.copy();
+				} else // we already have a template, so simply copy that one
+				{
+					newSprite = templateSprites[itype].copy();
+
+					// make sure the copy is moved to the correct position
+					newSprite.setRect(position, spriteDim);
+
+					// Set last rect
+					newSprite.lastrect = new Rectangle(newSprite.rect);
+				}
+			} finally {
+				VGDLRegistry.SetInstance(previous);
 			}
 
 			// add the sprite to the collection of sprites in the game
@@ -1854,6 +2057,7 @@ public abstract class Game {
 			// disable
 			sprite.setDisabled(true);
 		} else {
+			sprite.setKilled(true);
 			kill_list.add(sprite);
 		}
 	}
@@ -1950,7 +2154,7 @@ public abstract class Game {
 	 * Adds a time effect to the game.
 	 */
 	public void addTimeEffect(TimeEffect ef) {
-		timeEffects.add(ef);
+		timeEffects.add(ef, ef.nextExecution);
 	}
 
 	/**
@@ -2026,6 +2230,16 @@ public abstract class Game {
 		is_stochastic = stoch;
 	}
 
+	/**
+	 * Indicates if the game is stochastic: if any of its effects or of the
+	 * sprites created so far behave randomly.
+	 *
+	 * @return true if the game is stochastic.
+	 */
+	public boolean isStochastic() {
+		return is_stochastic;
+	}
+
 	/**
 	 * Returns the avatar of the game in single player games.
 	 *
@@ -2138,6 +2352,7 @@ public abstract class Game {
 	 * @return the observation.
 	 */
 	public StateObservation getObservation() {
+		updateForwardModel();
 		return new StateObservation(fwdModel.copy(), 0);
 	}
 
@@ -2147,6 +2362,7 @@ public abstract class Game {
 	 * @return the observation.
 	 */
 	public StateObservationMulti getObservationMulti(int playerID) {
+		updateForwardModel();
 		return new StateObservationMulti(fwdModel.copy(), playerID);
 	}
 
@@ -2212,6 +2428,22 @@ public abstract class Game {
 		return spriteOrder;
 	}
 
+	/**
+	 * Returns the registry of the sprite types of this game.
+	 * @return the registry of this game.
+	 */
+	public VGDLRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns the key handler of the avatars of this game.
+	 * @return the key handler of this game.
+	 */
+	public KeyHandler getKeyHandler() {
+		return keyHandler;
+	}
+
 	/**
 	 * Returns the number of sprites
 	 */
@@ -2246,7 +2478,37 @@ public abstract class Game {
 		pathStart.mul(1.0 / (double) block_size);
 		pathEnd.mul(1.0 / (double) block_size);
 
-		return pathf.getPath(pathStart, pathEnd);
+		return pathf.getPath(pathStart, pathEnd, getPathChanges());
+	}
+
+	/**
+	 * Gets the differences between the obstacles of the game and the ones the
+	 * pathfinder was run with. They are only found again after obstacles are
+	 * created, destroyed or moved, so they cost nothing while obstacles don't change.
+	 *
+	 * @return the differences in the obstacles.
+	 */
+	private ObstacleChanges getPathChanges() {
+		if (pathChanges == null)
+			pathChanges = pathf.getChanges(this);
+		return pathChanges;
+	}
+
+	/**
+	 * Drops the differences in the obstacles found for the pathfinder, as an
+	 * obstacle has moved. Called by VGDLSprite.updateBucket() for the sprites
+	 * added as obstacles.
+	 */
+	public void obstacleMoved() {
+		pathChanges = null;
+	}
+
+	/**
+	 * Drops the differences in the obstacles found for the pathfinder, as the
+	 * sprites of the game have been replaced.
+	 */
+	final void resetPathChanges() {
+		pathChanges = null;
 	}
 
 	public HashMap<String, ParameterContent> getParameters() {
@@ -92,7 +92,8 @@ public class Observation implements Comparable<Observation>
      */
     @Override
     public int compareTo(Observation o) {
-        double oSqDist = o.position.sqDist(reference);
+        //Observations sorted together share the reference, and their distance to it.
+        double oSqDist = (o.reference == reference) ? o.sqDist : o.position.sqDist(reference);
         if(sqDist < oSqDist)        return -1;
         else if(sqDist > oSqDist)   return 1;
         return 0;
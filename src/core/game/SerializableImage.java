@@ -40,6 +40,44 @@ public class SerializableImage {
         return output.toByteArray();
     }
 
+    /**
+     * Encodes an image in the format given.
+     * @param image image to encode.
+     * @param format PNG, or raw pixels in row-major order with 3 bytes (RGB) or 1 byte (GRAY) per pixel.
+     *               Transparent pixels are encoded as black in the raw formats.
+     * @return the bytes of the encoded image.
+     */
+    public static byte[] imageToByteArray(BufferedImage image, Types.LEARNING_IMAGE_FORMAT format) throws IOException
+    {
+        if(format == Types.LEARNING_IMAGE_FORMAT.PNG)
+            return imageToByteArray(image);
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        boolean gray = (format == Types.LEARNING_IMAGE_FORMAT.GRAY);
+        byte[] bytes = new byte[pixels.length * (gray ? 1 : 3)];
+
+        for(int i = 0, j = 0; i < pixels.length; ++i)
+        {
+            int argb = pixels[i];
+            int alpha = (argb >>> 24);
+            int r = ((argb >> 16) & 0xff) * alpha / 255;
+            int g = ((argb >> 8) & 0xff) * alpha / 255;
+            int b = (argb & 0xff) * alpha / 255;
+            if(gray)
+            {
+                bytes[j++] = (byte) ((r * 299 + g * 587 + b * 114) / 1000);
+            }else
+            {
+                bytes[j++] = (byte) r;
+                bytes[j++] = (byte) g;
+                bytes[j++] = (byte) b;
+            }
+        }
+        return bytes;
+    }
+
 
     /***
      * This method serializes this class into a cohesive json object, using GSon,
@@ -4,15 +4,19 @@ import core.competition.CompetitionParameters;
 import tools.com.google.gson.Gson;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
+import tools.Vector2d;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created with IntelliJ IDEA.
@@ -28,6 +32,9 @@ public class SerializableStateObservation {
 
     // State Observation variables
     public byte[] imageArray;
+    public Types.LEARNING_IMAGE_FORMAT imageFormat;
+    public int imageWidth;
+    public int imageHeight;
     public boolean isValidation;
     public float gameScore;
     public int gameTick;
@@ -73,20 +80,33 @@ public class SerializableStateObservation {
     public int fromAvatarSpritesPositionsMaxRow;
 
     public SerializableStateObservation(StateObservation s, Boolean both){
+        this(s, both, null, Types.LEARNING_IMAGE_FORMAT.PNG);
+    }
+
+    /**
+     * Builds the observation with the image of the screen.
+     * @param s state to observe.
+     * @param both true to include the rest of the observation, not only the image and the game data.
+     * @param frame image of the screen, as rendered by the viewer. If null, the image is read
+     *              from CompetitionParameters.SCREENSHOT_FILENAME.
+     * @param format encoding of the image in imageArray.
+     */
+    public SerializableStateObservation(StateObservation s, Boolean both, BufferedImage frame,
+                                        Types.LEARNING_IMAGE_FORMAT format){
         try {
             if (!both) {
                 // Fill in the persistent variables (Score, tick)
                 buildGameData(s);
                 if(phase != Phase.START) {
                     // Create the image bytearray
-                    imageArray = imageToByteArray();
+                    imageArray = imageToByteArray(frame, format);
                 }
             } else {
                 // Fill in the persistent variables (Score, tick)
                 buildGameData(s);
                 if(phase != Phase.START) {
                     // Create the image bytearray
-                    imageArray = imageToByteArray();
+                    imageArray = imageToByteArray(frame, format);
                 }
                 // Fill in the simple data variables
                 buildDataVariables(s);
@@ -286,6 +306,23 @@ public class SerializableStateObservation {
 
 
 
+    /**
+     * Encodes the frame given into imageArray, in the format requested.
+     * @param frame image of the screen. If null, the image is read from CompetitionParameters.SCREENSHOT_FILENAME.
+     * @param format encoding of the image.
+     * @return the bytes of the image.
+     */
+    public byte[] imageToByteArray(BufferedImage frame, Types.LEARNING_IMAGE_FORMAT format) throws IOException {
+        if (frame == null)
+            frame = ImageIO.read(new File(CompetitionParameters.SCREENSHOT_FILENAME));
+
+        imageFormat = format;
+        imageWidth = frame.getWidth();
+        imageHeight = frame.getHeight();
+        imageArray = SerializableImage.imageToByteArray(frame, format);
+        return imageArray;
+    }
+
     public byte[] imageToByteArray() throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         File pngfile = new File(CompetitionParameters.SCREENSHOT_FILENAME);
@@ -301,6 +338,151 @@ public class SerializableStateObservation {
         return imageArray;
     }
 
+    /**
+     * Version of the binary encoding written by serializeBinary(). Clients must check it
+     * before decoding the rest of the message.
+     */
+    public static final int BINARY_VERSION = 1;
+
+    /**
+     * Serializes this class into a compact binary message, as an alternative to the JSON
+     * produced by serialize(). All values are big-endian, as written by DataOutputStream.
+     * Strings and enums are written with writeUTF (enums by name, "" for null). Arrays and
+     * lists are preceded by their length, which is -1 for null. Observations are written as
+     * category, itype, obsID, position, reference and sqDist, where each position is a
+     * presence byte followed by two doubles. The order of the fields is the one of this method.
+     * @return the bytes of the message.
+     */
+    public byte[] serializeBinary() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        writeBinaryHeader(out);
+
+        if (observationGrid == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(observationGrid.length);
+            for (Observation[][] column : observationGrid)
+                writeObservations(out, column);
+        }
+        writeObservations(out, NPCPositions);
+        writeObservations(out, immovablePositions);
+        writeObservations(out, movablePositions);
+        writeObservations(out, resourcesPositions);
+        writeObservations(out, portalsPositions);
+        writeObservations(out, fromAvatarSpritesPositions);
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the binary version and all fields of this observation except the observations of
+     * sprites, which serializeBinary() and DeltaObservationEncoder encode in different ways.
+     * @param out stream to write to.
+     */
+    void writeBinaryHeader(DataOutputStream out) throws IOException
+    {
+        out.writeInt(BINARY_VERSION);
+        writeEnum(out, phase);
+        out.writeBoolean(isValidation);
+        out.writeFloat(gameScore);
+        out.writeInt(gameTick);
+        writeEnum(out, gameWinner);
+        out.writeBoolean(isGameOver);
+        writeDoubles(out, worldDimension);
+        out.writeInt(blockSize);
+
+        out.writeInt(noOfPlayers);
+        out.writeFloat(avatarSpeed);
+        writeDoubles(out, avatarOrientation);
+        writeDoubles(out, avatarPosition);
+        writeEnum(out, avatarLastAction);
+        out.writeInt(avatarType);
+        out.writeInt(avatarHealthPoints);
+        out.writeInt(avatarMaxHealthPoints);
+        out.writeInt(avatarLimitHealthPoints);
+        out.writeBoolean(isAvatarAlive);
+
+        if (availableActions == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(availableActions.size());
+            for (Types.ACTIONS action : availableActions)
+                writeEnum(out, action);
+        }
+
+        if (avatarResources == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(avatarResources.size());
+            for (Map.Entry<Integer, Integer> resource : avatarResources.entrySet()) {
+                out.writeInt(resource.getKey());
+                out.writeInt(resource.getValue());
+            }
+        }
+
+        writeEnum(out, imageFormat);
+        out.writeInt(imageWidth);
+        out.writeInt(imageHeight);
+        if (imageArray == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(imageArray.length);
+            out.write(imageArray);
+        }
+    }
+
+    private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        out.writeUTF(value == null ? "" : value.name());
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.length);
+        for (double v : values)
+            out.writeDouble(v);
+    }
+
+    private static void writeVector(DataOutputStream out, Vector2d v) throws IOException {
+        out.writeBoolean(v != null);
+        if (v != null) {
+            out.writeDouble(v.x);
+            out.writeDouble(v.y);
+        }
+    }
+
+    private static void writeObservations(DataOutputStream out, Observation[][] observations) throws IOException {
+        if (observations == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(observations.length);
+        for (Observation[] row : observations) {
+            if (row == null) {
+                out.writeInt(-1);
+                continue;
+            }
+            out.writeInt(row.length);
+            for (Observation obs : row)
+                writeObservation(out, obs);
+        }
+    }
+
+    static void writeObservation(DataOutputStream out, Observation obs) throws IOException {
+        out.writeInt(obs.category);
+        out.writeInt(obs.itype);
+        out.writeInt(obs.obsID);
+        writeVector(out, obs.position);
+        writeVector(out, obs.reference);
+        out.writeDouble(obs.sqDist);
+    }
+
     /***
      * This method serializes this class into a cohesive json object, using GSon,
      * and optionally saves the converted object to a given file.
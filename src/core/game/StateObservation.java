@@ -57,6 +57,20 @@ public class StateObservation {
         return copyObs;
     }
 
+    /**
+     * Restores this state observation, in place, to an exact copy of the one passed.
+     * It gives the same result as other.copy(), but reuses the objects of this
+     * observation instead of allocating new ones, which makes it the cheaper choice
+     * for rollouts that keep going back to the same state. Any observations previously
+     * obtained from this object become invalid.
+     *
+     * @param other state observation to copy.
+     */
+    public void copyFrom(StateObservation other) {
+        this.playerID = other.playerID;
+        model.copyFrom(other.model);
+    }
+
     /**
      * Advances the state using the action passed as the move of the agent.
      * It updates all entities in the game. It modifies the object 'this' to
@@ -71,6 +85,34 @@ public class StateObservation {
         model.advance(action);
     }
 
+    /**
+     * Advances the state with a sequence of actions of the agent, one per game tick, until
+     * the sequence is over or the game ends. The sprites, score and winner reached are the same
+     * as calling advance() with each action, but the observations (positions, grid...) are only
+     * updated at the end, so it is cheaper for rollouts that don't look at them at every step.
+     * The order of the observations within a cell of the observation grid is undefined, and may
+     * differ from the order that calling advance() with each action would give.
+     *
+     * @param sequence agent actions to execute, one per cycle.
+     * @return the number of actions executed.
+     */
+    public int advanceSequence(Types.ACTIONS[] sequence) {
+        return model.advanceSequence(sequence, this, null);
+    }
+
+    /**
+     * Advances the state with a sequence of actions of the agent, as advanceSequence(sequence),
+     * calling a listener after each action is executed. The listener can read the score
+     * and the winner of the game at each step, and stop the sequence.
+     *
+     * @param sequence agent actions to execute, one per cycle.
+     * @param listener listener of the steps executed.
+     * @return the number of actions executed.
+     */
+    public int advanceSequence(Types.ACTIONS[] sequence, StepListener listener) {
+        return model.advanceSequence(sequence, this, listener);
+    }
+
     /**
      * Sets a new seed for the forward model's random generator (creates a new object)
      *
@@ -128,6 +170,28 @@ public class StateObservation {
         return model.getGameScore();
     }
 
+    /**
+     * Returns a 64-bit hash of the state of the game at this observation, for transposition
+     * tables and detection of duplicate states. Equivalent states (see equiv()) have the
+     * same hash; different states have different hashes with very high probability.
+     * The hash is computed the first time it is asked for after each advance.
+     * @return the hash of this state.
+     */
+    public long getStateHash()
+    {
+        return model.getStateHash();
+    }
+
+    /**
+     * Indicates if the game is stochastic. In games that are not, advancing equivalent
+     * states (see equiv()) with the same actions always leads to equivalent states.
+     * @return true if the game is stochastic.
+     */
+    public boolean isGameStochastic()
+    {
+        return model.isStochastic();
+    }
+
     /**
      * Returns the game tick of this particular observation.
      * @return the game tick.
@@ -221,6 +285,16 @@ public class StateObservation {
         return model.getAvatarResources();
     }
 
+    /**
+     * Returns the amount of a resource in the avatar's possession, or 0 if it has none.
+     * This is cheaper than getAvatarResources() when only some resources are checked.
+     * @param resourceId ID of the resource to check.
+     * @return amount of the resource owned by the avatar.
+     */
+    public int getAvatarResource(int resourceId) {
+        return model.getAvatarResource(resourceId);
+    }
+
     /**
      * Returns the avatar's last move. At the first game cycle, it returns ACTION_NIL.
      * Note that this may NOT be the same as the last action given by the agent, as it may
@@ -296,6 +370,19 @@ public class StateObservation {
          return model.getEventsHistory();
     }
 
+    /**
+     * This method retrieves the events (see getEventsHistory()) that happened from a
+     * game step on. It only visits those events, so agents that only look at the
+     * recent events of a long game can use it instead of getEventsHistory().
+     *
+     * @param fromStep first game step of the events returned.
+     * @return list of events triggered by the avatar or sprites it created from that step on.
+     */
+    public TreeSet<Event> getEventsHistory(int fromStep)
+    {
+         return model.getEventsHistory(fromStep);
+    }
+
     /**
      * Returns a list of observations of NPC in the game. As there can be
      * NPCs of different type, each entry in the array corresponds to a sprite type.
@@ -327,6 +414,20 @@ public class StateObservation {
         return model.getNPCPositions(reference);
     }
 
+    /**
+     * Returns, for each type of NPCs, the k observations of that type nearest
+     * to the reference passed, ordered asc. by distance to it. This is cheaper than sorting
+     * all observations when only the nearest ones are needed.
+     *
+     * @param reference   Reference position to measure distances from.
+     * @param k           Maximum number of observations of each sprite type.
+     * @return Nearest observations of NPCs in the game.
+     */
+    public ArrayList<Observation>[] getNPCPositions(Vector2d reference, int k)
+    {
+        return model.getNPCPositions(reference, k);
+    }
+
     /**
      * Returns a list of observations of immovable sprites in the game. As there can be
      * immovable sprites of different type, each entry in the array corresponds to a sprite type.
@@ -355,6 +456,19 @@ public class StateObservation {
         return model.getImmovablePositions(reference);
     }
 
+    /**
+     * Returns, for each type of immovable sprites, the k observations of that type nearest
+     * to the reference passed, ordered asc. by distance to it. This is cheaper than sorting
+     * all observations when only the nearest ones are needed.
+     *
+     * @param reference   Reference position to measure distances from.
+     * @param k           Maximum number of observations of each sprite type.
+     * @return Nearest observations of immovable sprites in the game.
+     */
+    public ArrayList<Observation>[] getImmovablePositions(Vector2d reference, int k) {
+        return model.getImmovablePositions(reference, k);
+    }
+
     /**
      * Returns a list of observations of sprites that move, but are NOT NPCs in the game.
      * As there can be movable sprites of different type, each entry in the array
@@ -383,6 +497,19 @@ public class StateObservation {
         return model.getMovablePositions(reference);
     }
 
+    /**
+     * Returns, for each type of movable (not NPCs) sprites, the k observations of that type nearest
+     * to the reference passed, ordered asc. by distance to it. This is cheaper than sorting
+     * all observations when only the nearest ones are needed.
+     *
+     * @param reference   Reference position to measure distances from.
+     * @param k           Maximum number of observations of each sprite type.
+     * @return Nearest observations of movable (not NPCs) sprites in the game.
+     */
+    public ArrayList<Observation>[] getMovablePositions(Vector2d reference, int k) {
+        return model.getMovablePositions(reference, k);
+    }
+
     /**
      * Returns a list of observations of resources in the game. As there can be
      * resources of different type, each entry in the array corresponds to a sprite type.
@@ -411,6 +538,19 @@ public class StateObservation {
         return model.getResourcesPositions(reference);
     }
 
+    /**
+     * Returns, for each type of resources, the k observations of that type nearest
+     * to the reference passed, ordered asc. by distance to it. This is cheaper than sorting
+     * all observations when only the nearest ones are needed.
+     *
+     * @param reference   Reference position to measure distances from.
+     * @param k           Maximum number of observations of each sprite type.
+     * @return Nearest observations of resources in the game.
+     */
+    public ArrayList<Observation>[] getResourcesPositions(Vector2d reference, int k) {
+        return model.getResourcesPositions(reference, k);
+    }
+
     /**
      * Returns a list of observations of portals in the game. As there can be
      * portals of different type, each entry in the array corresponds to a sprite type.
@@ -438,6 +578,19 @@ public class StateObservation {
         return model.getPortalsPositions(reference);
     }
 
+    /**
+     * Returns, for each type of portals, the k observations of that type nearest
+     * to the reference passed, ordered asc. by distance to it. This is cheaper than sorting
+     * all observations when only the nearest ones are needed.
+     *
+     * @param reference   Reference position to measure distances from.
+     * @param k           Maximum number of observations of each sprite type.
+     * @return Nearest observations of portals in the game.
+     */
+    public ArrayList<Observation>[] getPortalsPositions(Vector2d reference, int k) {
+        return model.getPortalsPositions(reference, k);
+    }
+
     /**
      * Returns a list of observations of sprites created by the avatar (usually, by applying the
      * action Types.ACTIONS.ACTION_USE). As there can be sprites of different type, each entry in
@@ -466,6 +619,19 @@ public class StateObservation {
         return model.getFromAvatarSpPositions(reference);
     }
 
+    /**
+     * Returns, for each type of sprites created by the avatar, the k observations of that type nearest
+     * to the reference passed, ordered asc. by distance to it. This is cheaper than sorting
+     * all observations when only the nearest ones are needed.
+     *
+     * @param reference   Reference position to measure distances from.
+     * @param k           Maximum number of observations of each sprite type.
+     * @return Nearest observations of sprites the avatar created.
+     */
+    public ArrayList<Observation>[] getFromAvatarSpritesPositions(Vector2d reference, int k) {
+        return model.getFromAvatarSpPositions(reference, k);
+    }
+
 
     /**
      * Returns key handler available to the player.
@@ -476,15 +642,19 @@ public class StateObservation {
 
 
     /**
-     * Compares if this and the received StateObservation state are equivalent.
-     * DEBUG ONLY METHOD.
+     * Compares if this and the received StateObservation state are equivalent: same sprites
+     * in the same states (regardless of their IDs), scores, counters and pending timers. The
+     * game tick is not compared. Observations of different games are never equivalent.
+     * The hashes of both states (see getStateHash()) are compared first, so this is
+     * cheap for states that are not the same.
      * @param o Object to compare this to.
      * @return true if o has the same components as this.
      */
     public boolean equiv(Object o)
     {
-        System.out.println("StateObservation.equiv() is a Deprecated Method. And it always returns False, now.");
-        return false;
+        if(!(o instanceof StateObservation))
+            return false;
+        return model.sameState(((StateObservation) o).model);
     }
 
 }
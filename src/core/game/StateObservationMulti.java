@@ -35,6 +35,35 @@ public class StateObservationMulti extends StateObservation {
         model.advance(actions);
     }
 
+    /**
+     * Method overloaded for multi player games. Advances the state with a sequence of actions
+     * of all players, one set of actions per game tick, until the sequence is over or the game
+     * ends. The sprites, scores and winners reached are the same as calling advance() with each
+     * set of actions, but the observations (positions, grid...) are only updated at the end.
+     * The order of the observations within a cell of the observation grid is undefined.
+     *
+     * @param sequence actions to execute: sequence[i] are the actions of all players in the
+     *                 cycle i, the index in sequence[i] corresponding to playerID.
+     * @return the number of cycles executed.
+     */
+    public int advanceSequence(Types.ACTIONS[][] sequence) {
+        return model.advanceSequence(sequence, this, null);
+    }
+
+    /**
+     * Method overloaded for multi player games. Advances the state with a sequence of actions
+     * of all players, as advanceSequence(sequence), calling a listener after each cycle. The
+     * listener can read the scores and the winners of the game at each step, and stop the
+     * sequence (when the game is over for one of the players, for example).
+     *
+     * @param sequence actions to execute, one set of actions per cycle.
+     * @param listener listener of the steps executed.
+     * @return the number of cycles executed.
+     */
+    public int advanceSequence(Types.ACTIONS[][] sequence, StepListener listener) {
+        return model.advanceSequence(sequence, this, listener);
+    }
+
     /**
      * Method overloaded for multi player games. Now passes the playerID.
      * Returns the actions that are available in this game for
@@ -129,6 +158,17 @@ public class StateObservationMulti extends StateObservation {
         return model.getAvatarResources(playerID);
     }
 
+    /**
+     * Method overloaded for multi player games. Now passes the player ID.
+     * Returns the amount of a resource in the avatar's possession, or 0 if it has none.
+     * @param playerID ID of the player to query.
+     * @param resourceId ID of the resource to check.
+     * @return amount of the resource owned by the avatar.
+     */
+    public int getAvatarResource(int playerID, int resourceId) {
+        return model.getAvatarResource(playerID, resourceId);
+    }
+
     /**
      * Method overloaded for multi player games. Now passes the player ID.
      * Returns the avatar's last move. At the first game cycle, it returns ACTION_NIL.
@@ -187,15 +227,4 @@ public class StateObservationMulti extends StateObservation {
         StateObservationMulti copyObs = new StateObservationMulti(model.copy(), this.playerID);
         return copyObs;
     }
-
-    /**
-     * Method overwritten with multi player optimisations.
-     * @param o Object to compare this to.
-     * @return true if o has the same components as this.
-     */
-    @Override
-    public boolean equiv(Object o) {
-        System.out.println("StateObservation.equiv() is a Deprecated Method. And it always returns False, now.");
-        return false;
-    }
 }
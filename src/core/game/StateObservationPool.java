@@ -0,0 +1,66 @@
+package core.game;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of state observations for agents that make many short-lived copies of a state,
+ * like rollouts in tree search. Copies taken from the pool are restored in place with
+ * StateObservation.copyFrom(), so once the pool is warm, copying a state allocates
+ * very little. Copies must be given back with release() when they are not needed anymore.
+ */
+public class StateObservationPool
+{
+    /**
+     * Copies that have been released and can be handed out again.
+     */
+    private ArrayDeque<StateObservation> free;
+
+    /**
+     * Creates an empty pool.
+     */
+    public StateObservationPool()
+    {
+        free = new ArrayDeque<StateObservation>();
+    }
+
+    /**
+     * Returns a copy of the state passed, reusing a released copy if there is one.
+     * @param so state to copy.
+     * @return a copy of so, equivalent to so.copy().
+     */
+    public StateObservation copy(StateObservation so)
+    {
+        StateObservation copy = free.pollLast();
+        if(copy == null || copy.getClass() != so.getClass())
+            return so.copy();
+
+        copy.copyFrom(so);
+        return copy;
+    }
+
+    /**
+     * Gives a copy back to the pool. The copy must not be used after this call.
+     * @param so copy to release.
+     */
+    public void release(StateObservation so)
+    {
+        free.addLast(so);
+    }
+
+    /**
+     * Number of copies available for reuse.
+     * @return the number of released copies in the pool.
+     */
+    public int size()
+    {
+        return free.size();
+    }
+
+    /**
+     * Drops all released copies, for example when the agent moves to a new game.
+     */
+    public void clear()
+    {
+        free.clear();
+    }
+}
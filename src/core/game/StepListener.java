@@ -0,0 +1,18 @@
+package core.game;
+
+/**
+ * Listener of the steps of a sequence of actions played with StateObservation.advanceSequence()
+ * (or StateObservationMulti.advanceSequence()).
+ */
+public interface StepListener
+{
+    /**
+     * Called after each step of the sequence is played. The observations of the state (positions,
+     * grid, events...) are only updated at the end of the sequence, but its score, winner, game
+     * tick and the resources of the avatars can be queried.
+     * @param step index of the step played in the sequence.
+     * @param state state after the step.
+     * @return false to stop the sequence after this step, true to keep playing it.
+     */
+    boolean stepPlayed(int step, StateObservation state);
+}
@@ -0,0 +1,177 @@
+package core.game;
+
+import ontology.effects.TimeEffect;
+import tools.StateHash;
+
+/**
+ * Queue of the time effects of a game, ordered by the game tick when they are executed next.
+ * Effects planned for the same tick are executed in reverse order of insertion.
+ * The queue keeps the tick of each effect, so the effects are not modified by it and they are
+ * shared between copies of the queue: copying a queue is just copying its arrays.
+ */
+public class TimeEffectQueue
+{
+    /**
+     * Effects in the queue and the tick when each one is executed, sorted from the last
+     * one to be executed to the first one, so the next effect is always at the end.
+     */
+    private TimeEffect[] effects;
+    private int[] ticks;
+
+    /**
+     * Number of effects in the queue.
+     */
+    private int size;
+
+    public TimeEffectQueue()
+    {
+        effects = new TimeEffect[8];
+        ticks = new int[8];
+    }
+
+    /**
+     * Adds an effect to the queue, to be executed at a given game tick.
+     * @param effect effect to add.
+     * @param tick game tick when the effect is executed.
+     */
+    public void add(TimeEffect effect, int tick)
+    {
+        if(size == effects.length)
+            grow(size + 1);
+
+        //Find the first effect that is executed before this one. This effect goes before it,
+        //after all the effects executed at the same tick (so it is the first of them to go).
+        int lo = 0, hi = size;
+        while(lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if(ticks[mid] < tick)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+
+        System.arraycopy(effects, lo, effects, lo + 1, size - lo);
+        System.arraycopy(ticks, lo, ticks, lo + 1, size - lo);
+        effects[lo] = effect;
+        ticks[lo] = tick;
+        size++;
+    }
+
+    /**
+     * Indicates if there is an effect to execute at or before a given game tick.
+     * @param tick current game tick.
+     * @return true if the next effect of the queue is due.
+     */
+    public boolean hasDue(int tick)
+    {
+        return size > 0 && ticks[size - 1] <= tick;
+    }
+
+    /**
+     * Removes the next effect to be executed from the queue and returns it.
+     * @return the next effect, or null if the queue is empty.
+     */
+    public TimeEffect poll()
+    {
+        if(size == 0)
+            return null;
+        TimeEffect effect = effects[--size];
+        effects[size] = null;
+        return effect;
+    }
+
+    /**
+     * Removes all effects from the queue.
+     */
+    public void clear()
+    {
+        for(int i = 0; i < size; ++i)
+            effects[i] = null;
+        size = 0;
+    }
+
+    /**
+     * Makes this queue hold the same effects as another one, at the same ticks.
+     * @param other queue to copy.
+     */
+    public void set(TimeEffectQueue other)
+    {
+        if(effects.length < other.size)
+            grow(other.size);
+        for(int i = other.size; i < size; ++i)
+            effects[i] = null;
+
+        System.arraycopy(other.effects, 0, effects, 0, other.size);
+        System.arraycopy(other.ticks, 0, ticks, 0, other.size);
+        size = other.size;
+    }
+
+    /**
+     * Returns the number of effects in the queue.
+     * @return the number of effects in the queue.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns a hash of the effects in the queue, in order, and of the number of ticks left
+     * until they are executed. Effects created separately (as those added by AddTimer) hash
+     * the same if they execute the same effect in the same way.
+     * @param gameTick current game tick.
+     * @return the hash of the queue.
+     */
+    public long stateHash(int gameTick)
+    {
+        long h = size;
+        for(int i = 0; i < size; ++i)
+        {
+            TimeEffect ef = effects[i];
+            h = StateHash.combine(h, System.identityHashCode(ef.delegate));
+            h = StateHash.combine(h, ef.itype);
+            h = StateHash.combine(h, ef.timer);
+            h = StateHash.combine(h, (ef.repeating ? 1 : 0) | (ef.enabled ? 2 : 0));
+            h = StateHash.combine(h, ticks[i] - gameTick);
+        }
+        return h;
+    }
+
+    /**
+     * Indicates if another queue has the same effects as this one, in the same order, and
+     * with the same number of ticks left until they are executed (see stateHash()).
+     * @param gameTick current game tick of the game of this queue.
+     * @param other queue to compare to.
+     * @param otherGameTick current game tick of the game of the other queue.
+     * @return true if both queues are in the same state.
+     */
+    public boolean sameState(int gameTick, TimeEffectQueue other, int otherGameTick)
+    {
+        if(other.size != size)
+            return false;
+        for(int i = 0; i < size; ++i)
+        {
+            TimeEffect ef = effects[i], otherEf = other.effects[i];
+            if(ticks[i] - gameTick != other.ticks[i] - otherGameTick) return false;
+            if(ef == otherEf) continue;
+            if(ef.delegate != otherEf.delegate) return false;
+            if(ef.itype != otherEf.itype) return false;
+            if(ef.timer != otherEf.timer) return false;
+            if(ef.repeating != otherEf.repeating) return false;
+            if(ef.enabled != otherEf.enabled) return false;
+        }
+        return true;
+    }
+
+    private void grow(int minCapacity)
+    {
+        int capacity = Math.max(minCapacity, effects.length * 2);
+        TimeEffect[] newEffects = new TimeEffect[capacity];
+        int[] newTicks = new int[capacity];
+        System.arraycopy(effects, 0, newEffects, 0, size);
+        System.arraycopy(ticks, 0, newTicks, 0, size);
+        effects = newEffects;
+        ticks = newTicks;
+    }
+}
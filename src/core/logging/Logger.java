@@ -4,7 +4,16 @@ import java.util.ArrayList;
 
 public class Logger {
 
-    private static final Logger instance = new Logger();
+    /**
+     * One logger per thread, so that games played at the same time in different
+     * threads don't mix their warnings.
+     */
+    private static final ThreadLocal<Logger> instance = new ThreadLocal<Logger>() {
+        @Override
+        protected Logger initialValue() {
+            return new Logger();
+        }
+    };
     private ArrayList<Message> messages;
 
     /**
@@ -21,12 +30,12 @@ public class Logger {
     }
 
     /**
-     * Returns the instance of the singleton Logger
+     * Returns the Logger of the current thread
      *
      * @return the instance
      */
     public static Logger getInstance() {
-        return instance;
+        return instance.get();
     }
 
     /**
@@ -62,12 +62,12 @@ public class MultiSpriteCounter extends Termination
         if(itype2 != -1) countAcum += game.getNumSprites(itype2) - game.getNumDisabledSprites(itype2);
         if(itype3 != -1) countAcum += game.getNumSprites(itype3) - game.getNumDisabledSprites(itype3);
 
-        if(countAcum == limit && canEnd) {
+        if(countAcum == limit && game.canEnd) {
             countScore(game);
             return true;
         }
 
-        if(min && countAcum > limit && canEnd) {
+        if(min && countAcum > limit && game.canEnd) {
             countScore(game);
             return true; //If the limit is a lower bound in what's required.
         }
@@ -66,10 +66,10 @@ public class StopCounter extends Termination
         if(itype3 != -1) countAcum += game.getNumSprites(itype3) - game.getNumDisabledSprites(itype3);
 
         if (min) {
-            canEnd = countAcum <= limit;
+            game.canEnd = countAcum <= limit;
         }
         else {
-            canEnd = countAcum != limit;
+            game.canEnd = countAcum != limit;
         }
 
         return false;
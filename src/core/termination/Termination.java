@@ -18,7 +18,6 @@ public abstract class Termination {
     public String win;
     public int limit;
     public boolean count_score = false;
-    public static boolean canEnd = true;
 
     public void parseParameters(TerminationContent content)
     {
@@ -0,0 +1,197 @@
+package core.vgdl;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+
+/**
+ * Uniform grid over the sprites of a game, used as the broad phase of collision detection.
+ * Cells are block_size pixels wide. Each sprite is registered in the cell that contains the
+ * top-left corner of its rectangle, and it is moved between cells by VGDLSprite.updateBucket()
+ * whenever its rectangle changes. Sprites are chained through VGDLSprite.gridNext, so keeping
+ * the grid up to date does not allocate.
+ */
+public class CollisionGrid
+{
+    /**
+     * Size of a cell, in pixels.
+     */
+    private int cellSize;
+
+    /**
+     * Number of columns and rows of the grid. Positions outside the screen are
+     * clamped to the border cells.
+     */
+    private int width, height;
+
+    /**
+     * First sprite of each cell, indexed by x + y * width.
+     */
+    private VGDLSprite[] cells;
+
+    /**
+     * Largest width and height of any sprite registered so far. Queries need to look this
+     * far up and left to find sprites that overlap the queried area from other cells.
+     */
+    private int maxWidth, maxHeight;
+
+    /**
+     * Creates an empty grid that covers the screen.
+     * @param screenSize dimensions of the screen, in pixels.
+     * @param cellSize size of each cell, in pixels.
+     */
+    public CollisionGrid(Dimension screenSize, int cellSize)
+    {
+        this.cellSize = Math.max(1, cellSize);
+        this.width = Math.max(1, (screenSize.width + this.cellSize - 1) / this.cellSize);
+        this.height = Math.max(1, (screenSize.height + this.cellSize - 1) / this.cellSize);
+        this.cells = new VGDLSprite[width * height];
+    }
+
+    /**
+     * Adds a sprite to the grid.
+     * @param sp sprite to add.
+     */
+    public void add(VGDLSprite sp)
+    {
+        if(sp.grid != null)
+            sp.grid.remove(sp);
+
+        sp.grid = this;
+        link(sp, cellOf(sp.rect));
+    }
+
+    /**
+     * Removes a sprite from the grid. Does nothing if the sprite is not in this grid.
+     * @param sp sprite to remove.
+     */
+    public void remove(VGDLSprite sp)
+    {
+        if(sp.grid != this)
+            return;
+
+        unlink(sp);
+        sp.grid = null;
+    }
+
+    /**
+     * Updates the cell of a sprite after its rectangle has changed.
+     * @param sp sprite that moved.
+     */
+    public void update(VGDLSprite sp)
+    {
+        int cell = cellOf(sp.rect);
+        if(cell != sp.gridCell)
+        {
+            unlink(sp);
+            link(sp, cell);
+        }else
+        {
+            maxWidth = Math.max(maxWidth, sp.rect.width);
+            maxHeight = Math.max(maxHeight, sp.rect.height);
+        }
+    }
+
+    /**
+     * Removes all sprites from the grid.
+     */
+    public void clear()
+    {
+        for(int i = 0; i < cells.length; ++i)
+        {
+            VGDLSprite sp = cells[i];
+            while(sp != null)
+            {
+                VGDLSprite next = sp.gridNext;
+                sp.grid = null;
+                sp.gridNext = null;
+                sp = next;
+            }
+            cells[i] = null;
+        }
+        maxWidth = maxHeight = 0;
+    }
+
+    /**
+     * Adds to 'result' all sprites of the grid that may intersect the area given. This is a
+     * superset of the sprites that actually intersect it, in no particular order. Each sprite
+     * is added at most once.
+     * @param area area to check.
+     * @param result list where the sprites found are added.
+     */
+    public void collect(Rectangle area, ArrayList<VGDLSprite> result)
+    {
+        if(area.width <= 0 || area.height <= 0)
+            return;
+
+        // Only sprites whose top-left corner lies in this range can overlap the area.
+        int minX = column(area.x - maxWidth + 1);
+        int maxX = column(area.x + area.width - 1);
+        int minY = row(area.y - maxHeight + 1);
+        int maxY = row(area.y + area.height - 1);
+
+        for(int y = minY; y <= maxY; ++y)
+        {
+            for(int x = minX; x <= maxX; ++x)
+            {
+                VGDLSprite sp = cells[x + y * width];
+                while(sp != null)
+                {
+                    result.add(sp);
+                    sp = sp.gridNext;
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts a sprite at the head of a cell.
+     * @param sp sprite to insert.
+     * @param cell index of the cell.
+     */
+    private void link(VGDLSprite sp, int cell)
+    {
+        sp.gridCell = cell;
+        sp.gridNext = cells[cell];
+        cells[cell] = sp;
+        maxWidth = Math.max(maxWidth, sp.rect.width);
+        maxHeight = Math.max(maxHeight, sp.rect.height);
+    }
+
+    /**
+     * Takes a sprite out of the cell it is registered in.
+     * @param sp sprite to take out.
+     */
+    private void unlink(VGDLSprite sp)
+    {
+        VGDLSprite prev = null;
+        VGDLSprite cur = cells[sp.gridCell];
+        while(cur != null && cur != sp)
+        {
+            prev = cur;
+            cur = cur.gridNext;
+        }
+
+        if(cur != null)
+        {
+            if(prev == null) cells[sp.gridCell] = sp.gridNext;
+            else prev.gridNext = sp.gridNext;
+        }
+        sp.gridNext = null;
+    }
+
+    private int cellOf(Rectangle r)
+    {
+        return column(r.x) + row(r.y) * width;
+    }
+
+    private int column(int px)
+    {
+        return Math.max(0, Math.min(width - 1, Math.floorDiv(px, cellSize)));
+    }
+
+    private int row(int py)
+    {
+        return Math.max(0, Math.min(height - 1, Math.floorDiv(py, cellSize)));
+    }
+}
@@ -0,0 +1,90 @@
+package core.vgdl;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Cache of the images used by sprites, shared by all games of the process. Images are
+ * keyed by their path (which already includes CompetitionParameters.IMG_PATH), and are
+ * decoded only the first time they are requested. Paths with no image are cached too, so
+ * looking for animation frames that do not exist doesn't touch the file system again.
+ * The cache keeps the most recently used MAX_ENTRIES paths. It can be used from several
+ * threads at the same time.
+ */
+public class ImageCache
+{
+    /**
+     * Maximum number of paths kept in the cache.
+     */
+    public static final int MAX_ENTRIES = 2048;
+
+    /**
+     * Value stored for paths that have no image.
+     */
+    private static final Image MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+    /**
+     * Images by path, in least recently used order.
+     */
+    private static final LinkedHashMap<String, Image> images = new LinkedHashMap<String, Image>(256, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns the image at the path given. The path is looked up in the file system first,
+     * and then as a resource of the class path.
+     * @param path path of the image file.
+     * @return the image, or null if there is no image at that path or it can't be read.
+     */
+    public static synchronized Image get(String path)
+    {
+        Image image = images.get(path);
+        if(image == null)
+        {
+            image = load(path);
+            images.put(path, (image != null) ? image : MISSING);
+            return image;
+        }
+        return (image == MISSING) ? null : image;
+    }
+
+    /**
+     * Removes all images from the cache, so they are read again the next time they are requested.
+     */
+    public static synchronized void clear()
+    {
+        images.clear();
+    }
+
+    /**
+     * Reads an image from the file system or, if there is no such file, from the class path.
+     * @param path path of the image file.
+     * @return the image read, or null if it could not be read.
+     */
+    private static Image load(String path)
+    {
+        try {
+            File file = new File(path);
+            if(file.exists())
+                return ImageIO.read(file);
+
+            URL resource = ImageCache.class.getResource("/" + path);
+            if(resource != null)
+                return ImageIO.read(resource);
+        } catch (Exception e) {
+            //Unreadable images are treated as missing.
+        }
+        return null;
+    }
+}
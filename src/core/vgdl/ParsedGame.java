@@ -0,0 +1,160 @@
+package core.vgdl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import core.content.SpriteContent;
+import core.game.Game;
+
+/**
+ * A game description parsed once, from which new games can be created without reading or
+ * parsing the VGDL file again. The sprite types of the description are registered in a
+ * registry of its own, shared by all the games created from it. The contents of the sprites,
+ * effects and terminations are shared too, and are not modified after parsing, so games
+ * can be created from the same description in different threads at the same time.
+ * VGDLFactory must be initialized before loading or creating games.
+ */
+public class ParsedGame
+{
+    /**
+     * Descriptions already parsed, by file name (see get()).
+     */
+    private static final ConcurrentHashMap<String, ParsedGame> cache =
+            new ConcurrentHashMap<String, ParsedGame>();
+
+    /**
+     * Lines of the VGDL description.
+     */
+    final String[] lines;
+
+    /**
+     * Root of the tree of the description, with the contents already parsed.
+     */
+    final Node rootNode;
+
+    /**
+     * Registry of the sprite types of the description.
+     */
+    final VGDLRegistry registry;
+
+    /**
+     * Sprite types as parsed from the sprite set: order to draw them, singleton types
+     * and contents by type (see Game.initSprites()).
+     */
+    final ArrayList<Integer> spriteOrder;
+    final ArrayList<Integer> singletons;
+    final HashMap<Integer, SpriteContent> constructors;
+
+    /**
+     * Time when the file of the description was last modified, when it was read.
+     */
+    private long lastModified;
+
+    ParsedGame(String[] lines, Node rootNode, VGDLRegistry registry, ArrayList<Integer> spriteOrder,
+                    ArrayList<Integer> singletons, HashMap<Integer, SpriteContent> constructors)
+    {
+        this.lines = lines;
+        this.rootNode = rootNode;
+        this.registry = registry;
+        this.spriteOrder = spriteOrder;
+        this.singletons = singletons;
+        this.constructors = constructors;
+    }
+
+    /**
+     * Parses a game description.
+     * @param gamedesc_file filename of the file containing the game.
+     * @return the description, or null if the file can't be read.
+     */
+    public static ParsedGame load(String gamedesc_file)
+    {
+        long lastModified = new File(gamedesc_file).lastModified();
+        ParsedGame description = new VGDLParser().parseReusableGame(gamedesc_file);
+        if(description != null)
+            description.lastModified = lastModified;
+        return description;
+    }
+
+    /**
+     * Returns the description of a game, parsing it only if it hasn't been parsed before
+     * or its file has been modified since.
+     * @param gamedesc_file filename of the file containing the game.
+     * @return the description, or null if the file can't be read.
+     */
+    public static ParsedGame get(String gamedesc_file)
+    {
+        ParsedGame description = cache.get(gamedesc_file);
+        if(description == null || description.lastModified != new File(gamedesc_file).lastModified())
+        {
+            description = load(gamedesc_file);
+            if(description != null)
+                cache.put(gamedesc_file, description);
+        }
+        return description;
+    }
+
+    /**
+     * Creates a new game from this description, with no level built.
+     * @return the game created.
+     */
+    public Game newGame()
+    {
+        VGDLRegistry previous = VGDLRegistry.SetInstance(registry);
+        try{
+            return new VGDLParser().createGame(this);
+        }finally
+        {
+            VGDLRegistry.SetInstance(previous);
+        }
+    }
+
+    /**
+     * Creates a new game from this description, and builds a level in it.
+     * @param level_file file containing the level.
+     * @param randomSeed seed for the random generator of the game.
+     * @return the game created.
+     */
+    public Game newGame(String level_file, int randomSeed)
+    {
+        Game game = newGame();
+        game.buildLevel(level_file, randomSeed);
+        return game;
+    }
+
+    /**
+     * Creates a new game from this description, and builds a level in it.
+     * @param level lines of the level.
+     * @param randomSeed seed for the random generator of the game.
+     * @return the game created.
+     */
+    public Game newGame(String[] level, int randomSeed)
+    {
+        Game game = newGame();
+        game.buildStringLevel(level, randomSeed);
+        return game;
+    }
+
+    /**
+     * Returns the registry of the sprite types of this description.
+     * @return the registry of this description.
+     */
+    public VGDLRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    /**
+     * Indicates if the description has a parameter set. Values of parameters are drawn
+     * when the description is parsed, so each game of these descriptions is parsed anew.
+     * @return true if the description has a parameter set.
+     */
+    boolean hasParameterSet()
+    {
+        for(Node n : rootNode.children)
+            if(n.content.identifier.equals("ParameterSet"))
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package core.vgdl;
+
+/**
+ * Sum of the position keys (see VGDLSprite.positionHash()) of the sprites of a game, the part
+ * of the state hash that is kept up to date as the game is played instead of computed again
+ * every time it is asked for. Sprites are added and removed with the game, and every change of
+ * their rectangles is passed on by VGDLSprite.updateBucket(), as for the collision grid. Keys
+ * are added up, Zobrist-style, so the sum doesn't depend on the order of the sprites.
+ */
+public class SpriteHashSum
+{
+    /**
+     * Sum of the keys of the sprites registered.
+     */
+    private long sum;
+
+    /**
+     * Adds a sprite to the sum.
+     * @param sp sprite to add.
+     */
+    public void add(VGDLSprite sp)
+    {
+        sp.hashSum = this;
+        sp.positionKey = sp.positionHash();
+        sum += sp.positionKey;
+    }
+
+    /**
+     * Removes a sprite from the sum. Does nothing if the sprite is not in this sum.
+     * @param sp sprite to remove.
+     */
+    public void remove(VGDLSprite sp)
+    {
+        if(sp.hashSum != this)
+            return;
+
+        sum -= sp.positionKey;
+        sp.hashSum = null;
+    }
+
+    /**
+     * Updates the key of a sprite after its rectangle has changed.
+     * @param sp sprite that moved.
+     */
+    void update(VGDLSprite sp)
+    {
+        long key = sp.positionHash();
+        sum += key - sp.positionKey;
+        sp.positionKey = key;
+    }
+
+    /**
+     * Removes all sprites from the sum. Sprites that are added again afterwards are registered
+     * again by add(); the rest must not be used by the game any more.
+     */
+    public void clear()
+    {
+        sum = 0;
+    }
+
+    /**
+     * Returns the sum of the keys of the sprites registered.
+     * @return the sum of the keys.
+     */
+    public long get()
+    {
+        return sum;
+    }
+}
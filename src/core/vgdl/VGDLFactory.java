@@ -4,6 +4,7 @@ import java.awt.Dimension;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import core.content.*;
 import core.game.BasicGame;
@@ -129,22 +130,58 @@ public class VGDLFactory
     /**
      * Cache for registered games.
      */
-    public static HashMap<String, Class> registeredGames;
+    public static volatile HashMap<String, Class> registeredGames;
 
     /**
      * Cache for registered sprites.
      */
-    public static HashMap<String, Class> registeredSprites;
+    public static volatile HashMap<String, Class> registeredSprites;
 
     /**
      * Cache for registered effects.
      */
-    public static HashMap<String, Class> registeredEffects;
+    public static volatile HashMap<String, Class> registeredEffects;
 
     /**
      * Cache for registered effects.
      */
-    public static HashMap<String, Class> registeredTerminations;
+    public static volatile HashMap<String, Class> registeredTerminations;
+
+    /**
+     * Constructors of the registered sprites, effects and terminations, by the same keys
+     * as the classes. They are looked up once in init(), instead of every time an object
+     * is created (sprites are created during the game by effects like Spawn or TransformTo).
+     */
+    private volatile HashMap<String, Constructor<?>> spriteConstructors;
+    private volatile HashMap<String, Constructor<?>> effectConstructors;
+    private volatile HashMap<String, Constructor<?>> terminationConstructors;
+
+    /**
+     * Public fields of each class that parameters are assigned to, by name.
+     */
+    private static final ClassValue<HashMap<String, Field>> fieldMaps = new ClassValue<HashMap<String, Field>>()
+    {
+        @Override
+        protected HashMap<String, Field> computeValue(Class<?> type)
+        {
+            HashMap<String, Field> fieldMap = new HashMap<String, Field>();
+            for (Field field : type.getFields())
+            {
+                String strField = field.toString();
+                int lastDot = strField.lastIndexOf(".");
+                String fieldName = strField.substring(lastDot + 1).trim();
+
+                fieldMap.put(fieldName, field);
+            }
+            return fieldMap;
+        }
+    };
+
+    /**
+     * Values parsed from the parameters, by parameter and value as "parameter=value". The
+     * same parameters are parsed every time a sprite of a type is created.
+     */
+    private final ConcurrentHashMap<String, Object> parsedValues = new ConcurrentHashMap<String, Object>();
 
     /**
      * Default private constructor of this singleton.
@@ -152,38 +189,70 @@ public class VGDLFactory
     private VGDLFactory(){}
 
     /**
-     * Initializes the maps for caching classes.
+     * Initializes the maps for caching classes. The maps are replaced, not modified,
+     * so that games being parsed in other threads keep a consistent view of them.
      */
     public void init()
     {
-        registeredGames = new HashMap<String, Class>();
-        registeredGames.put("BasicGame", BasicGame.class);
-        registeredGames.put("GameSpace", GameSpace.class);
+        HashMap<String, Class> games = new HashMap<String, Class>();
+        games.put("BasicGame", BasicGame.class);
+        games.put("GameSpace", GameSpace.class);
 
-        registeredSprites = new HashMap<String, Class>();
+        HashMap<String, Class> sprites = new HashMap<String, Class>();
         for(int i = 0;  i < spriteStrings.length; ++i)
         {
-            registeredSprites.put(spriteStrings[i], spriteClasses[i]);
+            sprites.put(spriteStrings[i], spriteClasses[i]);
         }
 
-        registeredEffects  = new HashMap<String, Class>();
+        HashMap<String, Class> effects = new HashMap<String, Class>();
         for(int i = 0;  i < effectStrings.length; ++i)
         {
-            registeredEffects.put(effectStrings[i], effectClasses[i]);
+            effects.put(effectStrings[i], effectClasses[i]);
         }
 
-        registeredTerminations = new HashMap<String, Class>();
+        HashMap<String, Class> terminations = new HashMap<String, Class>();
         for(int i = 0;  i < terminationStrings.length; ++i)
         {
-            registeredTerminations.put(terminationStrings[i], terminationClasses[i]);
+            terminations.put(terminationStrings[i], terminationClasses[i]);
+        }
+
+        registeredGames = games;
+        registeredSprites = sprites;
+        registeredEffects = effects;
+        registeredTerminations = terminations;
+
+        spriteConstructors = constructors(sprites, Vector2d.class, Dimension.class, SpriteContent.class);
+        effectConstructors = constructors(effects, InteractionContent.class);
+        terminationConstructors = constructors(terminations, TerminationContent.class);
+    }
+
+    /**
+     * Looks up the constructors of some classes.
+     * @param classes classes, by key.
+     * @param parameterTypes types of the parameters of the constructors.
+     * @return the constructors, by the same keys. Classes without such a constructor are left out.
+     */
+    @SuppressWarnings("unchecked")
+    private static HashMap<String, Constructor<?>> constructors(HashMap<String, Class> classes, Class<?>... parameterTypes)
+    {
+        HashMap<String, Constructor<?>> constructors = new HashMap<String, Constructor<?>>();
+        for (String key : classes.keySet())
+        {
+            try{
+                constructors.put(key, classes.get(key).getConstructor(parameterTypes));
+            }catch (NoSuchMethodException e)
+            {
+                //Reported when an object of the class is created.
+            }
         }
+        return constructors;
     }
 
     /**
      * Returns the unique instance of this class.
      * @return the factory that creates the game and the sprite objects.
      */
-    public static VGDLFactory GetInstance()
+    public static synchronized VGDLFactory GetInstance()
     {
         if(factory == null)
             factory = new VGDLFactory();
@@ -230,10 +299,12 @@ public class VGDLFactory
 
         decorateContent(game, content);
 
+        //Sprites resolve the types they refer to in the registry of their game.
+        VGDLRegistry previous = VGDLRegistry.SetInstance(game != null ? game.getRegistry() : VGDLRegistry.GetInstance());
         try{
-            Class spriteClass = registeredSprites.get(content.referenceClass);
-            Constructor spriteConstructor = spriteClass.getConstructor
-                    (new Class[] {Vector2d.class, Dimension.class, SpriteContent.class});
+            Constructor<?> spriteConstructor = spriteConstructors.get(content.referenceClass);
+            if(spriteConstructor == null && registeredSprites.get(content.referenceClass) != null)
+                throw new NoSuchMethodException(content.referenceClass);
             return (VGDLSprite) spriteConstructor.newInstance(new Object[]{position, dim, content});
 
         }catch (NoSuchMethodException e)
@@ -248,6 +319,10 @@ public class VGDLFactory
             e.printStackTrace();
             System.out.println("Error creating sprite " + content.identifier + " of class " + content.referenceClass);
         }
+        finally
+        {
+            VGDLRegistry.SetInstance(previous);
+        }
 
         return null;
     }
@@ -281,9 +356,9 @@ public class VGDLFactory
             decorateContent(game, content);
 
         try{
-            Class effectClass = registeredEffects.get(content.function);
-            Constructor effectConstructor = effectClass.getConstructor
-                    (new Class[] {InteractionContent.class});
+            Constructor<?> effectConstructor = effectConstructors.get(content.function);
+            if(effectConstructor == null)
+                throw new NoSuchMethodException(content.function);
             Effect ef = (Effect) effectConstructor.newInstance(new Object[]{content});
 
             if( content.object1.equalsIgnoreCase("TIME") ||
@@ -326,9 +401,9 @@ public class VGDLFactory
         decorateContent(game, content);
 
         try{
-            Class terminationClass = registeredTerminations.get(content.identifier);
-            Constructor terminationConstructor = terminationClass.getConstructor
-                    (new Class[] {TerminationContent.class});
+            Constructor<?> terminationConstructor = terminationConstructors.get(content.identifier);
+            if(terminationConstructor == null)
+                throw new NoSuchMethodException(content.identifier);
             Termination ter = (Termination) terminationConstructor.newInstance(new Object[]{content});
             return ter;
 
@@ -349,51 +424,16 @@ public class VGDLFactory
      */
     public void parseParameters(Content content, Object obj)
     {
-        //Get all fields from the class and store it as key->field
-        Field[] fields = obj.getClass().getFields();
-        HashMap<String, Field> fieldMap = new HashMap<String, Field>();
-        for (Field field : fields)
-        {
-            String strField = field.toString();
-            int lastDot = strField.lastIndexOf(".");
-            String fieldName = strField.substring(lastDot + 1).trim();
-
-            fieldMap.put(fieldName, field);
-        }
+        //All fields from the class, as key->field
+        HashMap<String, Field> fieldMap = fieldMaps.get(obj.getClass());
         Object objVal = null;
-        Field cfield = null;
         //Check all parameters from content
         for (String parameter : content.parameters.keySet())
         {
             String value = content.parameters.get(parameter);
             if (fieldMap.containsKey(parameter))
             {
-
-                try {
-                    cfield = Types.processField(value);
-                    objVal = cfield.get(null);
-                } catch (Exception e) {
-                    try {
-                        if (!parameter.equalsIgnoreCase("scoreChange") && !parameter.equalsIgnoreCase("scoreChangeIfKilled"))
-                            objVal = Integer.parseInt(value);
-                        else objVal = value;
-                    } catch (NumberFormatException e1) {
-                        try {
-                            objVal = Double.parseDouble(value);
-                        } catch (NumberFormatException e2) {
-                            try {
-                                if((value.equalsIgnoreCase("true") ||
-                                   value.equalsIgnoreCase("false") ) && !parameter.equalsIgnoreCase("win")
-                                        && !parameter.equalsIgnoreCase("hidden")  && !parameter.equalsIgnoreCase("invisible"))
-                                    objVal = Boolean.parseBoolean(value);
-                                else
-                                    objVal = value;
-                            } catch (NumberFormatException e3) {
-                                objVal = value;
-                            }
-                        }
-                    }
-                }
+                objVal = parseValue(parameter, value);
                 try {
                     fieldMap.get(parameter).set(obj, objVal);
                 } catch (IllegalAccessException e) {
@@ -425,6 +465,50 @@ public class VGDLFactory
 
     }
 
+    /**
+     * Parses the value of a parameter, or gets it from the values already parsed.
+     * @param parameter name of the parameter.
+     * @param value value of the parameter, as read.
+     * @return the value to assign to the field of the parameter.
+     */
+    private Object parseValue(String parameter, String value)
+    {
+        String key = parameter + "=" + value;
+        Object objVal = parsedValues.get(key);
+        if (objVal != null)
+            return objVal;
+
+        try {
+            Field cfield = Types.processField(value);
+            objVal = cfield.get(null);
+        } catch (Exception e) {
+            try {
+                if (!parameter.equalsIgnoreCase("scoreChange") && !parameter.equalsIgnoreCase("scoreChangeIfKilled"))
+                    objVal = Integer.parseInt(value);
+                else objVal = value;
+            } catch (NumberFormatException e1) {
+                try {
+                    objVal = Double.parseDouble(value);
+                } catch (NumberFormatException e2) {
+                    try {
+                        if((value.equalsIgnoreCase("true") ||
+                           value.equalsIgnoreCase("false") ) && !parameter.equalsIgnoreCase("win")
+                                && !parameter.equalsIgnoreCase("hidden")  && !parameter.equalsIgnoreCase("invisible"))
+                            objVal = Boolean.parseBoolean(value);
+                        else
+                            objVal = value;
+                    } catch (NumberFormatException e3) {
+                        objVal = value;
+                    }
+                }
+            }
+        }
+
+        if (objVal != null)
+            parsedValues.put(key, objVal);
+        return objVal;
+    }
+
     /**
      * Returns the value of an int field in the object specified
      * @param obj object that holds the field.
@@ -433,9 +517,7 @@ public class VGDLFactory
      */
     public int requestFieldValueInt(Object obj, String fieldName)
     {
-        //Get all fields from the class and store it as key->field
-        Field[] fields = obj.getClass().getFields();
-        for (Field field : fields)
+        for (Field field : fieldMaps.get(obj.getClass()).values())
         {
             String strField = field.getName();
             if(strField.equalsIgnoreCase(fieldName))
@@ -78,27 +78,83 @@ public class VGDLParser {
 	 */
 	public Game parseGame(String gamedesc_file) {
 		String[] desc_lines = new IO().readFile(gamedesc_file);
-		if (desc_lines != null) {
-			Node rootNode = indentTreeParser(desc_lines);
+		if (desc_lines != null)
+			parseGame(indentTreeParser(desc_lines), null);
 
-			// Parse here game and arguments of the first line
-			game = VGDLFactory.GetInstance().createGame((GameContent) rootNode.content);
-			game.initMulti();
+		return game;
+	}
 
-			// Parse the parameter nodes first, if any.
-			parseParameterNodes(rootNode);
+	/**
+	 * Parses a game whose file is passed by parameter, keeping what is needed
+	 * to create more games from it without parsing it again (see
+	 * ParsedGame). The sprite types of the game are registered in a
+	 * registry of its own, instead of the one of the current thread.
+	 *
+	 * @param gamedesc_file
+	 *            filename of the file containing the game
+	 * @return the parsed game description, or null if the file can't be read.
+	 */
+	public ParsedGame parseReusableGame(String gamedesc_file) {
+		String[] desc_lines = new IO().readFile(gamedesc_file);
+		if (desc_lines == null)
+			return null;
 
-			// Parse the nodes.
-			try {
-				parseNodes(rootNode);
-			} catch (Exception e) {
-			    logger.addMessage(new Message(Message.ERROR, "[PARSE ERROR] " + e.toString()));
-			}
+		VGDLRegistry registry = new VGDLRegistry();
+		registry.init();
+		VGDLRegistry previous = VGDLRegistry.SetInstance(registry);
+		try {
+			Node rootNode = indentTreeParser(desc_lines);
+			parseGame(rootNode, null);
+			return new ParsedGame(desc_lines, rootNode, registry, spriteOrderTmp, singletonTmp, constructors);
+		} finally {
+			VGDLRegistry.SetInstance(previous);
 		}
+	}
 
+	/**
+	 * Creates a game from a description already parsed. The sprite types and
+	 * the contents of the description are shared with the game, but effects
+	 * and terminations are created anew. The registry of the description must
+	 * be the one of the current thread.
+	 *
+	 * @param description
+	 *            the game description.
+	 * @return the game created
+	 */
+	Game createGame(ParsedGame description) {
+		if (description.hasParameterSet())
+			// Parameters are drawn when parsed, so these games are parsed every time.
+			parseGame(indentTreeParser(description.lines), null);
+		else
+			parseGame(description.rootNode, description);
 		return game;
 	}
 
+	/**
+	 * Creates the game of a tree of nodes.
+	 *
+	 * @param rootNode
+	 *            the root VGDL node.
+	 * @param description
+	 *            description the tree was already parsed for, or null if
+	 *            the sprite set has to be parsed.
+	 */
+	private void parseGame(Node rootNode, ParsedGame description) {
+		// Parse here game and arguments of the first line
+		game = VGDLFactory.GetInstance().createGame((GameContent) rootNode.content);
+		game.initMulti();
+
+		// Parse the parameter nodes first, if any.
+		parseParameterNodes(rootNode);
+
+		// Parse the nodes.
+		try {
+			parseNodes(rootNode, description);
+		} catch (Exception e) {
+		    logger.addMessage(new Message(Message.ERROR, "[PARSE ERROR] " + e.toString()));
+		}
+	}
+
 	/**
 	 * Parses a game passed whose file is passed by parameter.
 	 *
@@ -118,7 +174,7 @@ public class VGDLParser {
 
 			// Parse the normal nodes, but not the parameters.
 			try {
-				parseNodes(rootNode);
+				parseNodes(rootNode, null);
 			} catch (Exception e) {
 			    logger.addMessage(new Message(Message.ERROR, "[PARSE ERROR] " + e.toString()));
 			}
@@ -173,12 +229,18 @@ public class VGDLParser {
 	 *
 	 * @param rootNode
 	 *            the root VGDL node.
+	 * @param description
+	 *            description the tree was already parsed for, whose sprite
+	 *            types are taken instead of parsing the sprite set, or null.
 	 */
-	private void parseNodes(Node rootNode) throws Exception {
+	private void parseNodes(Node rootNode, ParsedGame description) throws Exception {
 		// Parse here the normal blocks of VGDL.
 		for (Node n : rootNode.children) {
 			if (n.content.identifier.equals("SpriteSet")) {
-				parseSpriteSet(n.children);
+				if (description == null)
+					parseSpriteSet(n.children);
+				else
+					game.initSprites(description.spriteOrder, description.singletons, description.constructors);
 			} else if (n.content.identifier.equals("InteractionSet")) {
 				parseInteractionSet(n.children);
 			} else if (n.content.identifier.equals("LevelMapping")) {
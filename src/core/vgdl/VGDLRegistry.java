@@ -14,9 +14,20 @@ import java.util.TreeMap;
 public class VGDLRegistry
 {
     /**
-     * Singleton instance of this class.
+     * Registry of each thread. Each game keeps the registry of the thread that parsed it
+     * (see Game.getRegistry()), so games of different descriptions can be parsed and
+     * played at the same time in different threads.
      */
-    private static VGDLRegistry registry;
+    private static final ThreadLocal<VGDLRegistry> registry = new ThreadLocal<VGDLRegistry>()
+    {
+        @Override
+        protected VGDLRegistry initialValue()
+        {
+            VGDLRegistry r = new VGDLRegistry();
+            r.init();
+            return r;
+        }
+    };
 
     /**
      * Maps strings to int. Strings are VGDL identifiers for SPRITE TYPES,
@@ -25,9 +36,10 @@ public class VGDLRegistry
     private TreeMap<String, Integer> sprite_mapping;
 
     /**
-     * Private constructor.
+     * Constructor. Registries are created for each thread, or for each game description
+     * (see ParsedGame).
      */
-    private VGDLRegistry(){}
+    VGDLRegistry(){}
 
     /**
      * Initializes the registry of sprites for games.
@@ -38,17 +50,25 @@ public class VGDLRegistry
     }
 
     /**
-     * Returns the unique instance of this class.
-     * @return the unique instance of this class.
+     * Returns the registry of the current thread.
+     * @return the registry of the current thread.
      */
     public static VGDLRegistry GetInstance()
     {
-        if(registry == null)
-        {
-            registry = new VGDLRegistry();
-            registry.init();
-        }
-        return registry;
+        return registry.get();
+    }
+
+    /**
+     * Sets the registry of the current thread, for example to create sprites of a game
+     * parsed in another thread.
+     * @param r registry to use in the current thread.
+     * @return the registry the current thread used until now.
+     */
+    public static VGDLRegistry SetInstance(VGDLRegistry r)
+    {
+        VGDLRegistry previous = registry.get();
+        registry.set(r);
+        return previous;
     }
 
     /**
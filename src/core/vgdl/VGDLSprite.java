@@ -7,16 +7,10 @@ import java.awt.Image;
 import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
-import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Random;
-import java.util.Set;
-import java.util.TreeMap;
-
-import javax.imageio.ImageIO;
 
 import core.competition.CompetitionParameters;
 import core.content.SpriteContent;
@@ -26,6 +20,7 @@ import ontology.physics.ContinuousPhysics;
 import ontology.physics.GridPhysics;
 import ontology.physics.Physics;
 import tools.Direction;
+import tools.StateHash;
 import tools.Utils;
 import tools.Vector2d;
 
@@ -207,16 +202,34 @@ public abstract class VGDLSprite {
      */
     private boolean disabled;
 
+    /**
+     * If true, this sprite has been killed in the current game step, and it is waiting
+     * in the kill list of the game to be removed. Not copied, a copy is never killed.
+     */
+    private boolean killed;
+
     /**
      * List of types this sprite belongs to. It contains the ids, including itself's, from this sprite up
-     * in the hierarchy of sprites defined in SpriteSet in the game definition.
+     * in the hierarchy of sprites defined in SpriteSet in the game definition. The array is shared by
+     * all the sprites of the same type, so it must not be modified.
      */
-    public ArrayList<Integer> itypes;
+    public int[] itypes;
 
     /**
-     * Indicates the amount of resources this sprite has, for each type defined as its int identifier.
+     * Resources this sprite has: the int identifiers of their types, in ascending order, and the
+     * amount of each one. Types stay in the list when their amount goes down to 0. Copies of a
+     * sprite share these arrays until one of them changes them, so they must only be modified
+     * through setResource() (or the methods that call it).
      */
-    public TreeMap<Integer, Integer> resources;
+    private int[] resourceIds;
+    private int[] resourceAmounts;
+
+    /**
+     * True if the resource amounts may be shared with other copies of this sprite.
+     */
+    private boolean sharedResources;
+
+    private static final int[] NO_RESOURCES = new int[0];
 
     /**
      * All images in case there's orientation changes and/or animations.
@@ -263,6 +276,37 @@ public abstract class VGDLSprite {
      */
     public boolean bucketSharp;
 
+    /**
+     * Collision grid this sprite is registered in, if any.
+     */
+    CollisionGrid grid;
+
+    /**
+     * Cell of the collision grid this sprite is registered in.
+     */
+    int gridCell;
+
+    /**
+     * Next sprite registered in the same cell of the collision grid.
+     */
+    VGDLSprite gridNext;
+
+    /**
+     * Sum of position keys this sprite is registered in, if any.
+     */
+    SpriteHashSum hashSum;
+
+    /**
+     * Position key of this sprite (see positionHash()) as added to hashSum.
+     */
+    long positionKey;
+
+    /**
+     * Game whose pathfinder takes this sprite as an obstacle, if any. It is told when
+     * the sprite moves (see Game.obstacleMoved()).
+     */
+    public Game pathGame;
+
     /**
      * Indicates if the sprite is able to rotate in place.
      */
@@ -333,6 +377,11 @@ public abstract class VGDLSprite {
      */
     public double max_speed;
 
+    /**
+     * Distance, in pixels, below a sprite that is checked to determine if it is on ground.
+     */
+    public static final int GROUND_CHECK_OFFSET = 3;
+
     /**
      * Initializes the sprite, giving its position and dimensions.
      * @param position position of the sprite
@@ -372,8 +421,9 @@ public abstract class VGDLSprite {
         isFirstTick = true;
         disabled = false;
         limitHealthPoints = 1000;
-        resources = new TreeMap<Integer, Integer>();
-        itypes = new ArrayList<Integer>();
+        resourceIds = NO_RESOURCES;
+        resourceAmounts = NO_RESOURCES;
+        itypes = NO_RESOURCES;
         rotation = 0.0;
         max_speed = -1.0;
         images = new HashMap<String,ArrayList<Image>>();
@@ -393,8 +443,7 @@ public abstract class VGDLSprite {
     public void setRect(Rectangle rectangle)
     {
         rect = new Rectangle(rectangle);
-        bucket = rect.y / rect.height;
-        bucketSharp = (rect.y % rect.height) == 0;
+        updateBucket();
     }
 
     /**
@@ -481,6 +530,21 @@ public abstract class VGDLSprite {
      */
     public boolean is_disabled() { return disabled; }
 
+    /**
+     * Set the killed flag of this sprite. Only the game sets this, when the sprite
+     * enters or leaves its kill list.
+     * @param is_killed - killed state
+     */
+    public void setKilled(boolean is_killed) {
+        killed = is_killed;
+    }
+
+    /**
+     * Check if this sprite has been killed in the current game step.
+     * @return true if killed, false otherwise.
+     */
+    public boolean is_killed() { return killed; }
+
     /**
      * Prepares the sprite for movement.
      */
@@ -575,10 +639,22 @@ public abstract class VGDLSprite {
         return true;
     }
 
+    /**
+     * Updates the bucket of this sprite. Must be called every time the rectangle of
+     * this sprite changes, so it is kept in the right cell of the collision grid, its
+     * position key is updated in the sum of the state hash and, for obstacles, the
+     * pathfinder of the game looks at the obstacles again.
+     */
     public void updateBucket()
     {
         bucket = rect.y / rect.height;
         bucketSharp = (rect.y % rect.height) == 0;
+        if(grid != null)
+            grid.update(this);
+        if(hashSum != null)
+            hashSum.update(this);
+        if(pathGame != null)
+            pathGame.obstacleMoved();
     }
 
     /**
@@ -642,14 +718,14 @@ public abstract class VGDLSprite {
     {
         int prev = getAmountResource(resourceId);
         int next = Math.max(0,prev + amount_delta);
-        resources.put(resourceId, next);
+        setResource(resourceId, next);
     }
 
     public void subtractResource(int resourceId, int amount_delta)
     {
         int prev = getAmountResource(resourceId);
         int next = Math.max(0,prev - amount_delta);
-        resources.put(resourceId, next);
+        setResource(resourceId, next);
     }
 
     /**
@@ -657,7 +733,43 @@ public abstract class VGDLSprite {
      * @param resourceId - id of the resource whose quantity must be changed.
      */
     public void removeResource(int resourceId) {
-        resources.put(resourceId, 0);
+        setResource(resourceId, 0);
+    }
+
+    /**
+     * Sets the amount of resource of a given type this sprite has. If the resources
+     * are shared with a copy of this sprite, they are copied first.
+     * @param resourceId id of the resource whose quantity must be set.
+     * @param amount new amount of this resource.
+     */
+    public void setResource(int resourceId, int amount)
+    {
+        int idx = Arrays.binarySearch(resourceIds, resourceId);
+        if(idx >= 0)
+        {
+            if(sharedResources)
+            {
+                resourceAmounts = resourceAmounts.clone();
+                sharedResources = false;
+            }
+            resourceAmounts[idx] = amount;
+            return;
+        }
+
+        //A new type of resource: both arrays are replaced, so they're not shared anymore.
+        idx = -idx - 1;
+        int numResources = resourceIds.length;
+        int[] ids = new int[numResources + 1];
+        int[] amounts = new int[numResources + 1];
+        System.arraycopy(resourceIds, 0, ids, 0, idx);
+        System.arraycopy(resourceAmounts, 0, amounts, 0, idx);
+        ids[idx] = resourceId;
+        amounts[idx] = amount;
+        System.arraycopy(resourceIds, idx, ids, idx + 1, numResources - idx);
+        System.arraycopy(resourceAmounts, idx, amounts, idx + 1, numResources - idx);
+        resourceIds = ids;
+        resourceAmounts = amounts;
+        sharedResources = false;
     }
 
     /**
@@ -667,11 +779,49 @@ public abstract class VGDLSprite {
      */
     public int getAmountResource(int resourceId)
     {
-        int prev = 0;
-        if(resources.containsKey(resourceId))
-            prev = resources.get(resourceId);
+        int idx = Arrays.binarySearch(resourceIds, resourceId);
+        return (idx >= 0) ? resourceAmounts[idx] : 0;
+    }
+
+    /**
+     * Indicates if this sprite has ever had resources of a given type (even if it
+     * has none now).
+     * @param resourceId id of the resource to check.
+     * @return true if the type of resource is in the resources of this sprite.
+     */
+    public boolean hasResource(int resourceId)
+    {
+        return Arrays.binarySearch(resourceIds, resourceId) >= 0;
+    }
+
+    /**
+     * Returns the number of types of resources this sprite has (see hasResource()).
+     * @return the number of types of resources.
+     */
+    public int getNumResourceTypes()
+    {
+        return resourceIds.length;
+    }
 
-        return prev;
+    /**
+     * Returns the id of one of the types of resources this sprite has. Types are
+     * indexed in ascending order of their ids.
+     * @param index index of the type, from 0 to getNumResourceTypes() - 1.
+     * @return the id of the resource.
+     */
+    public int getResourceId(int index)
+    {
+        return resourceIds[index];
+    }
+
+    /**
+     * Returns the amount of one of the types of resources this sprite has.
+     * @param index index of the type, from 0 to getNumResourceTypes() - 1.
+     * @return how much of this resource this sprite has.
+     */
+    public int getResourceAmount(int index)
+    {
+        return resourceAmounts[index];
     }
 
     /**
@@ -717,7 +867,7 @@ public abstract class VGDLSprite {
 	            else
 	                _draw(gphx, game, r);
 	
-	            if(resources.size() > 0)
+	            if(resourceIds.length > 0)
 	            {
 	                _drawResources(gphx, game, r);
 	            }
@@ -730,7 +880,7 @@ public abstract class VGDLSprite {
 
             else{
                 _drawOriented(gphx, r);
-	            if(resources.size() > 0)
+	            if(resourceIds.length > 0)
 	            {
 	                _drawResources(gphx, game, r);
 	            }
@@ -759,7 +909,7 @@ public abstract class VGDLSprite {
         {
             //No need to keep checking. Actually, we shouldn't (we won't intersect with all sprites!).
             Rectangle test_rect = new Rectangle(this.rect);
-            test_rect.setLocation(this.rect.x,this.rect.y+3);
+            test_rect.setLocation(this.rect.x,this.rect.y+GROUND_CHECK_OFFSET);
 
             this.on_ground = test_rect.intersects(sp.rect) && otherHigher && goingDown;
         }
@@ -879,15 +1029,14 @@ public abstract class VGDLSprite {
      */
     protected void _drawResources(Graphics2D gphx, Game game, Rectangle r)
     {
-        int numResources = resources.size();
+        int numResources = resourceIds.length;
         double barheight = r.getHeight() / 3.5f / numResources;
         double offset = r.getMinY() + 2*r.height / 3.0f;
 
-        Set<Map.Entry<Integer, Integer>> entries = resources.entrySet();
-        for(Map.Entry<Integer, Integer> entry : entries)
+        for(int i = 0; i < numResources; ++i)
         {
-            int resType = entry.getKey();
-            int resValue = entry.getValue();
+            int resType = resourceIds[i];
+            int resValue = resourceAmounts[i];
 
             if(resType > -1) {
                 double wiggle = r.width / 10.0f;
@@ -949,7 +1098,7 @@ public abstract class VGDLSprite {
      */
     public int getType()
     {
-        return itypes.get(itypes.size()-1);
+        return itypes[itypes.length-1];
     }
 
     /**
@@ -1058,41 +1207,23 @@ public abstract class VGDLSprite {
 
     private Image getImage(String image_file)
     {
-        try {
-
-            if((new File(image_file).exists())) {
-                return ImageIO.read(new File(image_file));
-            }
-
-            return ImageIO.read(this.getClass().getResource("/" + image_file));
-        } catch (IOException e) {
-            //e.printStackTrace();
-        } catch (Exception e) {
-            //e.printStackTrace();
-        }
-        return null;
+        return ImageCache.get(image_file);
     }
 
 
     private ArrayList<Image> getAnimatedImages(String imagePath)
     {
         ArrayList<Image> theImages = new ArrayList<>();
-        try{
-            boolean noMoreFiles = false;
-            int i = 0;
-
-            do{
-                String currentFile = imagePath + i + ".png";
-                if((new File(currentFile).exists())) {
-                    theImages.add(ImageIO.read(new File(currentFile)));
-                }
-                else {
-                    noMoreFiles = true;
-                }
-                i += 1;
-            }while(!noMoreFiles);
+        Image frame;
+        int i = 0;
+        while((frame = ImageCache.get(imagePath + i + ".png")) != null)
+        {
+            theImages.add(frame);
+            i += 1;
+        }
+
+        if(theImages.size() > 0)
             image = theImages.get(0); //Default.
-        }catch(Exception e) {}
         return theImages;
     }
 
@@ -1122,7 +1253,9 @@ public abstract class VGDLSprite {
     public abstract VGDLSprite copy();
 
     /**
-     * Copies the attributes of this object to the one passed as parameter.
+     * Copies the attributes of this object to the one passed as parameter. Immutable
+     * members (orientation, last rectangle, types) are shared with the copy, and so
+     * are the resources until one of the sprites modifies them.
      * @param toSprite the sprite to copy to.
      */
     public void copyTo(VGDLSprite toSprite)
@@ -1144,9 +1277,12 @@ public abstract class VGDLSprite {
         toSprite.physics = this.physics; //Object reference, but should be ok.
         toSprite.shrinkfactor = this.shrinkfactor;
         toSprite.is_oriented = this.is_oriented;
-        toSprite.orientation = new Direction(orientation.x(), orientation.y());
-        toSprite.rect = new Rectangle(this.rect.x, this.rect.y, this.rect.width, this.rect.height);
-        toSprite.lastrect =  new Rectangle(this.lastrect.x, this.lastrect.y, this.lastrect.width, this.lastrect.height);
+        toSprite.orientation = this.orientation; //Directions are immutable.
+        if(toSprite.rect != null)
+            toSprite.rect.setBounds(this.rect); //Sprites never share their rect.
+        else
+            toSprite.rect = new Rectangle(this.rect.x, this.rect.y, this.rect.width, this.rect.height);
+        toSprite.lastrect = this.lastrect; //Never modified in place, only replaced.
         toSprite.lastmove = this.lastmove;
         toSprite.jump_strength = this.jump_strength;
         toSprite.singleton = this.singleton;
@@ -1183,16 +1319,14 @@ public abstract class VGDLSprite {
         toSprite.img = this.img;
         toSprite.orientedImg = this.orientedImg;
 
-        toSprite.itypes = new ArrayList<Integer>();
-        for(Integer it : this.itypes)
-            toSprite.itypes.add(it);
+        //The types of a sprite don't change once it is created, so the list can be shared.
+        toSprite.itypes = this.itypes;
 
-        toSprite.resources = new TreeMap<Integer, Integer>();
-        Set<Map.Entry<Integer, Integer>> entries = this.resources.entrySet();
-        for(Map.Entry<Integer, Integer> entry : entries)
-        {
-            toSprite.resources.put(entry.getKey(), entry.getValue());
-        }
+        //Resources are shared until one of both sprites modifies them (see setResource()).
+        toSprite.resourceIds = this.resourceIds;
+        toSprite.resourceAmounts = this.resourceAmounts;
+        toSprite.sharedResources = true;
+        this.sharedResources = true;
 
     }
 
@@ -1241,10 +1375,89 @@ public abstract class VGDLSprite {
         if(other.maxHealthPoints != this.maxHealthPoints) return false;
         if(other.limitHealthPoints != this.limitHealthPoints) return false;
 
-        int numTypes = other.itypes.size();
-        if(numTypes != this.itypes.size()) return false;
-        for(int i = 0; i < numTypes; ++i)
-            if(other.itypes.get(i) != this.itypes.get(i)) return false;
+        if(!Arrays.equals(other.itypes, this.itypes)) return false;
+
+        return true;
+    }
+
+    /**
+     * Returns a hash of the type and the rectangle of this sprite. The game keeps the sum of
+     * these keys up to date as sprites are created, destroyed and moved (see SpriteHashSum).
+     * @return the hash of the type and position of this sprite.
+     */
+    public long positionHash()
+    {
+        long h = StateHash.combine(getType(), ((long) rect.x << 32) | (rect.y & 0xFFFFFFFFL));
+        return StateHash.combine(h, ((long) rect.width << 32) | (rect.height & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Returns a hash of the rest of the state of this sprite that changes while a game is played
+     * (see positionHash() for the type and position): orientation, speed, health, resources and
+     * timers. The sprite ID is not part of it, so sprites of the same type in the same state have
+     * the same hashes. Subclasses with state of their own add it to the hash, and compare it in
+     * sameState(). As it is computed again every time the hash of the game state is asked for,
+     * sprites with none of these values set (walls, for instance) take a shortcut.
+     * @return the hash of the state of this sprite, apart from its type and position.
+     */
+    public long stateHash()
+    {
+        int flags = (disabled ? 1 : 0) | (isFirstTick ? 2 : 0) | (on_ground ? 4 : 0);
+        int wait = Math.min(lastmove, cooldown); //Only matters until it reaches the cooldown.
+        if(speed == 0 && healthPoints == 0 && maxHealthPoints == 0 && timeToLive == -1
+                && orientation.x() == 0 && orientation.y() == 0 && !hasResources())
+            return StateHash.mix(((long) wait << 3) | flags);
+
+        long h = StateHash.combine(flags, orientation);
+        h = StateHash.combine(h, speed);
+        h = StateHash.combine(h, ((long) wait << 32) | (timeToLive & 0xFFFFFFFFL));
+        h = StateHash.combine(h, ((long) healthPoints << 32) | (maxHealthPoints & 0xFFFFFFFFL));
+        for(int i = 0; i < resourceIds.length; ++i)
+        {
+            if(resourceAmounts[i] != 0)
+                h = StateHash.combine(h, ((long) resourceIds[i] << 32) | (resourceAmounts[i] & 0xFFFFFFFFL));
+        }
+        return h;
+    }
+
+    /**
+     * Indicates if this sprite has any resource with an amount other than 0.
+     * @return true if the sprite has resources.
+     */
+    private boolean hasResources()
+    {
+        for(int i = 0; i < resourceAmounts.length; ++i)
+            if(resourceAmounts[i] != 0) return true;
+        return false;
+    }
+
+    /**
+     * Indicates if another sprite is in the same state as this one, comparing what positionHash()
+     * and stateHash() take into account. Sprites of different classes are never in the same state.
+     * @param other sprite to compare to.
+     * @return true if both sprites are in the same state.
+     */
+    public boolean sameState(VGDLSprite other)
+    {
+        if(other == this) return true;
+        if(other.getClass() != this.getClass()) return false;
+        if(other.getType() != this.getType()) return false;
+        if(!other.rect.equals(this.rect)) return false;
+        if(!other.orientation.equals(this.orientation)) return false;
+        if(other.speed != this.speed) return false;
+        if(Math.min(other.lastmove, other.cooldown) != Math.min(this.lastmove, this.cooldown)) return false;
+        if(other.healthPoints != this.healthPoints) return false;
+        if(other.maxHealthPoints != this.maxHealthPoints) return false;
+        if(other.timeToLive != this.timeToLive) return false;
+        if(other.disabled != this.disabled) return false;
+        if(other.isFirstTick != this.isFirstTick) return false;
+        if(other.on_ground != this.on_ground) return false;
+
+        //Resources with an amount of 0 are the same as no resources.
+        for(int i = 0; i < resourceIds.length; ++i)
+            if(other.getAmountResource(resourceIds[i]) != resourceAmounts[i]) return false;
+        for(int i = 0; i < other.resourceIds.length; ++i)
+            if(this.getAmountResource(other.resourceIds[i]) != other.resourceAmounts[i]) return false;
 
         return true;
     }
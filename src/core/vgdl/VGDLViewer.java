@@ -1,6 +1,5 @@
 package core.vgdl;
 
-import core.competition.CompetitionParameters;
 import core.game.Game;
 import core.player.LearningPlayer;
 import core.player.Player;
@@ -45,6 +44,12 @@ public class VGDLViewer extends JComponent
 
     public boolean justImage = false;
 
+    /**
+     * Off-screen image the game is rendered into for learning players that observe the screen.
+     * It is reused for every frame.
+     */
+    private BufferedImage frame;
+
     /**
      * Creates the viewer for the game.
      * @param game game to be displayed
@@ -59,7 +64,7 @@ public class VGDLViewer extends JComponent
             Types.LEARNING_SSO_TYPE ssoType = learningPlayer.getLearningSsoType();
             if (ssoType == Types.LEARNING_SSO_TYPE.IMAGE ||
                 ssoType == Types.LEARNING_SSO_TYPE.BOTH) {
-                saveImage(CompetitionParameters.SCREENSHOT_FILENAME);
+                learningPlayer.setFrame(captureFrame());
             }
         }
     }
@@ -120,7 +125,7 @@ public class VGDLViewer extends JComponent
 
             if (ssoType == Types.LEARNING_SSO_TYPE.IMAGE ||
                 ssoType == Types.LEARNING_SSO_TYPE.BOTH) {
-                saveImage(CompetitionParameters.SCREENSHOT_FILENAME);
+                learningPlayer.setFrame(captureFrame());
             }
         }
     }
@@ -133,16 +138,27 @@ public class VGDLViewer extends JComponent
         return size;
     }
 
+    /**
+     * Renders the game into an off-screen image, without touching the file system.
+     * The same image object is returned (and overwritten) on every call.
+     * @return the image of the screen.
+     */
+    public BufferedImage captureFrame() {
+        if (frame == null)
+            frame = new BufferedImage((int) size.getWidth(), (int) size.getHeight(), BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, frame.getWidth(), frame.getHeight());
+        graphics.setComposite(AlphaComposite.SrcOver);
+        paintWithGraphics(graphics);
+        graphics.dispose();
+        return frame;
+    }
+
     public void saveImage(String fileName)  {
         try {
-            BufferedImage bi = new BufferedImage( (int) size.getWidth(), (int) size.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            Graphics2D graphics = bi.createGraphics();
-            paintWithGraphics(graphics);
-            File file = new File(fileName);
-            if (justImage) {
-                graphics.dispose();
-            }
-            ImageIO.write(bi, "png", file);
+            ImageIO.write(captureFrame(), "png", new File(fileName));
         } catch (IOException ie) {
             ie.printStackTrace();
         }
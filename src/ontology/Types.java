@@ -200,6 +200,16 @@ public class Types {
         BOTH
     }
 
+    /**
+     * Encoding of the screen image sent to learning clients: a PNG file, or the raw
+     * pixels row by row, with three bytes (red, green, blue) or one byte (luminance) per pixel.
+     */
+    public static enum LEARNING_IMAGE_FORMAT {
+        PNG,
+        RGB,
+        GRAY
+    }
+
     public static final int SCORE_DISQ = -1000;
 
     public static final Color GREEN = new Color(0, 200, 0);
@@ -278,5 +278,19 @@ public class MovingAvatar extends VGDLSprite {
         super.copyTo(targetSprite);
     }
 
+    @Override
+    public long stateHash() {
+        long h = StateHash.combine(super.stateHash(), playerID);
+        h = StateHash.combine(h, score);
+        return StateHash.combine(h, winState.ordinal());
+    }
+
+    @Override
+    public boolean sameState(VGDLSprite other) {
+        MovingAvatar otherAvatar = (MovingAvatar) other;
+        return super.sameState(other) && otherAvatar.playerID == this.playerID
+                && otherAvatar.score == this.score && otherAvatar.winState == this.winState;
+    }
+
 
 }
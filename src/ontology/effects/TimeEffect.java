@@ -23,8 +23,9 @@ public class TimeEffect extends Effect implements Comparable<TimeEffect> {
     public int timer = -1;
 
     /**
-     * Indicates the next time step when this effect will be automatically triggered without collisions.
-     * It is set by planExecution().
+     * Indicates the time step when this effect will be automatically triggered without collisions
+     * for the first time. It is set by planExecution(). Later executions of repeating effects are
+     * planned by the game's queue of time effects, which shares this object between game copies.
      */
     public int nextExecution = -1;
 
@@ -85,8 +86,6 @@ public class TimeEffect extends Effect implements Comparable<TimeEffect> {
     public void execute(VGDLSprite sprite1, VGDLSprite sprite2, Game game) {
         //If the time effect is not native, we cannot guarantee that the sprite will be there.
         delegate.execute(sprite1, sprite2, game);
-        if (repeating)
-            planExecution(game);
     }
 
     public void planExecution(Game game) {
@@ -44,13 +44,13 @@ public class AttractGaze extends Effect
                     if(sprite1.orientation.equals(Types.DLEFT) || sprite1.orientation.equals(Types.DRIGHT))
                     {
                         //Need to align on the Y coordinate.
-                        sprite1.rect = new Rectangle(sprite1.rect.x, sprite2.rect.y,
-                                sprite1.rect.width, sprite1.rect.height);
+                        sprite1.setRect(new Rectangle(sprite1.rect.x, sprite2.rect.y,
+                                sprite1.rect.width, sprite1.rect.height));
 
                     }else{
                         //Need to align on the X coordinate.
-                        sprite1.rect = new Rectangle(sprite2.rect.x, sprite1.rect.y,
-                                sprite1.rect.width, sprite1.rect.height);
+                        sprite1.setRect(new Rectangle(sprite2.rect.x, sprite1.rect.y,
+                                sprite1.rect.width, sprite1.rect.height));
                     }
                 }
 
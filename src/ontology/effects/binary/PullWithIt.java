@@ -80,6 +80,7 @@ public class PullWithIt extends Effect
         if(sprite1.physicstype != Types.GRID)
         {
             sprite1.rect.y = sprite2.rect.y-sprite2.rect.height;
+            sprite1.updateBucket();
             sprite1.orientation = new Direction(sprite1.orientation.x(),0.0);
         }
 
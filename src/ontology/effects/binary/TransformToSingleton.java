@@ -3,8 +3,6 @@ package ontology.effects.binary;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
 
 import core.vgdl.VGDLRegistry;
 import core.vgdl.VGDLSprite;
@@ -100,15 +98,12 @@ public class TransformToSingleton extends Effect {
                 oldSprite.lastrect.width, oldSprite.lastrect.height);
 
         //Copy resources
-        if(oldSprite.resources.size() > 0)
+        int numResources = oldSprite.getNumResourceTypes();
+        for(int i = 0; i < numResources; ++i)
         {
-            Set<Map.Entry<Integer, Integer>> entries = oldSprite.resources.entrySet();
-            for(Map.Entry<Integer, Integer> entry : entries)
-            {
-                int resType = entry.getKey();
-                int resValue = entry.getValue();
-                newSprite.modifyResource(resType, resValue);
-            }
+            int resType = oldSprite.getResourceId(i);
+            int resValue = oldSprite.getResourceAmount(i);
+            newSprite.modifyResource(resType, resValue);
         }
 
 
@@ -123,7 +118,7 @@ public class TransformToSingleton extends Effect {
                 Types.WINNER win = game.getAvatar(id).getWinState();
                 game.setAvatar((MovingAvatar) newSprite, id);
                 game.getAvatar(id).player = p;
-                game.getAvatar(id).setKeyHandler(Game.ki);
+                game.getAvatar(id).setKeyHandler(game.getKeyHandler());
                 game.getAvatar(id).setScore(score);
                 game.getAvatar(id).setWinState(win);
                 game.getAvatar(id).setPlayerID(id);
@@ -30,7 +30,7 @@ public class KillIfAlive extends Effect {
         }
 	
         //boolean variable set to false to indicate the sprite was not transformed
-    	if (!game.kill_list.contains(sprite2))
+    	if (!sprite2.is_killed())
         	game.killSprite(sprite1, false);
     }
 }
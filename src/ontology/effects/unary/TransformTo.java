@@ -2,8 +2,6 @@ package ontology.effects.unary;
 
 import java.awt.Rectangle;
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.Set;
 
 import core.vgdl.VGDLRegistry;
 import core.vgdl.VGDLSprite;
@@ -71,15 +69,12 @@ public class TransformTo extends Effect {
                     sprite1.lastrect.width, sprite1.lastrect.height);
 
             //Copy resources
-            if(sprite1.resources.size() > 0)
+            int numResources = sprite1.getNumResourceTypes();
+            for(int i = 0; i < numResources; ++i)
             {
-                Set<Map.Entry<Integer, Integer>> entries = sprite1.resources.entrySet();
-                for(Map.Entry<Integer, Integer> entry : entries)
-                {
-                    int resType = entry.getKey();
-                    int resValue = entry.getValue();
-                    newSprite.modifyResource(resType, resValue);
-                }
+                int resType = sprite1.getResourceId(i);
+                int resValue = sprite1.getResourceAmount(i);
+                newSprite.modifyResource(resType, resValue);
             }
 
 
@@ -94,7 +89,7 @@ public class TransformTo extends Effect {
                     Types.WINNER win = game.getAvatar(id).getWinState();
                     game.setAvatar((MovingAvatar) newSprite, id);
                     game.getAvatar(id).player = p;
-                    game.getAvatar(id).setKeyHandler(Game.ki);
+                    game.getAvatar(id).setKeyHandler(game.getKeyHandler());
                     game.getAvatar(id).setScore(score);
                     game.getAvatar(id).setWinState(win);
                     game.getAvatar(id).setPlayerID(id);
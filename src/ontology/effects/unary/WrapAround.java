@@ -47,6 +47,7 @@ public class WrapAround extends Effect {
             sprite1.rect.y = (int) (game.getScreenSize().height- sprite1.rect.height * (1+offset));
         }
 
+        sprite1.updateBucket();
         sprite1.lastmove = 0;
     }
 }
@@ -6,6 +6,7 @@ import core.vgdl.VGDLSprite;
 import core.content.SpriteContent;
 import core.game.Game;
 import ontology.Types;
+import tools.StateHash;
 import tools.Vector2d;
 
 /**
@@ -68,4 +69,16 @@ public class Flicker extends VGDLSprite
         targetSprite.age = this.age;
         super.copyTo(targetSprite);
     }
+
+    @Override
+    public long stateHash()
+    {
+        return StateHash.combine(super.stateHash(), age);
+    }
+
+    @Override
+    public boolean sameState(VGDLSprite other)
+    {
+        return super.sameState(other) && ((Flicker) other).age == this.age;
+    }
 }
@@ -7,6 +7,7 @@ import core.content.SpriteContent;
 import core.game.Game;
 import ontology.Types;
 import tools.Direction;
+import tools.StateHash;
 import tools.Utils;
 import tools.Vector2d;
 
@@ -91,4 +92,18 @@ public class RandomNPC extends VGDLSprite
         targetSprite.counter = this.counter;
         super.copyTo(targetSprite);
     }
+
+    @Override
+    public long stateHash()
+    {
+        return StateHash.combine(StateHash.combine(super.stateHash(), counter), prevAction);
+    }
+
+    @Override
+    public boolean sameState(VGDLSprite other)
+    {
+        RandomNPC otherNPC = (RandomNPC) other;
+        return super.sameState(other) && otherNPC.counter == this.counter
+                && otherNPC.prevAction.equals(this.prevAction);
+    }
 }
@@ -9,6 +9,7 @@ import core.content.SpriteContent;
 import core.game.Game;
 import ontology.Types;
 import tools.Direction;
+import tools.StateHash;
 import tools.Vector2d;
 
 /**
@@ -124,6 +125,18 @@ public class SpawnPoint extends SpriteProducer
         super.copyTo(targetSprite);
     }
 
+    @Override
+    public long stateHash()
+    {
+        return StateHash.combine(super.stateHash(), counter);
+    }
+
+    @Override
+    public boolean sameState(VGDLSprite other)
+    {
+        return super.sameState(other) && ((SpawnPoint) other).counter == this.counter;
+    }
+
     @Override
     public ArrayList<String> getDependentSprites(){
     	ArrayList<String> result = new ArrayList<String>();
@@ -6,6 +6,7 @@ import core.content.SpriteContent;
 import core.game.Game;
 import ontology.Types;
 import tools.Direction;
+import tools.StateHash;
 import tools.Vector2d;
 
 import java.awt.*;
@@ -123,4 +124,16 @@ public class SpawnPointMultiSprite extends SpriteProducer
         
         super.copyTo(targetSprite);
     }
+
+    @Override
+    public long stateHash()
+    {
+        return StateHash.combine(super.stateHash(), counter);
+    }
+
+    @Override
+    public boolean sameState(VGDLSprite other)
+    {
+        return super.sameState(other) && ((SpawnPointMultiSprite) other).counter == this.counter;
+    }
 }
@@ -0,0 +1,75 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import core.game.StateObservation;
+import core.vgdl.ParsedGame;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+
+/**
+ * Measures the time per rollout when the actions of the rollout are played one by one with
+ * StateObservation.advance(), or all at once with StateObservation.advanceSequence(). Each
+ * rollout restores a copy of the state of the game with copyFrom() and plays a sequence of
+ * random actions. The time of the rollout without the copy is also shown.
+ */
+public class AdvanceSequenceBenchmark {
+
+    private static final int ROLLOUT_DEPTH = 10;
+    private static final int WARMUP_ROLLOUTS = 2000;
+    private static final int ROLLOUTS = 10000;
+
+    public static void main(String[] args) {
+
+	String gamesPath = "examples/gridphysics/";
+	String games[] = new String[] { "aliens", "boulderdash", "butterflies", "pacman", "sokoban", "zelda" };
+
+	System.out.println(String.format("%-12s %12s %12s %12s %9s", "game", "copy us/op", "advance us", "sequence us",
+		"speedup"));
+	for (String g : games) {
+	    VGDLFactory.GetInstance().init();
+	    VGDLRegistry.GetInstance().init();
+	    StateObservation so = ParsedGame.get(gamesPath + g + ".txt").newGame(gamesPath + g + "_lvl0.txt", 0)
+		    .getObservation();
+
+	    double[] times = new double[3];
+	    for (int mode = 0; mode < 3; mode++) {
+		run(so, mode, WARMUP_ROLLOUTS);
+		long time = System.nanoTime();
+		run(so, mode, ROLLOUTS);
+		times[mode] = (System.nanoTime() - time) / 1000.0 / ROLLOUTS;
+	    }
+	    double advance = times[1] - times[0], sequence = times[2] - times[0];
+	    System.out.println(String.format("%-12s %12.2f %12.2f %12.2f %8.2fx", g, times[0], advance, sequence,
+		    advance / sequence));
+	}
+    }
+
+    /**
+     * Runs a number of rollouts from a state.
+     * @param so state to start the rollouts from.
+     * @param mode 0: only copy the state, 1: advance(), 2: advanceSequence().
+     * @param rollouts number of rollouts to run.
+     */
+    private static void run(StateObservation so, int mode, int rollouts) {
+	Random rnd = new Random(0);
+	ArrayList<Types.ACTIONS> actions = so.getAvailableActions();
+	Types.ACTIONS[] sequence = new Types.ACTIONS[ROLLOUT_DEPTH];
+	StateObservation st = so.copy();
+
+	for (int i = 0; i < rollouts; i++) {
+	    st.copyFrom(so);
+	    for (int j = 0; j < ROLLOUT_DEPTH; j++)
+		sequence[j] = actions.get(rnd.nextInt(actions.size()));
+
+	    if (mode == 1) {
+		for (int j = 0; j < ROLLOUT_DEPTH && !st.isGameOver(); j++)
+		    st.advance(sequence[j]);
+	    } else if (mode == 2) {
+		st.advanceSequence(sequence);
+	    }
+	}
+    }
+}
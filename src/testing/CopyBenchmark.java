@@ -0,0 +1,98 @@
+package testing;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+import core.game.Game;
+import core.game.StateObservation;
+import core.game.StateObservationPool;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLParser;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+
+/**
+ * Measures the time and the memory allocated per rollout when the state is copied with
+ * StateObservation.copy(), restored in place with StateObservation.copyFrom(), or taken
+ * from a StateObservationPool. Each rollout copies the state of the game and advances the
+ * copy a few steps with random actions.
+ */
+public class CopyBenchmark {
+
+    private static final int ROLLOUT_DEPTH = 10;
+    private static final int WARMUP_ROLLOUTS = 2000;
+    private static final int ROLLOUTS = 10000;
+
+    public static void main(String[] args) {
+
+	String gamesPath = "examples/gridphysics/";
+	String games[] = new String[] { "aliens", "boulderdash", "pacman", "zelda" };
+
+	System.out.println(String.format("%-12s %-10s %12s %12s", "game", "mode", "us/op", "bytes/op"));
+	for (String g : games) {
+	    StateObservation so = buildGame(gamesPath + g + ".txt", gamesPath + g + "_lvl0.txt");
+	    for (int mode = 0; mode < 3; mode++) {
+		run(so, mode, WARMUP_ROLLOUTS);
+		long bytes = allocatedBytes();
+		long time = System.nanoTime();
+		run(so, mode, ROLLOUTS);
+		time = System.nanoTime() - time;
+		bytes = allocatedBytes() - bytes;
+		System.out.println(String.format("%-12s %-10s %12.2f %12d", g, modeName(mode),
+			time / 1000.0 / ROLLOUTS, bytes / ROLLOUTS));
+	    }
+	}
+    }
+
+    /**
+     * Runs a number of rollouts from a state.
+     * @param so state to start the rollouts from.
+     * @param mode 0: copy(), 1: copyFrom(), 2: StateObservationPool.
+     * @param rollouts number of rollouts to run.
+     */
+    private static void run(StateObservation so, int mode, int rollouts) {
+	Random rnd = new Random(0);
+	StateObservationPool pool = new StateObservationPool();
+	StateObservation reused = null;
+	ArrayList<Types.ACTIONS> actions = so.getAvailableActions();
+
+	for (int i = 0; i < rollouts; i++) {
+	    StateObservation state;
+	    if (mode == 0) {
+		state = so.copy();
+	    } else if (mode == 1) {
+		if (reused == null)
+		    reused = so.copy();
+		else
+		    reused.copyFrom(so);
+		state = reused;
+	    } else {
+		state = pool.copy(so);
+	    }
+
+	    for (int d = 0; d < ROLLOUT_DEPTH && !state.isGameOver(); d++)
+		state.advance(actions.get(rnd.nextInt(actions.size())));
+
+	    if (mode == 2)
+		pool.release(state);
+	}
+    }
+
+    private static StateObservation buildGame(String game, String level) {
+	VGDLFactory.GetInstance().init();
+	VGDLRegistry.GetInstance().init();
+	Game toPlay = new VGDLParser().parseGame(game);
+	toPlay.buildLevel(level, 0);
+	return toPlay.getObservation();
+    }
+
+    private static long allocatedBytes() {
+	return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+		.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String modeName(int mode) {
+	return mode == 0 ? "copy" : (mode == 1 ? "copyFrom" : "pool");
+    }
+}
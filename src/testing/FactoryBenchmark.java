@@ -0,0 +1,80 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import core.game.Game;
+import core.game.StateObservation;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLParser;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+
+/**
+ * Measures the time taken by the work that goes through VGDLFactory: parsing a game and
+ * building its level, which creates every sprite, effect and termination, and playing games
+ * where effects like Spawn or TransformTo create sprites all the time.
+ */
+public class FactoryBenchmark {
+
+    private static final int WARMUP_BUILDS = 50;
+    private static final int BUILDS = 200;
+    private static final int WARMUP_STEPS = 5000;
+    private static final int STEPS = 20000;
+
+    public static void main(String[] args) {
+
+	String gamesPath = "examples/gridphysics/";
+	String games[] = new String[] { "aliens", "chopper", "eggomania", "firestorms", "plaqueattack" };
+
+	System.out.println(String.format("%-12s %12s %12s", "game", "build us", "step us"));
+	for (String g : games) {
+	    String game = gamesPath + g + ".txt";
+	    String level = gamesPath + g + "_lvl0.txt";
+
+	    build(game, level, WARMUP_BUILDS);
+	    long time = System.nanoTime();
+	    build(game, level, BUILDS);
+	    double buildTime = (System.nanoTime() - time) / 1000.0 / BUILDS;
+
+	    play(game, level, WARMUP_STEPS);
+	    time = System.nanoTime();
+	    play(game, level, STEPS);
+	    double stepTime = (System.nanoTime() - time) / 1000.0 / STEPS;
+
+	    System.out.println(String.format("%-12s %12.2f %12.2f", g, buildTime, stepTime));
+	}
+    }
+
+    /**
+     * Parses a game and builds its level a number of times.
+     */
+    private static void build(String game, String level, int builds) {
+	for (int i = 0; i < builds; i++)
+	    buildGame(game, level);
+    }
+
+    /**
+     * Plays a game with random actions for a number of steps, starting it again when it's over.
+     */
+    private static void play(String game, String level, int steps) {
+	Random rnd = new Random(0);
+	StateObservation start = buildGame(game, level).getObservation();
+	StateObservation so = start.copy();
+	ArrayList<Types.ACTIONS> actions = so.getAvailableActions();
+
+	for (int i = 0; i < steps; i++) {
+	    if (so.isGameOver())
+		so.copyFrom(start);
+	    so.advance(actions.get(rnd.nextInt(actions.size())));
+	}
+    }
+
+    private static Game buildGame(String game, String level) {
+	VGDLFactory.GetInstance().init();
+	VGDLRegistry.GetInstance().init();
+	Game toPlay = new VGDLParser().parseGame(game);
+	toPlay.buildLevel(level, 0);
+	return toPlay;
+    }
+}
@@ -0,0 +1,69 @@
+package testing;
+
+import java.util.ArrayList;
+
+import core.game.Game;
+import core.game.StateObservation;
+import core.vgdl.ParsedGame;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+import tracks.singlePlayer.advanced.parallelMCTS.ParallelMCTSPlayer;
+
+/**
+ * Measures how the parallel MCTS scales with the number of threads, as in offline planning:
+ * each search runs a fixed number of iterations (first argument, 20000 by default) from the
+ * first state of a game, with no time limit, and the wall-clock time it takes is shown for
+ * each mode and number of threads, up to the number of available processors (or the second
+ * argument).
+ */
+public class ParallelMCTSBenchmark {
+
+    public static void main(String[] args) {
+
+	String gamesPath = "examples/gridphysics/";
+	String games[] = new String[] { "aliens", "boulderdash", "sokoban", "zelda" };
+	int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+	int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+	System.out.println(String.format("%-12s %-6s %8s %10s %10s", "game", "mode", "threads", "ms", "speedup"));
+	for (String g : games) {
+	    VGDLFactory.GetInstance().init();
+	    VGDLRegistry.GetInstance().init();
+	    Game toPlay = ParsedGame.get(gamesPath + g + ".txt").newGame(gamesPath + g + "_lvl0.txt", 0);
+	    StateObservation so = toPlay.getObservation();
+	    ArrayList<Types.ACTIONS> act = so.getAvailableActions();
+	    Types.ACTIONS[] actions = act.toArray(new Types.ACTIONS[act.size()]);
+
+	    for (ParallelMCTSPlayer.Mode mode : ParallelMCTSPlayer.Mode.values()) {
+		double single = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+		    ParallelMCTSPlayer player = new ParallelMCTSPlayer(mode, threads, 0, actions);
+		    player.iterationBudget = iterations;
+
+		    //Warm up, then measure.
+		    search(player, so, iterations);
+		    double ms = search(player, so, iterations);
+		    player.shutdown();
+
+		    if (threads == 1)
+			single = ms;
+		    System.out.println(String.format("%-12s %-6s %8d %10.1f %10.2f", g, mode, threads, ms, single / ms));
+		}
+	    }
+	}
+    }
+
+    /**
+     * Runs a search of a number of iterations.
+     * @return the time the search took, in milliseconds.
+     */
+    private static double search(ParallelMCTSPlayer player, StateObservation so, int iterations) {
+	player.iterationBudget = iterations;
+	player.init(so);
+	long time = System.nanoTime();
+	player.run(new ElapsedCpuTimer());
+	return (System.nanoTime() - time) / 1000000.0;
+    }
+}
@@ -0,0 +1,117 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import core.competition.CompetitionParameters;
+import core.game.Game;
+import core.game.StateObservation;
+import core.vgdl.ParsedGame;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+import tracks.ArcadeMachine;
+import tracks.singlePlayer.advanced.ttMCTS.SingleMCTSPlayer;
+import tracks.singlePlayer.advanced.ttMCTS.TranspositionTable;
+
+/**
+ * Compares the MCTS with a transposition table (ttMCTS) to the same search without it, on
+ * deterministic games and with the competition time per action. First, both searches decide
+ * on the same consecutive states of each game, measuring the iterations per decision, the
+ * visits of the root when the action is chosen (which, with the table, include those of
+ * previous decisions) and how often the table finds a state already visited. Then both
+ * agents play each game a number of times (first argument, 0 by default) and their wins and
+ * scores are shown.
+ */
+public class TranspositionMCTSBenchmark {
+
+    private static final int STATES = 30;
+    private static final int TABLE_CAPACITY = 100000;
+
+    public static void main(String[] args) {
+
+	String gamesPath = "examples/gridphysics/";
+	String games[] = new String[] { "bait", "brainman", "chipschallenge", "escape", "labyrinth",
+		"modality", "painter", "realsokoban", "sokoban", "zenpuzzle" };
+	int plays = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+
+	System.out.println(String.format("%-16s %12s %12s %12s %12s %10s", "game", "iters MCTS", "iters TT",
+		"visits MCTS", "visits TT", "TT hits"));
+	for (String g : games) {
+	    String game = gamesPath + g + ".txt";
+	    String level = gamesPath + g + "_lvl0.txt";
+
+	    //Warm up, then measure.
+	    search(game, level, false);
+	    double[] plain = search(game, level, false);
+	    double[] tt = search(game, level, true);
+	    System.out.println(String.format("%-16s %12.1f %12.1f %12.1f %12.1f %9.1f%%", g, plain[0], tt[0],
+		    plain[2], tt[2], 100 * tt[1]));
+	}
+
+	if (plays == 0)
+	    return;
+
+	String mcts = "tracks.singlePlayer.advanced.sampleMCTS.Agent";
+	String ttMcts = "tracks.singlePlayer.advanced.ttMCTS.Agent";
+	System.out.println();
+	System.out.println(String.format("%-16s %10s %10s %10s %10s", "game", "wins MCTS", "wins TT", "score MCTS",
+		"score TT"));
+	for (String g : games) {
+	    String game = gamesPath + g + ".txt";
+	    String level = gamesPath + g + "_lvl0.txt";
+	    double[] plain = new double[2], tt = new double[2];
+	    for (int i = 0; i < plays; i++) {
+		int seed = new Random(i).nextInt();
+		double[] result = ArcadeMachine.runOneGame(game, level, false, mcts, null, seed, 0);
+		plain[0] += result[0];
+		plain[1] += result[1];
+		result = ArcadeMachine.runOneGame(game, level, false, ttMcts, null, seed, 0);
+		tt[0] += result[0];
+		tt[1] += result[1];
+	    }
+	    System.out.println(String.format("%-16s %10d %10d %10.1f %10.1f", g, (int) plain[0], (int) tt[0],
+		    plain[1] / plays, tt[1] / plays));
+	}
+    }
+
+    /**
+     * Decides the actions of consecutive states of a game, as an agent would with the
+     * competition time per action, but playing random actions so both searches see the
+     * same states.
+     * @param game game file.
+     * @param level level file.
+     * @param useTable true to search with a transposition table.
+     * @return the average number of iterations per decision, the hit rate of the table and the
+     *         average number of visits of the root per decision.
+     */
+    private static double[] search(String game, String level, boolean useTable) {
+	VGDLFactory.GetInstance().init();
+	VGDLRegistry.GetInstance().init();
+	Game toPlay = ParsedGame.get(game).newGame(level, 0);
+	StateObservation so = toPlay.getObservation();
+	so.setNewSeed(0);
+
+	ArrayList<Types.ACTIONS> act = so.getAvailableActions();
+	Types.ACTIONS[] actions = act.toArray(new Types.ACTIONS[act.size()]);
+	TranspositionTable table = useTable ? new TranspositionTable(TABLE_CAPACITY) : null;
+	SingleMCTSPlayer player = new SingleMCTSPlayer(new Random(0), actions.length, actions, table);
+
+	//Both searches go through the same states: the game is played with random actions.
+	Random rnd = new Random(0);
+	long iterations = 0, rootVisits = 0;
+	int decisions = 0;
+	for (; decisions < STATES && !so.isGameOver(); decisions++) {
+	    ElapsedCpuTimer timer = new ElapsedCpuTimer();
+	    timer.setMaxTimeMillis(CompetitionParameters.ACTION_TIME);
+	    player.init(so);
+	    player.run(timer);
+	    iterations += player.lastIterations;
+	    rootVisits += player.lastRootVisits;
+	    so.advance(actions[rnd.nextInt(actions.length)]);
+	}
+	return new double[] { (double) iterations / Math.max(1, decisions),
+		table == null ? 0 : table.getHitRate(), (double) rootVisits / Math.max(1, decisions) };
+    }
+}
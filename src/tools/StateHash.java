@@ -0,0 +1,58 @@
+package tools;
+
+/**
+ * Helpers to build 64-bit hashes of game states. Each element of a state (a sprite, a
+ * timer...) gets a key built by combining its values with combine(), and the key of the state
+ * is the sum of the keys of its elements, Zobrist-style: the sum doesn't depend on the order
+ * the elements are visited, and, unlike XOR, two identical elements don't cancel each other.
+ */
+public final class StateHash
+{
+    private StateHash() {}
+
+    /**
+     * Scrambles the bits of a value (finalizer of SplitMix64), so values that differ
+     * in a few bits give very different results.
+     * @param z value to scramble.
+     * @return the scrambled value.
+     */
+    public static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Adds a value to a hash.
+     * @param h hash so far.
+     * @param v value to add.
+     * @return the new hash.
+     */
+    public static long combine(long h, long v)
+    {
+        return mix(h + 0x9e3779b97f4a7c15L + v);
+    }
+
+    /**
+     * Adds a value to a hash. 0.0 and -0.0 give the same hash, as they compare equal.
+     * @param h hash so far.
+     * @param v value to add.
+     * @return the new hash.
+     */
+    public static long combine(long h, double v)
+    {
+        return combine(h, v == 0.0 ? 0L : Double.doubleToLongBits(v));
+    }
+
+    /**
+     * Adds a direction to a hash.
+     * @param h hash so far.
+     * @param d direction to add.
+     * @return the new hash.
+     */
+    public static long combine(long h, Direction d)
+    {
+        return combine(combine(h, d.x()), d.y());
+    }
+}
@@ -1,215 +1,441 @@
 package tools.pathfinder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import tools.Vector2d;
 
 /**
  * Created by dperez on 13/01/16.
  */
 public class AStar
 {
-    public static PriorityQueue<Node> closedList, openList;
-    public HashMap<Integer, ArrayList<Node>> pathCache;
+    /**
+     * Maximum number of cells kept in the table of shortest paths (see getPath()). Grids
+     * with fewer than sqrt(MAX_TABLE_CELLS) cells keep the paths from every cell.
+     */
+    public static final int MAX_TABLE_CELLS = 1 << 24;
+
+    /**
+     * Paths found by findPath() between two given cells, keyed by pathId().
+     */
+    public HashMap<Long, ArrayList<Node>> pathCache;
     public PathFinder pathfinder;
-    public boolean visited[][];
+
+    /**
+     * Shortest paths from each source cell, keyed by the index of the source: for every
+     * cell, the index of the previous cell in the path from the source to it, or -1 if it
+     * can't be reached. Tables are built the first time they are needed, and only the
+     * most recently used ones are kept.
+     */
+    private LinkedHashMap<Integer, int[]> pathTable;
+
+    /**
+     * Width and height of the grid.
+     */
+    private int width, height;
+
+    /**
+     * State of the searches, indexed by cell and reused from one search to the next:
+     *  - cost: cost of the best path found from the start to each cell.
+     *  - priority: cost plus estimated cost to the goal, used to order the open list.
+     *  - parent: previous cell in the best path found to each cell.
+     *  - heapIndex: position of each cell in the open list, or CLOSED once expanded.
+     *  - searchId: search in which each cell was last reached. Cells with an older
+     *    value haven't been reached in the current search, so nothing needs clearing.
+     */
+    private double[] cost, priority;
+    private int[] parent, heapIndex, searchId;
+    private int currentSearch;
+
+    /**
+     * Open list, as a binary heap of cells ordered by priority.
+     */
+    private int[] heap;
+    private int heapSize;
+
+    /**
+     * Buffer for the neighbours of the cell being expanded.
+     */
+    private int[] neighbours = new int[4];
+
+    private static final int CLOSED = -1;
 
     public AStar(PathFinder pathfinder)
     {
         this.pathfinder = pathfinder;
-        pathCache = new HashMap<Integer, ArrayList<Node>>();
-        visited = new boolean[pathfinder.grid.length][pathfinder.grid[0].length];
+        width = pathfinder.grid.length;
+        height = pathfinder.grid[0].length;
+        pathCache = new HashMap<Long, ArrayList<Node>>();
+
+        int numCells = width * height;
+        cost = new double[numCells];
+        priority = new double[numCells];
+        parent = new int[numCells];
+        heapIndex = new int[numCells];
+        searchId = new int[numCells];
+        heap = new int[numCells];
+
+        final int maxSources = Math.max(1, MAX_TABLE_CELLS / (width * height));
+        pathTable = new LinkedHashMap<Integer, int[]>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest)
+            {
+                return size() > maxSources;
+            }
+        };
     }
 
-    public void emptyCache()
+    public synchronized void emptyCache()
     {
         pathCache.clear();
-
+        pathTable.clear();
     }
 
-    private static double heuristicEstimatedCost(Node curNode, Node goalNode)
+    private double heuristicEstimatedCost(int cell, int goalCell)
     {
         //4-way: using Manhattan
-        double xDiff = Math.abs(curNode.position.x - goalNode.position.x);
-        double yDiff = Math.abs(curNode.position.y - goalNode.position.y);
+        int xDiff = Math.abs(cell / height - goalCell / height);
+        int yDiff = Math.abs(cell % height - goalCell % height);
         return xDiff + yDiff;
-
-        //This is Euclidean distance(sub-optimal here).
-        //return curNode.position.dist(goalNode.position);
     }
 
+    /**
+     * Returns the shortest path between two cells, as found by a search from the start cell
+     * to all the others.
+     * @param start start cell.
+     * @param goal goal cell.
+     * @return the nodes of the path, without the start one, or null if there's no path
+     * (including when both cells are the same one).
+     */
+    public ArrayList<Node> getPath(Node start, Node goal)
+    {
+        int startCell = cellIndex(start);
+        int goalCell = cellIndex(goal);
+        if(startCell == -1 || goalCell == -1 || startCell == goalCell)
+            return null;
+
+        int[] previous = getPathTable(startCell);
+        if(previous == null || previous[goalCell] == -1)
+            return null;
+
+        return buildPath(startCell, goalCell, previous);
+    }
 
-    private ArrayList<Node> calculatePath(Node node)
+    /**
+     * Returns the shortest path between two cells when the obstacles differ from the ones
+     * the path finder was run with. The path from the table of shortest paths is still
+     * valid if it doesn't cross a cell that is an obstacle now, and it is still the
+     * shortest if no freed cell is close enough to both ends to make a shorter path
+     * through it. Otherwise, the path is searched again, taking the changes into account.
+     * @param start start cell.
+     * @param goal goal cell.
+     * @param changes differences in the obstacles.
+     * @return the nodes of the path, without the start one, or null if there's no path
+     * (including when both cells are the same one).
+     */
+    public ArrayList<Node> getPath(Node start, Node goal, ObstacleChanges changes)
     {
-        ArrayList<Node> path = new ArrayList<Node>();
-        while(node != null)
+        if(changes == null || changes.isEmpty())
+            return getPath(start, goal);
+
+        int startCell = cellIndex(start);
+        int goalCell = cellIndex(goal);
+        if(startCell == -1 || goalCell == -1 || startCell == goalCell)
+            return null;
+        if(pathfinder.isObstacle(startCell / height, startCell % height, changes))
+            return null;
+
+        int[] previous = getPathTable(startCell);
+        if(previous != null && previous[goalCell] != -1)
         {
-            if(node.parent != null) //to avoid adding the start node.
+            int length = 0;
+            boolean valid = true;
+            for(int cell = goalCell; cell != startCell && valid; cell = previous[cell])
             {
-                node.setMoveDir(node.parent);
-                path.add(0,node);
+                valid = !changes.isBlocked(cell);
+                length++;
             }
-            node = node.parent;
+
+            if(valid && !shortcutThroughFreed(startCell, goalCell, length, changes))
+                return buildPath(startCell, goalCell, previous);
+
+        }else if(changes.freed.length == 0)
+        {
+            //Nothing was freed, so the cells that weren't reachable still aren't.
+            return null;
+        }
+
+        synchronized (this)
+        {
+            if(!search(startCell, goalCell, changes))
+                return null;
+            return buildPath(startCell, goalCell, parent);
         }
-        return path;
     }
 
-    public ArrayList<Node> getPath(Node start, Node goal)
+    /**
+     * Indicates if a path through any of the freed cells could be shorter than a given length.
+     */
+    private boolean shortcutThroughFreed(int startCell, int goalCell, int length, ObstacleChanges changes)
     {
-        int pathId = start.id * 10000 + goal.id;
-        if(pathCache.containsKey(pathId))
-            return pathCache.get(pathId);
-        return null;
+        for(int cell : changes.freed)
+            if(heuristicEstimatedCost(startCell, cell) + heuristicEstimatedCost(cell, goalCell) < length)
+                return true;
+        return false;
     }
 
-    public ArrayList<Node> findPath(Node start, Node goal)
+    /**
+     * Creates the nodes of a path.
+     * @param startCell index of the first cell of the path.
+     * @param goalCell index of the last cell of the path.
+     * @param previous previous cell of each cell of the path.
+     * @return the nodes of the path, without the start one.
+     */
+    private ArrayList<Node> buildPath(int startCell, int goalCell, int[] previous)
     {
-        if(goal != null)
+        //The cells of the path are collected backwards, from the goal to the start.
+        int length = 0;
+        for(int cell = goalCell; cell != startCell; cell = previous[cell])
+            length++;
+        Node[] nodes = new Node[length];
+        int cell = goalCell;
+        for(int i = length - 1; i >= 0; --i)
         {
-            int pathId = start.id * 10000 + goal.id;
-            if(pathCache.containsKey(pathId))
-                return pathCache.get(pathId);
-            ArrayList<Node> path = _findPath(start, goal);
-
-            if(path!=null)
-                pathCache.put(pathId, path);
-
-            return path;
+            nodes[i] = cellNode(cell);
+            cell = previous[cell];
         }
 
-        _dijkstraa(start);
-        return null;
+        ArrayList<Node> path = new ArrayList<Node>(length);
+        Node parent = cellNode(startCell);
+        parent.totalCost = 0.0f;
+        for(Node node : nodes)
+        {
+            node.parent = parent;
+            node.totalCost = parent.totalCost + 1;
+            node.setMoveDir(parent);
+            path.add(node);
+            parent = node;
+        }
+        return path;
     }
 
-
-    private void _dijkstraa(Node start)
+    public ArrayList<Node> findPath(Node start, Node goal)
     {
-
-        ArrayList<Node> destinationsFromStart = new ArrayList<Node>();
-        //All unvisited at the beginning.
-        visited = new boolean[pathfinder.grid.length][pathfinder.grid[0].length];
-        //...except the starting node
-        visited[(int)start.position.x][(int)start.position.y] = true;
-
-        Node node = null;
-
-        openList = new PriorityQueue<Node>();
-        start.totalCost = 0.0f;
-
-        openList.add(start);
-
-        while(openList.size() != 0)
+        if(goal != null)
         {
-            node = openList.poll();
-            //System.out.println("Remaining in list: " + openList.size());
-
-            if(!destinationsFromStart.contains(node) && (node != start))
+            long pathId = pathId(start, goal);
+            synchronized (this)
             {
-                destinationsFromStart.add(node);
-            }
-
-            ArrayList<Node> neighbours = pathfinder.getNeighbours(node);
+                if(pathCache.containsKey(pathId))
+                    return pathCache.get(pathId);
+                ArrayList<Node> path = _findPath(start, goal);
 
-            for(int i = 0; i < neighbours.size(); ++i)
-            {
-                Node neighbour = neighbours.get(i);
-                double curDistance = neighbour.totalCost;
-                if (! visited[(int)neighbour.position.x][(int)neighbour.position.y] )
-                {
-                    visited[(int)neighbour.position.x][(int)neighbour.position.y] = true;
-                    neighbour.totalCost = curDistance + node.totalCost;
-                    neighbour.parent = node;
-                    openList.add(neighbour);
+                if(path!=null)
+                    pathCache.put(pathId, path);
 
-                }else if(curDistance + node.totalCost < neighbour.totalCost)
-                {
-                    neighbour.totalCost = curDistance + node.totalCost;
-                    neighbour.parent = node;
-                }
+                return path;
             }
-
         }
 
+        int startCell = cellIndex(start);
+        if(startCell != -1)
+            getPathTable(startCell);
+        return null;
+    }
 
-        for(Node dest : destinationsFromStart)
+    /**
+     * Returns the table of shortest paths from a cell, building it if it isn't cached.
+     * @param startCell index of the source cell.
+     * @return the previous cell of each cell in the paths from the source, or null if
+     * the source is an obstacle.
+     */
+    private synchronized int[] getPathTable(int startCell)
+    {
+        int[] previous = pathTable.get(startCell);
+        if(previous == null && !pathfinder.isObstacle(startCell / height, startCell % height))
         {
-            int pathid = start.id * 10000 + dest.id;
-            pathCache.put(pathid, calculatePath(dest));
+            if(pathfinder.VERBOSE)
+                System.out.println("Running from (" + startCell / height + "," + startCell % height + ")");
+            previous = _dijkstraa(startCell);
+            pathTable.put(startCell, previous);
         }
+        return previous;
+    }
+
+    /**
+     * Finds the shortest paths from a cell to all the others.
+     * @param startCell index of the source cell.
+     * @return for every cell, the index of the previous cell in the path from the source
+     * to it, or -1 if it's the source or can't be reached.
+     */
+    private int[] _dijkstraa(int startCell)
+    {
+        int[] previous = new int[width * height];
+        Arrays.fill(previous, -1);
+
+        search(startCell, -1, null);
+        for(int cell = 0; cell < previous.length; ++cell)
+            if(searchId[cell] == currentSearch && cell != startCell)
+                previous[cell] = parent[cell];
 
+        return previous;
     }
 
     private ArrayList<Node> _findPath(Node start, Node goal)
     {
-        Node node = null;
-        openList = new PriorityQueue<Node>();
-        closedList = new PriorityQueue<Node>();
-
-        start.totalCost = 0.0f;
-        start.estimatedCost = heuristicEstimatedCost(start, goal);
+        int startCell = cellIndex(start);
+        int goalCell = cellIndex(goal);
+        if(startCell == -1 || goalCell == -1 || !search(startCell, goalCell, null))
+            return null;
 
-        openList.add(start);
+        return buildPath(startCell, goalCell, parent);
+    }
 
-        while(openList.size() != 0)
-        {
-            node = openList.poll();
-            closedList.add(node);
+    /**
+     * Searches the shortest paths from a cell, leaving them in parent[] for the cells
+     * reached in this search (see searchId[]).
+     * @param startCell index of the source cell.
+     * @param goalCell index of the goal cell, or -1 to find the paths to all cells. If
+     *                 there's a goal, the search is guided by heuristicEstimatedCost()
+     *                 and stops when the goal is reached.
+     * @param changes differences in the obstacles the path finder was run with, or null.
+     * @return true if the goal was reached (always false with no goal).
+     */
+    private boolean search(int startCell, int goalCell, ObstacleChanges changes)
+    {
+        currentSearch++;
+        heapSize = 0;
 
-            if(node.position.equals(goal.position))
-                return calculatePath(node);
+        reach(startCell, startCell, 0, goalCell);
+        offer(startCell);
 
-            ArrayList<Node> neighbours = pathfinder.getNeighbours(node);
+        while(heapSize != 0)
+        {
+            int cell = poll();
+            if(cell == goalCell)
+                return true;
 
-            for(int i = 0; i < neighbours.size(); ++i)
+            int n = pathfinder.getNeighbours(cell / height, cell % height, neighbours, changes);
+            double newCost = cost[cell] + 1;
+            for(int i = 0; i < n; ++i)
             {
-                Node neighbour = neighbours.get(i);
-                double curDistance = neighbour.totalCost;
-
-                if(!openList.contains(neighbour) && !closedList.contains(neighbour))
+                int neighbour = neighbours[i];
+                if(searchId[neighbour] != currentSearch)
                 {
-                    neighbour.totalCost = curDistance + node.totalCost;
-                    neighbour.estimatedCost = heuristicEstimatedCost(neighbour, goal);
-                    neighbour.parent = node;
-
-                    openList.add(neighbour);
-
-                }else if(curDistance + node.totalCost < neighbour.totalCost)
+                    reach(neighbour, cell, newCost, goalCell);
+                    offer(neighbour);
+                }else if(heapIndex[neighbour] != CLOSED && newCost < cost[neighbour])
                 {
-                    neighbour.totalCost = curDistance + node.totalCost;
-                    neighbour.parent = node;
+                    //Decrease key: the cell moves up in the open list.
+                    priority[neighbour] -= cost[neighbour] - newCost;
+                    cost[neighbour] = newCost;
+                    parent[neighbour] = cell;
+                    siftUp(heapIndex[neighbour], neighbour);
+                }
+            }
+        }
 
-                    if(openList.contains(neighbour))
-                        openList.remove(neighbour);
+        return false;
+    }
 
-                    if(closedList.contains(neighbour))
-                        closedList.remove(neighbour);
+    /**
+     * Marks a cell as reached in the current search.
+     */
+    private void reach(int cell, int from, double pathCost, int goalCell)
+    {
+        searchId[cell] = currentSearch;
+        parent[cell] = from;
+        cost[cell] = pathCost;
+        priority[cell] = pathCost;
+        if(goalCell != -1)
+            priority[cell] += heuristicEstimatedCost(cell, goalCell);
+    }
 
-                    openList.add(neighbour);
-                }
-            }
+    /*
+     * Operations of the open list. They make the same comparisons as
+     * java.util.PriorityQueue, so cells with the same priority are expanded in the same
+     * order as when the open list was a PriorityQueue of nodes.
+     */
 
-        }
+    private void offer(int cell)
+    {
+        siftUp(heapSize++, cell);
+    }
 
-        if(! node.position.equals(goal.position))
-            return null;
+    private int poll()
+    {
+        int first = heap[0];
+        heapIndex[first] = CLOSED;
+        int last = heap[--heapSize];
+        if(heapSize > 0)
+            siftDown(0, last);
+        return first;
+    }
 
-        return calculatePath(node);
+    private void siftUp(int k, int cell)
+    {
+        while(k > 0)
+        {
+            int parentIdx = (k - 1) >>> 1;
+            int e = heap[parentIdx];
+            if(priority[cell] >= priority[e])
+                break;
+            heap[k] = e;
+            heapIndex[e] = k;
+            k = parentIdx;
+        }
+        heap[k] = cell;
+        heapIndex[cell] = k;
+    }
 
+    private void siftDown(int k, int cell)
+    {
+        int half = heapSize >>> 1;
+        while(k < half)
+        {
+            int child = (k << 1) + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if(right < heapSize && priority[c] > priority[heap[right]])
+                c = heap[child = right];
+            if(priority[cell] <= priority[c])
+                break;
+            heap[k] = c;
+            heapIndex[c] = k;
+            k = child;
+        }
+        heap[k] = cell;
+        heapIndex[cell] = k;
     }
 
-    private int[][] uncompressPathId(int pathId)
+    /**
+     * Returns the index of the cell of a node, or -1 if it's out of the grid.
+     */
+    private int cellIndex(Node node)
     {
-        int[][] ends = new int[2][2];
+        int x = (int) node.position.x;
+        int y = (int) node.position.y;
+        if(x < 0 || x >= width || y < 0 || y >= height)
+            return -1;
+        return x * height + y;
+    }
 
-        int org =  pathId / 10000;
-        int dest = pathId % 10000;
+    private Node cellNode(int cell)
+    {
+        return new Node(new Vector2d(cell / height, cell % height));
+    }
 
-        ends[0] = new int[]{org/100 , org%100};
-        ends[1] = new int[]{dest/100 , dest%100};
-        return ends;
+    private long pathId(Node start, Node goal)
+    {
+        return (long) cellIndex(start) * width * height + cellIndex(goal);
     }
 
-    public void printPath(int pathId, ArrayList<Node> nodes)
+    public void printPath(Vector2d start, Vector2d goal, ArrayList<Node> nodes)
     {
         if(nodes == null)
         {
@@ -217,10 +443,8 @@ public class AStar
             return;
         }
 
-        int[][] endsIds = uncompressPathId(pathId);
-
-        String ends = "(" + endsIds[0][0] + "," + endsIds[0][1] + ") -> ("
-                + endsIds[1][0] + "," + endsIds[1][1] + ")";
+        String ends = "(" + (int) start.x + "," + (int) start.y + ") -> ("
+                + (int) goal.x + "," + (int) goal.y + ")";
 
 
         System.out.print("Path " + ends + "; ("+ nodes.size() + "): ");
@@ -0,0 +1,50 @@
+package tools.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Differences between the obstacles of a game state and the ones a PathFinder was run
+ * with (see PathFinder.getChanges()). Cells are indexed as x * height + y.
+ */
+public class ObstacleChanges
+{
+    /**
+     * No differences.
+     */
+    public static final ObstacleChanges NONE = new ObstacleChanges(new int[0], new int[0]);
+
+    /**
+     * Cells that have obstacles now but were free, in ascending order.
+     */
+    final int[] blocked;
+
+    /**
+     * Cells that had obstacles but are free now, in ascending order.
+     */
+    final int[] freed;
+
+    ObstacleChanges(int[] blocked, int[] freed)
+    {
+        this.blocked = blocked;
+        this.freed = freed;
+    }
+
+    /**
+     * Indicates if there are no differences.
+     * @return true if the obstacles are the same ones the path finder was run with.
+     */
+    public boolean isEmpty()
+    {
+        return blocked.length == 0 && freed.length == 0;
+    }
+
+    boolean isBlocked(int cell)
+    {
+        return Arrays.binarySearch(blocked, cell) >= 0;
+    }
+
+    boolean isFreed(int cell)
+    {
+        return Arrays.binarySearch(freed, cell) >= 0;
+    }
+}
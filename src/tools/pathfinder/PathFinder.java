@@ -1,11 +1,15 @@
 package tools.pathfinder;
 
+import core.game.Game;
 import core.game.Observation;
 import core.game.StateObservation;
+import core.vgdl.VGDLSprite;
 import ontology.Types;
 import tools.Vector2d;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 
 /**
  * Created by dperez on 14/01/16.
@@ -20,8 +24,23 @@ public class PathFinder {
     //All types are obstacles except the ones included in this array
     public ArrayList<Integer> obstacleItypes;
 
+    /**
+     * The same types, as flags indexed by type.
+     */
+    private boolean obstacleTypes[];
+
     public ArrayList<Observation> grid[][];
 
+    /**
+     * Cells of the grid that can't be traversed, taken from the grid when run() is called.
+     */
+    private boolean obstacles[][];
+
+    /**
+     * The same cells, indexed as x * height + y, in ascending order.
+     */
+    private int obstacleCells[];
+
 
     private static int[] x_arrNeig = null;
     private static int[] y_arrNeig = null;
@@ -29,25 +48,52 @@ public class PathFinder {
     public PathFinder(ArrayList<Integer> obstacleItypes)
     {
         this.obstacleItypes = obstacleItypes;
+
+        int maxType = -1;
+        for(Integer itype : obstacleItypes)
+            maxType = Math.max(maxType, itype);
+        obstacleTypes = new boolean[maxType + 1];
+        for(Integer itype : obstacleItypes)
+            obstacleTypes[itype] = true;
+    }
+
+    /**
+     * Checks if the sprites of a type are obstacles.
+     * @param itype type to check.
+     * @return true if the type is one of the obstacle types.
+     */
+    public boolean isObstacleType(int itype)
+    {
+        return itype >= 0 && itype < obstacleTypes.length && obstacleTypes[itype];
     }
 
+    /**
+     * Prepares the path finder for the level in the observation passed. Paths from each
+     * cell are searched the first time one of them is requested (see getPath()).
+     * @param stateObs observation of the level.
+     */
     public void run(StateObservation stateObs)
     {
         this.state = stateObs;
         this.grid = stateObs.getObservationGrid();
+
+        obstacles = new boolean[grid.length][grid[0].length];
+        int numObstacles = 0;
+        for(int i = 0; i < grid.length; ++i)
+            for(int j = 0; j < grid[i].length; ++j)
+                if(obstacles[i][j] = isObstacleCell(i, j))
+                    numObstacles++;
+
+        obstacleCells = new int[numObstacles];
+        numObstacles = 0;
+        for(int i = 0; i < grid.length; ++i)
+            for(int j = 0; j < grid[i].length; ++j)
+                if(obstacles[i][j])
+                    obstacleCells[numObstacles++] = i * grid[i].length + j;
+
         this.astar = new AStar(this);
 
         init();
-        runAll();
-
-        if(VERBOSE)
-        {
-            for(Integer pathId : astar.pathCache.keySet())
-            {
-                ArrayList<Node> nodes = astar.pathCache.get(pathId);
-                astar.printPath(pathId, nodes);
-            }
-        }
     }
 
     private void init()
@@ -70,42 +116,136 @@ public class PathFinder {
         }
     }
 
-    private void runAll()
+    public ArrayList<Node> getPath(Vector2d start, Vector2d end)
+    {
+        ArrayList<Node> path = astar.getPath(new Node(start), new Node(end));
+        if(VERBOSE)
+            astar.printPath(start, end, path);
+        return path;
+    }
+
+    /**
+     * Returns the path between two positions in a game state whose obstacles may not be the
+     * ones this path finder was run with (walls destroyed, created or pushed).
+     * @param start start position, in cells.
+     * @param end end position, in cells.
+     * @param changes differences in the obstacles of the game state (see getChanges()).
+     * @return the nodes of the path, or null if there's no path.
+     */
+    public ArrayList<Node> getPath(Vector2d start, Vector2d end, ObstacleChanges changes)
     {
-        for(int i = 0; i < grid.length; ++i)
+        ArrayList<Node> path = astar.getPath(new Node(start), new Node(end), changes);
+        if(VERBOSE)
+            astar.printPath(start, end, path);
+        return path;
+    }
+
+    /**
+     * Gets the differences between the obstacles in a game and the ones this path finder
+     * was run with. Cells are taken as in the observation grid: each sprite of an obstacle
+     * type that is not hidden occupies all the cells its position overlaps.
+     * @param game game to check.
+     * @return the cells that are obstacles now but weren't, and the other way around.
+     */
+    public ObstacleChanges getChanges(Game game)
+    {
+        int width = grid.length;
+        int height = grid[0].length;
+        int blockSize = game.getBlockSize();
+
+        int[] cells = new int[obstacleCells.length + 16];
+        int n = 0;
+
+        //Sprites of a type share their hidden string, so it is only parsed when it changes.
+        String hidden = null;
+        boolean isHidden = false;
+        for(Integer itype : obstacleItypes)
         {
-            for(int j = 0; j < grid[i].length; ++j)
+            Iterator<VGDLSprite> spriteIt = game.getSpriteGroup(itype);
+            if(spriteIt != null) while(spriteIt.hasNext())
             {
-                boolean obstacleCell = isObstacle(i,j);
-                if(!obstacleCell)
+                VGDLSprite sp = spriteIt.next();
+                if(sp.hidden != hidden)
                 {
-                    if(VERBOSE) System.out.println("Running from (" + i +  "," + j + ")");
-                    runAll(i,j);
+                    hidden = sp.hidden;
+                    isHidden = hidden != null && Boolean.parseBoolean(hidden.split(",")[0]);
                 }
+                if(isHidden)
+                    continue;
+
+                int px = sp.rect.x, py = sp.rect.y;
+                int x = px / blockSize;
+                int y = py / blockSize;
+                if(x < 0 || x >= width || y < 0 || y >= height)
+                    continue;
+                boolean xPlus = (px % blockSize) > 0 && x+1 < width;
+                boolean yPlus = (py % blockSize) > 0 && y+1 < height;
 
+                if(n + 4 > cells.length)
+                    cells = Arrays.copyOf(cells, cells.length * 2);
+                cells[n++] = x * height + y;
+                if(xPlus) cells[n++] = (x+1) * height + y;
+                if(yPlus) cells[n++] = x * height + y+1;
+                if(xPlus && yPlus) cells[n++] = (x+1) * height + y+1;
             }
         }
-    }
+        Arrays.sort(cells, 0, n);
 
-    public ArrayList<Node> getPath(Vector2d start, Vector2d end)
-    {
-        return astar.getPath(new Node(start), new Node(end));
-    }
-
-    private void runAll(int i, int j) {
-        Node start = new Node(new Vector2d(i,j));
-        Node goal = null; //To get all routes.
+        //Both lists are sorted, so the differences are found merging them.
+        int[] blocked = new int[n];
+        int[] freed = new int[obstacleCells.length];
+        int numBlocked = 0, numFreed = 0;
+        int i = 0, j = 0;
+        while(i < n || j < obstacleCells.length)
+        {
+            if(i > 0 && i < n && cells[i] == cells[i-1])
+                i++;
+            else if(j == obstacleCells.length || (i < n && cells[i] < obstacleCells[j]))
+                blocked[numBlocked++] = cells[i++];
+            else if(i == n || cells[i] > obstacleCells[j])
+                freed[numFreed++] = obstacleCells[j++];
+            else
+            {
+                i++;
+                j++;
+            }
+        }
 
-        astar.findPath(start, goal);
+        if(numBlocked == 0 && numFreed == 0)
+            return ObstacleChanges.NONE;
+        return new ObstacleChanges(Arrays.copyOf(blocked, numBlocked), Arrays.copyOf(freed, numFreed));
     }
 
+    boolean isObstacle(int row, int col)
+    {
+        if(row<0 || row>=grid.length) return true;
+        if(col<0 || col>=grid[row].length) return true;
 
+        return obstacles[row][col];
+    }
 
-    private boolean isObstacle(int row, int col)
+    /**
+     * Checks if a cell can't be traversed, with some differences in the obstacles.
+     * @param row x coordinate of the cell.
+     * @param col y coordinate of the cell.
+     * @param changes differences in the obstacles, or null if there are none.
+     * @return true if the cell is an obstacle.
+     */
+    boolean isObstacle(int row, int col, ObstacleChanges changes)
     {
+        if(changes == null)
+            return isObstacle(row, col);
         if(row<0 || row>=grid.length) return true;
         if(col<0 || col>=grid[row].length) return true;
 
+        int cell = row * grid[row].length + col;
+        if(obstacles[row][col])
+            return !changes.isFreed(cell);
+        return changes.isBlocked(cell);
+    }
+
+    private boolean isObstacleCell(int row, int col)
+    {
         for(Observation obs : grid[row][col])
         {
             if(obstacleItypes.contains(obs.itype))
@@ -132,5 +272,27 @@ public class PathFinder {
         return neighbours;
     }
 
+    /**
+     * Gets the cells next to a cell that can be traversed, in the same order as getNeighbours().
+     * Cells are indexed as x * height + y.
+     * @param x x coordinate of the cell.
+     * @param y y coordinate of the cell.
+     * @param neighbours array to write the indices of the cells to (at least 4 positions).
+     * @param changes differences in the obstacles, or null if there are none.
+     * @return the number of cells written.
+     */
+    int getNeighbours(int x, int y, int[] neighbours, ObstacleChanges changes)
+    {
+        int height = grid[0].length;
+        int n = 0;
+        for(int i = 0; i < x_arrNeig.length; ++i)
+        {
+            int nx = x + x_arrNeig[i];
+            int ny = y + y_arrNeig[i];
+            if(!isObstacle(nx, ny, changes))
+                neighbours[n++] = nx * height + ny;
+        }
+        return n;
+    }
 
 }
@@ -5,9 +5,15 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Random;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import core.vgdl.ParsedGame;
 import core.vgdl.VGDLFactory;
-import core.vgdl.VGDLParser;
 import core.vgdl.VGDLRegistry;
 import core.competition.CompetitionParameters;
 import core.game.Game;
@@ -95,8 +101,7 @@ public class ArcadeMachine {
 		}
 
 		// First, we create the game to be played..
-		Game toPlay = new VGDLParser().parseGame(game_file);
-		toPlay.buildLevel(level_file, randomSeed);
+		Game toPlay = ParsedGame.get(game_file).newGame(level_file, randomSeed);
 
 		// Warm the game up.
 		ArcadeMachine.warmUp(toPlay, CompetitionParameters.WARMUP_TIME);
@@ -202,8 +207,7 @@ public class ArcadeMachine {
 		VGDLRegistry.GetInstance().init();
 
 		// First, we create the game to be played..
-		Game toPlay = new VGDLParser().parseGame(game_file);
-		toPlay.buildLevel(level_file, 0);
+		Game toPlay = ParsedGame.get(game_file).newGame(level_file, 0);
 
 		String agentName;
 		if (toPlay.getNoPlayers() > 1) {
@@ -403,7 +407,7 @@ public class ArcadeMachine {
 			    + "you must supply an action file for each game instance to be played, or null.";
 	}
 
-	Game toPlay = new VGDLParser().parseGame(game_file);
+	Game toPlay = ParsedGame.get(game_file).newGame();
 	int levelIdx = 0;
 
 	StatSummary[] victories = new StatSummary[toPlay.getNoPlayers()];
@@ -424,92 +428,213 @@ public class ArcadeMachine {
 		// played.
 		int randomSeed = new Random().nextInt();
 
-		// build the level in the game.
-		toPlay.buildLevel(level_file, randomSeed);
-
 		String filename = recordActions ? actionFiles[levelIdx * level_times + i] : null;
+		double[][] results = playLevel(toPlay, level_file, randomSeed, agentName, filename);
+		addResults(results, victories, scores);
 
-		// Warm the game up.
-		ArcadeMachine.warmUp(toPlay, CompetitionParameters.WARMUP_TIME);
+		// reset the game.
+		toPlay.reset();
+	    }
 
-		// Create the player.
-		String[] agentNames = agentName.split(" ");
-		int no_players = agentNames.length;
+	    levelIdx++;
+	}
 
-		int disqCount = 0; // count how many players disqualified
-		double[] score = new double[no_players]; // store scores for all
-							 // the players
+	printResults(game_file, toPlay.no_players, victories, scores);
+    }
 
-		Player[] players;
-		if (no_players > 1) {
-		    // multi player games
-		    players = new AbstractMultiPlayer[no_players];
-		} else {
-		    // single player games
-		    players = new AbstractPlayer[no_players];
-		}
+    /**
+     * Same as runGames(), but plays the games in parallel in a pool of worker threads.
+     * Each worker plays on its own copy of the game, parsed in the calling thread before
+     * any game starts. The random seed of each game is drawn from a generator initialized
+     * with 'seed', in the order runGames() plays them, so results don't depend on the
+     * number of workers. Results are aggregated in that order too. Graphics always off.
+     * Agents must not keep state in static fields, as several instances play at the same time.
+     *
+     * @param game_file   game description file.
+     * @param level_files  array of level file names to play.
+     * @param level_times   how many times each level has to be played.
+     * @param agentName name of the agent(s) to play, separated by spaces in multi player games.
+     * @param actionFiles names of the files where the actions of this player, for this
+     *   game, should be recorded. Accepts null if no recording is desired. If not null,
+     *   this array must contain as much String objects as level_files.length*level_times.
+     * @param numWorkers number of games played at the same time.
+     * @param seed seed for the random seeds of the games.
+     */
+    public static void runGamesParallel(final String game_file, String[] level_files, int level_times,
+	    final String agentName, String[] actionFiles, int numWorkers, long seed) {
+	VGDLFactory.GetInstance().init(); // This always first thing to do.
+	VGDLRegistry.GetInstance().init();
 
-		for (int j = 0; j < no_players; j++) {
-		    if (no_players > 1) {
-			// multi player
-			players[j] = ArcadeMachine.createMultiPlayer(agentNames[j], filename,
-				toPlay.getObservationMulti(i), randomSeed, j, false);
-		    } else {
-			// single player
-			players[j] = ArcadeMachine.createPlayer(agentNames[j], filename, toPlay.getObservation(),
-				randomSeed, false);
-		    }
-		    score[j] = -1;
-		    if (players[j] == null) {
-				// Something went wrong in the constructor, controller
-				// disqualified
-				// toPlay.disqualify(j);
-				toPlay.getAvatars()[j].disqualify(true);
-
-				disqCount++;
-		    }
-		}
+	boolean recordActions = false;
+	if (actionFiles != null) {
+	    recordActions = true;
+	    assert actionFiles.length >= level_files.length
+		    * level_times : "runGamesParallel (actionFiles.length<level_files.length*level_times): "
+			    + "you must supply an action file for each game instance to be played, or null.";
+	}
 
-		// Play the game if at least 2 players in multiplayer games or
-		// at least 1 in single player.
-		// Get array of scores back.
-		if ((no_players - disqCount) >= toPlay.no_players) {
-		    score = toPlay.runGame(players, randomSeed);
-		    //score = toPlay.playGame(players, randomSeed, false, 0);
-		    toPlay.printResult();
-		} else {
-		    // Get the score for the result.
-		    score = toPlay.handleResult();
-		    toPlay.printResult();
-		}
+	// The game is parsed once, and each worker plays on its own game created from it.
+	ParsedGame description = ParsedGame.get(game_file);
+	final LinkedBlockingQueue<Game> games = new LinkedBlockingQueue<Game>();
+	for (int w = 0; w < numWorkers; w++)
+	    games.add(description.newGame());
+	int no_players = games.peek().no_players;
 
-		// Finally, when the game is over, we need to tear the players
-		// down.
-		if (!ArcadeMachine.tearPlayerDown(toPlay, players, filename, randomSeed, true)) {
-		    score = toPlay.handleResult();
-		    toPlay.printResult();
-		}
+	StatSummary[] victories = new StatSummary[games.peek().getNoPlayers()];
+	StatSummary[] scores = new StatSummary[games.peek().getNoPlayers()];
+	for (int i = 0; i < victories.length; i++) {
+	    victories[i] = new StatSummary();
+	    scores[i] = new StatSummary();
+	}
+	performance = new StatSummary();
 
-		// Get players stats
-		for (Player player : players)
-		    if (player != null) {
-			int id = player.getPlayerID();
-			scores[id].add(score[id]);
-			victories[id].add(toPlay.getWinner(id) == Types.WINNER.PLAYER_WINS ? 1 : 0);
+	Random seeds = new Random(seed);
+	ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+	ArrayList<Future<double[][]>> results = new ArrayList<Future<double[][]>>();
+	int levelIdx = 0;
+	for (final String level_file : level_files) {
+	    for (int i = 0; i < level_times; ++i) {
+		final int randomSeed = seeds.nextInt();
+		final String filename = recordActions ? actionFiles[levelIdx * level_times + i] : null;
+		results.add(workers.submit(new Callable<double[][]>() {
+		    @Override
+		    public double[][] call() throws Exception {
+			Game toPlay = games.take();
+			try {
+			    return playLevel(toPlay, level_file, randomSeed, agentName, filename);
+			} finally {
+			    toPlay.reset();
+			    games.put(toPlay);
+			}
 		    }
+		}));
+	    }
+	    levelIdx++;
+	}
 
-		// reset the game.
-		toPlay.reset();
+	try {
+	    for (Future<double[][]> result : results)
+		addResults(result.get(), victories, scores);
+	} catch (InterruptedException e) {
+	    throw new RuntimeException(e);
+	} catch (ExecutionException e) {
+	    throw new RuntimeException(e.getCause());
+	} finally {
+	    workers.shutdownNow();
+	}
+
+	printResults(game_file, no_players, victories, scores);
+    }
+
+    /**
+     * Builds a level in a game already parsed and plays it with the agents given, without
+     * graphics. The game must be reset before playing another level on it.
+     *
+     * @param toPlay game to play.
+     * @param level_file file with the level to be played.
+     * @param randomSeed random seed of the game.
+     * @param agentName name of the agent(s) to play, separated by spaces in multi player games.
+     * @param filename file where the actions of the player are recorded, or null.
+     * @return for each player, its score and 1 if it won (0 otherwise), or null if the
+     *         player could not be created.
+     */
+    private static double[][] playLevel(Game toPlay, String level_file, int randomSeed, String agentName,
+	    String filename) {
+	// build the level in the game.
+	toPlay.buildLevel(level_file, randomSeed);
+
+	// Warm the game up.
+	ArcadeMachine.warmUp(toPlay, CompetitionParameters.WARMUP_TIME);
+
+	// Create the player.
+	String[] agentNames = agentName.split(" ");
+	int no_players = agentNames.length;
+
+	int disqCount = 0; // count how many players disqualified
+	double[] score = new double[no_players]; // store scores for all
+						 // the players
+
+	Player[] players;
+	if (no_players > 1) {
+	    // multi player games
+	    players = new AbstractMultiPlayer[no_players];
+	} else {
+	    // single player games
+	    players = new AbstractPlayer[no_players];
+	}
+
+	for (int j = 0; j < no_players; j++) {
+	    if (no_players > 1) {
+		// multi player
+		players[j] = ArcadeMachine.createMultiPlayer(agentNames[j], filename,
+			toPlay.getObservationMulti(j), randomSeed, j, false);
+	    } else {
+		// single player
+		players[j] = ArcadeMachine.createPlayer(agentNames[j], filename, toPlay.getObservation(),
+			randomSeed, false);
 	    }
+	    score[j] = -1;
+	    if (players[j] == null) {
+		// Something went wrong in the constructor, controller
+		// disqualified
+		// toPlay.disqualify(j);
+		toPlay.getAvatars()[j].disqualify(true);
+
+		disqCount++;
+	    }
+	}
 
-	    levelIdx++;
+	// Play the game if at least 2 players in multiplayer games or
+	// at least 1 in single player.
+	// Get array of scores back.
+	if ((no_players - disqCount) >= toPlay.no_players) {
+	    score = toPlay.runGame(players, randomSeed);
+	    //score = toPlay.playGame(players, randomSeed, false, 0);
+	    toPlay.printResult();
+	} else {
+	    // Get the score for the result.
+	    score = toPlay.handleResult();
+	    toPlay.printResult();
+	}
+
+	// Finally, when the game is over, we need to tear the players
+	// down.
+	if (!ArcadeMachine.tearPlayerDown(toPlay, players, filename, randomSeed, true)) {
+	    score = toPlay.handleResult();
+	    toPlay.printResult();
 	}
 
+	// Get players stats
+	double[][] results = new double[no_players][];
+	for (Player player : players)
+	    if (player != null) {
+		int id = player.getPlayerID();
+		results[id] = new double[] { score[id], toPlay.getWinner(id) == Types.WINNER.PLAYER_WINS ? 1 : 0 };
+	    }
+	return results;
+    }
+
+    /**
+     * Adds the results of a game, as returned by playLevel(), to the statistics of each player.
+     */
+    private static void addResults(double[][] results, StatSummary[] victories, StatSummary[] scores) {
+	for (int id = 0; id < results.length; id++)
+	    if (results[id] != null) {
+		scores[id].add(results[id][0]);
+		victories[id].add(results[id][1]);
+	    }
+    }
+
+    /**
+     * Prints the average victories and scores of each player in a game.
+     */
+    private static void printResults(String game_file, int no_players, StatSummary[] victories,
+	    StatSummary[] scores) {
 	String vict = "", sc = "";
-	for (int i = 0; i < toPlay.no_players; i++) {
+	for (int i = 0; i < no_players; i++) {
 	    vict += victories[i].mean();
 	    sc += scores[i].mean();
-	    if (i != toPlay.no_players - 1) {
+	    if (i != no_players - 1) {
 		vict += ", ";
 		sc += ", ";
 	    }
@@ -812,7 +937,7 @@ public class ArcadeMachine {
         }
 
         // Reset input to delete warm-up effects.
-        Game.ki.resetAll();
+        toPlay.getKeyHandler().resetAll();
     }
 
     /**
@@ -184,15 +184,15 @@ public class SingleTreeNode
     {
         int thisDepth = this.m_depth;
 
-        while (!finishRollout(state,thisDepth)) {
-
-            //random move for all players
-            Types.ACTIONS[] acts = new Types.ACTIONS[no_players];
-            for (int i = 0; i < no_players; i++) {
-                acts[i] = actions[i][m_rnd.nextInt(NUM_ACTIONS[i])];
+        //Random moves for all players up to the rollout depth, all played at once (until the game ends).
+        if (!finishRollout(state,thisDepth)) {
+            Types.ACTIONS[][] sequence = new Types.ACTIONS[ROLLOUT_DEPTH - thisDepth][no_players];
+            for (Types.ACTIONS[] acts : sequence) {
+                for (int i = 0; i < no_players; i++) {
+                    acts[i] = actions[i][m_rnd.nextInt(NUM_ACTIONS[i])];
+                }
             }
-            state.advance(acts);
-            thisDepth++;
+            state.advanceSequence(sequence);
         }
 
 
@@ -18,6 +18,7 @@ public abstract class Comm extends Thread {
      * Variable to store the message type
      */
     protected Types.LEARNING_SSO_TYPE lastSsoType = Types.LEARNING_SSO_TYPE.JSON; // Type of message chosen by player (JSON/Image)
+    protected Types.LEARNING_IMAGE_FORMAT lastImageFormat = Types.LEARNING_IMAGE_FORMAT.PNG; // Encoding of the image chosen by player
 
     /**
      * Line separator for messages.
@@ -29,11 +30,43 @@ public abstract class Comm extends Thread {
      */
     protected String TOKEN_SEP = "#";
 
+    /**
+     * Token that a client adds to its START_DONE message to ask for the binary protocol.
+     */
+    public static final String BINARY_TOKEN = "BINARY";
+
+    /**
+     * Token that a client adds to its START_DONE message, with BINARY_TOKEN, to receive
+     * observations as deltas from the previous one (see DeltaObservationEncoder).
+     */
+    public static final String DELTA_TOKEN = "DELTA";
+
+    /**
+     * Kinds of binary frames: a text message, an observation encoded with
+     * SerializableStateObservation.serializeBinary(), or an observation encoded with
+     * DeltaObservationEncoder.
+     */
+    public static final byte FRAME_TEXT = 0;
+    public static final byte FRAME_SSO = 1;
+    public static final byte FRAME_SSO_DELTA = 2;
+
     /**
      * Message ID
      */
     protected long messageId;
 
+    /**
+     * True if the messages to the client are sent as binary frames instead of lines of text.
+     * Only enabled if the client asks for it at the start of the communication.
+     */
+    protected boolean binary;
+
+    /**
+     * True if observations are sent as deltas in binary mode. Only enabled if the client
+     * asks for it, together with the binary protocol.
+     */
+    protected boolean delta;
+
     /**
      * Default constructor
      */
@@ -66,7 +99,7 @@ public abstract class Comm extends Thread {
 
             SerializableStateObservation sso = new SerializableStateObservation(so);
 
-            commSend(sso.serialize(null));
+            commSend(sso);
 
             String response = commRecv();
 
@@ -171,7 +204,29 @@ public abstract class Comm extends Thread {
      */
     public abstract void commSend(String msg) throws IOException;
 
+    /**
+     * Sends an observation to the client, as JSON. Channels that support the binary
+     * protocol send it in binary if the client asked for it.
+     *
+     * @param sso observation to send.
+     */
+    public void commSend(SerializableStateObservation sso) throws IOException {
+        commSend(sso.serialize(null));
+    }
+
+    /**
+     * Indicates if the messages to the client are sent in binary.
+     * @return true if the binary protocol is in use.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
     public Types.LEARNING_SSO_TYPE getLastSsoType() {
         return this.lastSsoType;
     }
+
+    public Types.LEARNING_IMAGE_FORMAT getLastImageFormat() {
+        return this.lastImageFormat;
+    }
 }
@@ -5,11 +5,15 @@ package tracks.singleLearning.utils;
  */
 
 import core.competition.CompetitionParameters;
+import core.game.DeltaObservationEncoder;
+import core.game.SerializableStateObservation;
+import ontology.Types.LEARNING_IMAGE_FORMAT;
 import ontology.Types.LEARNING_SSO_TYPE;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 public class SocketComm extends Comm {
@@ -19,9 +23,17 @@ public class SocketComm extends Comm {
     private Socket socket;
     private Scanner in;
     private PrintStream out;
+    private DataOutputStream dataOut;
     private boolean end;
     private static int THRESHOLD = 60000;
 
+    /**
+     * In delta mode, a complete observation is sent every KEYFRAME_INTERVAL observations.
+     */
+    public static int KEYFRAME_INTERVAL = 100;
+    private DeltaObservationEncoder deltaEncoder = new DeltaObservationEncoder();
+    private int framesSinceKeyframe;
+
     /**
      * Public constructor of the player.
      */
@@ -48,6 +60,7 @@ public class SocketComm extends Comm {
             //Initialize input and output through socket.
             in = new Scanner(socket.getInputStream());
             out = new PrintStream(socket.getOutputStream());
+            dataOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
 
         } catch(java.net.BindException e)
         {
@@ -86,12 +99,57 @@ public class SocketComm extends Comm {
      * @param msg message to send.
      */
     public void commSend(String msg) throws IOException {
+        if (binary) {
+            sendFrame(FRAME_TEXT, msg.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
         String message = messageId + TOKEN_SEP + msg + lineSep;
         out.format(message);
         out.flush();
         messageId++;
     }
 
+    /**
+     * Sends an observation to the client, in binary if the client asked for it. In delta
+     * mode, the observation is sent as a delta from the last one the client answered,
+     * except for the first observation of each game, every KEYFRAME_INTERVAL observations,
+     * and after the client failed to answer, when the complete observation is sent.
+     *
+     * @param sso observation to send.
+     */
+    @Override
+    public void commSend(SerializableStateObservation sso) throws IOException {
+        if (!binary) {
+            super.commSend(sso);
+        } else if (delta && deltaEncoder.hasBase() && framesSinceKeyframe < KEYFRAME_INTERVAL
+                && sso.phase != SerializableStateObservation.Phase.INIT) {
+            sendFrame(FRAME_SSO_DELTA, deltaEncoder.encode(sso));
+            framesSinceKeyframe++;
+        } else {
+            sendFrame(FRAME_SSO, sso.serializeBinary());
+            if (delta) {
+                deltaEncoder.setBase(sso);
+                framesSinceKeyframe = 0;
+            }
+        }
+    }
+
+    /**
+     * Sends a binary frame: the number of bytes that follow (int), the message ID (long),
+     * the kind of frame (byte) and the payload.
+     *
+     * @param kind FRAME_TEXT or FRAME_SSO.
+     * @param payload bytes of the message.
+     */
+    private void sendFrame(byte kind, byte[] payload) throws IOException {
+        dataOut.writeInt(8 + 1 + payload.length);
+        dataOut.writeLong(messageId);
+        dataOut.writeByte(kind);
+        dataOut.write(payload);
+        dataOut.flush();
+        messageId++;
+    }
+
     /**
      * Receives a message from the client.
      *
@@ -161,6 +219,8 @@ public class SocketComm extends Comm {
         }
         if (response == null){
             System.err.println("SocketComm: commRecv: No message received. Time threshold exceeded.");
+            //The client may have missed the last observation, so the next one must be complete.
+            deltaEncoder.reset();
         }
         return response;
     }
@@ -179,9 +239,10 @@ public class SocketComm extends Comm {
                 int receivedID = Integer.parseInt(messageParts[0]);
                 String msg = messageParts[1];
 
-                if (messageParts.length >= 3) {
-                    String ssoType = messageParts[2];
-                    switch (ssoType) {
+                //Optional tokens: type of observation, format of the image and binary protocol.
+                for (int i = 2; i < messageParts.length; i++) {
+                    String token = messageParts[i].trim();
+                    switch (token) {
                         case "JSON":
                             this.lastSsoType = LEARNING_SSO_TYPE.JSON;
                             break;
@@ -191,8 +252,26 @@ public class SocketComm extends Comm {
                         case "BOTH":
                             this.lastSsoType = LEARNING_SSO_TYPE.BOTH;
                             break;
+                        case "PNG":
+                            this.lastImageFormat = LEARNING_IMAGE_FORMAT.PNG;
+                            break;
+                        case "RGB":
+                            this.lastImageFormat = LEARNING_IMAGE_FORMAT.RGB;
+                            break;
+                        case "GRAY":
+                            this.lastImageFormat = LEARNING_IMAGE_FORMAT.GRAY;
+                            break;
+                        case BINARY_TOKEN:
+                            //Only negotiated at the start, the client switches right after sending it.
+                            if (msg.trim().equals("START_DONE"))
+                                this.binary = true;
+                            break;
+                        case DELTA_TOKEN:
+                            if (msg.trim().equals("START_DONE"))
+                                this.delta = true;
+                            break;
                         default:
-                            System.err.println("SocketComm: commRecv(): This should never happen.");
+                            System.err.println("SocketComm: commRecv(): unknown token " + token);
                             break;
                     }
                 }
@@ -24,6 +24,8 @@ public class Test {
         String sampleRSController = "tracks.singlePlayer.advanced.sampleRS.Agent";
         String sampleRHEAController = "tracks.singlePlayer.advanced.sampleRHEA.Agent";
 		String sampleOLETSController = "tracks.singlePlayer.advanced.olets.Agent";
+		String sampleTTMCTSController = "tracks.singlePlayer.advanced.ttMCTS.Agent";
+		String sampleParallelMCTSController = "tracks.singlePlayer.advanced.parallelMCTS.Agent";
 
 		//Load available games
 		String spGamesCollection =  "examples/all_games_sp.csv";
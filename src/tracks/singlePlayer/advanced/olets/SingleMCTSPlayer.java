@@ -262,10 +262,12 @@ public class SingleMCTSPlayer {
     public double rollOut(StateObservation _currentObservation)
     {
         int rolloutDepth = 0;
-        while (!finishRollout(_currentObservation,rolloutDepth)) {
-            int action = randomGenerator.nextInt(agent.NUM_ACTIONS);
-            _currentObservation.advance(agent.actions[action]);
-            rolloutDepth++;
+        if (!finishRollout(_currentObservation,rolloutDepth)) {
+            //All the moves are played at once, until the game ends.
+            Types.ACTIONS[] sequence = new Types.ACTIONS[MCTSRolloutDepth];
+            for (int i = 0; i < sequence.length; i++)
+                sequence[i] = agent.actions[randomGenerator.nextInt(agent.NUM_ACTIONS)];
+            rolloutDepth = _currentObservation.advanceSequence(sequence);
         }
 
         return value(_currentObservation, rolloutDepth);
@@ -0,0 +1,83 @@
+package tracks.singlePlayer.advanced.parallelMCTS;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import core.game.StateObservation;
+import core.player.AbstractPlayer;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+
+/**
+ * MCTS UCT that searches with one thread per available processor (see ParallelMCTSPlayer).
+ * The threads build a single shared tree by default; set MODE to ROOT to build one tree per
+ * thread instead.
+ */
+public class Agent extends AbstractPlayer {
+
+    /**
+     * How the threads share the search.
+     */
+    public static ParallelMCTSPlayer.Mode MODE = ParallelMCTSPlayer.Mode.TREE;
+
+    /**
+     * Number of threads of the search.
+     */
+    public static int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+    public int num_actions;
+    public Types.ACTIONS[] actions;
+
+    protected ParallelMCTSPlayer mctsPlayer;
+
+    /**
+     * Public constructor with state observation and time due.
+     * @param so state observation of the current game.
+     * @param elapsedTimer Timer for the controller creation.
+     */
+    public Agent(StateObservation so, ElapsedCpuTimer elapsedTimer)
+    {
+        //Get the actions in a static array.
+        ArrayList<Types.ACTIONS> act = so.getAvailableActions();
+        actions = new Types.ACTIONS[act.size()];
+        for(int i = 0; i < actions.length; ++i)
+        {
+            actions[i] = act.get(i);
+        }
+        num_actions = actions.length;
+
+        //Create the player.
+        mctsPlayer = new ParallelMCTSPlayer(MODE, NUM_THREADS, new Random().nextLong(), actions);
+    }
+
+
+    /**
+     * Picks an action. This function is called every game step to request an
+     * action from the player.
+     * @param stateObs Observation of the current state.
+     * @param elapsedTimer Timer when the action returned is due.
+     * @return An action for the current state
+     */
+    public Types.ACTIONS act(StateObservation stateObs, ElapsedCpuTimer elapsedTimer) {
+
+        //Set the state observation object as the new root of the tree.
+        mctsPlayer.init(stateObs);
+
+        //Determine the action using MCTS...
+        int action = mctsPlayer.run(elapsedTimer);
+
+        //... and return it.
+        return actions[action];
+    }
+
+    /**
+     * Stops the threads of the search at the end of the game.
+     * @param stateObs the game state at the end of the game
+     * @param elapsedCpuTimer timer when this method is meant to finish.
+     */
+    public void result(StateObservation stateObs, ElapsedCpuTimer elapsedCpuTimer)
+    {
+        mctsPlayer.shutdown();
+    }
+
+}
@@ -0,0 +1,237 @@
+package tracks.singlePlayer.advanced.parallelMCTS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import core.game.StateObservation;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+import tools.Utils;
+import tracks.singlePlayer.advanced.sampleMCTS.SingleTreeNode;
+
+/**
+ * MCTS player that searches with several threads. Each thread advances its own copies of the
+ * state, so they don't share any forward model. There are two ways of sharing the work:
+ * - ROOT: each thread builds its own tree, as the sample MCTS does, and the visits of the
+ *   actions of the root of all the trees are added up to pick the action.
+ * - TREE: all threads build the same tree (see SharedTreeNode), that is not locked.
+ *
+ * The search is bounded either by the time of the action (a wall-clock deadline, as the CPU
+ * time of the thread that calls run() doesn't advance while it waits for the workers) or by
+ * a total number of iterations, for offline planning.
+ */
+public class ParallelMCTSPlayer
+{
+    public enum Mode { ROOT, TREE }
+
+    /**
+     * Time kept to return the action, in milliseconds.
+     */
+    public static long SAFETY_MARGIN = 5;
+
+    public final Mode mode;
+    public final int numThreads;
+    public Types.ACTIONS[] actions;
+
+    /**
+     * Total number of iterations of each search, or 0 to search until the action is due.
+     */
+    public int iterationBudget;
+
+    /**
+     * Number of iterations run by all the threads in the last search.
+     */
+    public int lastIterations;
+
+    private final ExecutorService pool;
+    private final Random[] rnds;
+    private StateObservation rootState;
+
+    /**
+     * Creates the player and its threads.
+     * @param mode how the threads share the search.
+     * @param numThreads number of threads.
+     * @param seed seed of the random generators of the threads.
+     * @param actions actions available in the game.
+     */
+    public ParallelMCTSPlayer(Mode mode, int numThreads, long seed, Types.ACTIONS[] actions)
+    {
+        this.mode = mode;
+        this.numThreads = numThreads;
+        this.actions = actions;
+
+        rnds = new Random[numThreads];
+        Random seeds = new Random(seed);
+        for(int i = 0; i < numThreads; ++i)
+            rnds[i] = new Random(seeds.nextLong());
+
+        pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "parallelMCTS-" + count.incrementAndGet());
+                t.setDaemon(true);     //Don't keep the game running if shutdown() is not called.
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Sets the state to search from.
+     * @param a_gameState current state of the game.
+     */
+    public void init(StateObservation a_gameState)
+    {
+        rootState = a_gameState;
+    }
+
+    /**
+     * Runs MCTS to decide the action to take.
+     * @param elapsedTimer Timer when the action returned is due. Not used, and may be null, if
+     *                     there is an iteration budget.
+     * @return the action to execute in the game.
+     */
+    public int run(ElapsedCpuTimer elapsedTimer)
+    {
+        final long deadline = (iterationBudget > 0) ? Long.MAX_VALUE : System.nanoTime() +
+                (elapsedTimer.remainingTimeMillis() - SAFETY_MARGIN) * 1000000L;
+        final AtomicInteger iterations = new AtomicInteger();
+
+        //Copies are made here, as the root state can't be copied by several threads at once.
+        final StateObservation[] roots = new StateObservation[numThreads];
+        for(int i = 0; i < numThreads; ++i)
+            roots[i] = rootState.copy();
+
+        final SharedTreeNode sharedRoot = (mode == Mode.TREE) ? new SharedTreeNode(actions) : null;
+        final SingleTreeNode[] trees = new SingleTreeNode[numThreads];
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numThreads);
+        for(int i = 0; i < numThreads; ++i)
+        {
+            final int id = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    if(mode == Mode.TREE)
+                        searchShared(sharedRoot, roots[id], rnds[id], deadline, iterations);
+                    else
+                        trees[id] = searchOwn(roots[id], rnds[id], deadline, iterations);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for(Future<Void> f : pool.invokeAll(tasks))
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        lastIterations = iterations.get();
+
+        //Pick the most visited action, breaking ties by their average value.
+        Random rnd = rnds[0];
+        int selected = 0;
+        double bestVisits = -1, bestValue = -Double.MAX_VALUE;
+        for(int a = 0; a < actions.length; ++a)
+        {
+            int visits = 0;
+            double totValue = 0;
+            if(mode == Mode.TREE)
+            {
+                visits = sharedRoot.getChildVisits(a);
+                totValue = sharedRoot.getChildValue(a) * visits;
+            }else
+            {
+                for(SingleTreeNode tree : trees)
+                {
+                    SingleTreeNode child = (tree == null) ? null : tree.children[a];
+                    if(child != null)
+                    {
+                        visits += child.nVisits;
+                        totValue += child.totValue;
+                    }
+                }
+            }
+            if(visits == 0)
+                continue;
+
+            double value = Utils.noise(totValue / visits, 1e-6, rnd.nextDouble());
+            if(visits > bestVisits || (visits == bestVisits && value > bestValue))
+            {
+                selected = a;
+                bestVisits = visits;
+                bestValue = value;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Builds a tree of the sample MCTS, from a copy of the root state that only this thread uses.
+     */
+    private SingleTreeNode searchOwn(StateObservation root, Random rnd, long deadline, AtomicInteger iterations)
+    {
+        SingleTreeNode tree = new SingleTreeNode(rnd, actions.length, actions);
+        tree.rootState = root;
+        StateObservation state = root.copy();
+        while(keepSearching(deadline, iterations))
+        {
+            state.copyFrom(root);
+            SingleTreeNode selected = tree.treePolicy(state);
+            double delta = selected.rollOut(state);
+            tree.backUp(selected, delta);
+        }
+        return tree;
+    }
+
+    /**
+     * Adds iterations to the tree shared by all the threads.
+     */
+    private void searchShared(SharedTreeNode tree, StateObservation root, Random rnd, long deadline,
+                              AtomicInteger iterations)
+    {
+        StateObservation state = root.copy();
+        while(keepSearching(deadline, iterations))
+        {
+            state.copyFrom(root);
+            tree.iterate(state, rnd);
+        }
+    }
+
+    /**
+     * Indicates if a thread can start a new iteration, and counts it if so.
+     */
+    private boolean keepSearching(long deadline, AtomicInteger iterations)
+    {
+        if(iterationBudget > 0)
+        {
+            if(iterations.incrementAndGet() <= iterationBudget)
+                return true;
+            iterations.decrementAndGet();
+            return false;
+        }
+        if(System.nanoTime() >= deadline)
+            return false;
+        iterations.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Stops the threads of the player.
+     */
+    public void shutdown()
+    {
+        pool.shutdownNow();
+    }
+}
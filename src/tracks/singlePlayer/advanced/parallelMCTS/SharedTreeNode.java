@@ -0,0 +1,224 @@
+package tracks.singlePlayer.advanced.parallelMCTS;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import core.game.StateObservation;
+import ontology.Types;
+import tools.Utils;
+
+/**
+ * Node of a tree searched by several threads at once (tree parallelisation). The statistics of
+ * the nodes are updated without locks, and each thread adds a virtual loss to the nodes it
+ * goes through until its iteration is backed up, so the other threads explore other branches
+ * meanwhile. The search itself follows the sample MCTS: UCT selection, random rollouts and
+ * the score of the game (plus a large bonus or penalty at the end of the game) as the value.
+ */
+public class SharedTreeNode
+{
+    private static final double HUGE_NEGATIVE = -10000000.0;
+    private static final double HUGE_POSITIVE =  10000000.0;
+    public static double epsilon = 1e-6;
+    public static int ROLLOUT_DEPTH = 10;
+    public static double K = Math.sqrt(2);
+
+    /**
+     * Lowest and highest values seen in the whole tree, to normalise the values of the nodes.
+     */
+    private static class Bounds
+    {
+        private final AtomicLong min = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+        private final AtomicLong max = new AtomicLong(Double.doubleToLongBits(-Double.MAX_VALUE));
+
+        void update(double value)
+        {
+            long current;
+            while(value < Double.longBitsToDouble(current = min.get()))
+                if(min.compareAndSet(current, Double.doubleToLongBits(value))) break;
+            while(value > Double.longBitsToDouble(current = max.get()))
+                if(max.compareAndSet(current, Double.doubleToLongBits(value))) break;
+        }
+
+        double min() { return Double.longBitsToDouble(min.get()); }
+        double max() { return Double.longBitsToDouble(max.get()); }
+    }
+
+    public final SharedTreeNode parent;
+    public final int childIdx;
+    public final int m_depth;
+    private final AtomicReferenceArray<SharedTreeNode> children;
+    private final Types.ACTIONS[] actions;
+    private final Bounds bounds;
+
+    private final AtomicInteger nVisits = new AtomicInteger();
+    private final DoubleAdder totValue = new DoubleAdder();
+    private final AtomicInteger virtualLoss = new AtomicInteger();
+
+    /**
+     * Creates the root of a tree.
+     * @param actions actions available in the game.
+     */
+    public SharedTreeNode(Types.ACTIONS[] actions)
+    {
+        this(null, -1, actions, new Bounds());
+    }
+
+    private SharedTreeNode(SharedTreeNode parent, int childIdx, Types.ACTIONS[] actions, Bounds bounds)
+    {
+        this.parent = parent;
+        this.childIdx = childIdx;
+        this.actions = actions;
+        this.bounds = bounds;
+        this.children = new AtomicReferenceArray<SharedTreeNode>(actions.length);
+        this.m_depth = (parent == null) ? 0 : parent.m_depth + 1;
+    }
+
+    /**
+     * Runs one iteration of MCTS from this node.
+     * @param state copy of the state of this node, that is advanced by the iteration.
+     * @param rnd random generator of the thread.
+     */
+    public void iterate(StateObservation state, Random rnd)
+    {
+        SharedTreeNode selected = treePolicy(state, rnd);
+        double delta = selected.rollOut(state, rnd);
+        bounds.update(delta);
+        selected.backUp(delta);
+    }
+
+    private SharedTreeNode treePolicy(StateObservation state, Random rnd)
+    {
+        SharedTreeNode cur = this;
+        cur.virtualLoss.incrementAndGet();
+
+        while (!state.isGameOver() && cur.m_depth < ROLLOUT_DEPTH)
+        {
+            SharedTreeNode next = cur.expand(state, rnd);
+            if (next == null)
+                next = cur.uct(state, rnd);
+            next.virtualLoss.incrementAndGet();
+            if (next.nVisits.get() == 0)
+                return next;
+            cur = next;
+        }
+
+        return cur;
+    }
+
+    /**
+     * Adds a new child to this node, for a random action not expanded yet, and advances the
+     * state with its action. Other threads may be expanding this node at the same time.
+     * @return the new child, or null if this node is fully expanded.
+     */
+    private SharedTreeNode expand(StateObservation state, Random rnd)
+    {
+        int numActions = actions.length;
+        int start = rnd.nextInt(numActions);
+        for (int i = 0; i < numActions; i++)
+        {
+            int idx = (start + i) % numActions;
+            if (children.get(idx) == null)
+            {
+                SharedTreeNode tn = new SharedTreeNode(this, idx, actions, bounds);
+                if (children.compareAndSet(idx, null, tn))
+                {
+                    state.advance(actions[idx]);
+                    return tn;
+                }
+            }
+        }
+        return null;
+    }
+
+    private SharedTreeNode uct(StateObservation state, Random rnd)
+    {
+        double min = bounds.min(), max = bounds.max();
+        double logVisits = Math.log(this.nVisits.get() + this.virtualLoss.get() + 1);
+
+        SharedTreeNode selected = null;
+        double bestValue = -Double.MAX_VALUE;
+        for (int i = 0; i < children.length(); i++)
+        {
+            SharedTreeNode child = children.get(i);
+
+            //Pending iterations of other threads count as losses until they are backed up.
+            int loss = child.virtualLoss.get();
+            double visits = child.nVisits.get() + loss;
+            double childValue = (child.totValue.sum() + loss * min) / (visits + epsilon);
+            childValue = Utils.normalise(childValue, min, max);
+
+            double uctValue = childValue + K * Math.sqrt(logVisits / (visits + epsilon));
+            uctValue = Utils.noise(uctValue, epsilon, rnd.nextDouble());     //break ties randomly
+
+            if (uctValue > bestValue) {
+                selected = child;
+                bestValue = uctValue;
+            }
+        }
+
+        //Roll the state:
+        state.advance(actions[selected.childIdx]);
+        return selected;
+    }
+
+    private double rollOut(StateObservation state, Random rnd)
+    {
+        //Random actions up to the rollout depth, all played at once (until the game ends).
+        if (this.m_depth < ROLLOUT_DEPTH && !state.isGameOver())
+        {
+            Types.ACTIONS[] sequence = new Types.ACTIONS[ROLLOUT_DEPTH - this.m_depth];
+            for (int i = 0; i < sequence.length; i++)
+                sequence[i] = actions[rnd.nextInt(actions.length)];
+            state.advanceSequence(sequence);
+        }
+
+        boolean gameOver = state.isGameOver();
+        Types.WINNER win = state.getGameWinner();
+        double rawScore = state.getGameScore();
+
+        if(gameOver && win == Types.WINNER.PLAYER_LOSES)
+            rawScore += HUGE_NEGATIVE;
+
+        if(gameOver && win == Types.WINNER.PLAYER_WINS)
+            rawScore += HUGE_POSITIVE;
+
+        return rawScore;
+    }
+
+    private void backUp(double result)
+    {
+        for (SharedTreeNode n = this; n != null; n = n.parent)
+        {
+            n.totValue.add(result);
+            n.nVisits.incrementAndGet();
+            n.virtualLoss.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of visits of the child of an action.
+     * @param action index of the action.
+     * @return the visits of the child, or 0 if it has not been expanded.
+     */
+    public int getChildVisits(int action)
+    {
+        SharedTreeNode child = children.get(action);
+        return (child == null) ? 0 : child.nVisits.get();
+    }
+
+    /**
+     * Returns the average value of the child of an action.
+     * @param action index of the action.
+     * @return the average value of the child, or -Double.MAX_VALUE if it has not been expanded.
+     */
+    public double getChildValue(int action)
+    {
+        SharedTreeNode child = children.get(action);
+        if (child == null)
+            return -Double.MAX_VALUE;
+        return child.totValue.sum() / (child.nVisits.get() + epsilon);
+    }
+}
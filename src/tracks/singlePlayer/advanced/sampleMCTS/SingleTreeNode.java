@@ -56,10 +56,15 @@ public class SingleTreeNode
         int numIters = 0;
 
         int remainingLimit = 5;
+        StateObservation state = null;
         while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
         //while(numIters < Agent.MCTS_ITERATIONS){
 
-            StateObservation state = rootState.copy();
+            //The same copy is restored to the root state in every iteration.
+            if(state == null)
+                state = rootState.copy();
+            else
+                state.copyFrom(rootState);
 
             ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
             SingleTreeNode selected = treePolicy(state);
@@ -154,11 +159,12 @@ public class SingleTreeNode
     {
         int thisDepth = this.m_depth;
 
-        while (!finishRollout(state,thisDepth)) {
-
-            int action = m_rnd.nextInt(num_actions);
-            state.advance(actions[action]);
-            thisDepth++;
+        //Random actions up to the rollout depth, all played at once (until the game ends).
+        if (!finishRollout(state,thisDepth)) {
+            Types.ACTIONS[] sequence = new Types.ACTIONS[ROLLOUT_DEPTH - thisDepth];
+            for (int i = 0; i < sequence.length; i++)
+                sequence[i] = actions[m_rnd.nextInt(num_actions)];
+            state.advanceSequence(sequence);
         }
 
 
@@ -6,6 +6,7 @@ import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tracks.singlePlayer.tools.Heuristics.StateHeuristic;
 import tracks.singlePlayer.tools.Heuristics.WinScoreHeuristic;
+import tracks.singlePlayer.tools.prefixCache.PrefixCache;
 
 import java.util.*;
 
@@ -20,6 +21,9 @@ public class Agent extends AbstractPlayer {
     private int MUTATION = 1;
     private int TOURNAMENT_SIZE = 2;
     private int ELITISM = 1;
+    private boolean SHIFT_BUFFER = true;    // start from the last population, shifted one action
+    private boolean PREFIX_CACHE = true;    // re-use the states of action prefixes already simulated
+    private int CACHE_CAPACITY = 1000;
     private StateHeuristic heuristic;
 
     // Constants
@@ -34,6 +38,8 @@ public class Agent extends AbstractPlayer {
     private int N_ACTIONS;
     private HashMap<Integer, Types.ACTIONS> action_mapping;
     private Random randomGenerator;
+    private PrefixCache cache;
+    private int lastAction = -1;
 
     // Budgets
     private ElapsedCpuTimer timer;
@@ -152,16 +158,29 @@ public class Agent extends AbstractPlayer {
 
         ElapsedCpuTimer elapsedTimerIterationEval = new ElapsedCpuTimer();
 
-        StateObservation st = state.copy();
+        if (cache != null) {
+            // The same sequence may have already been evaluated from this state
+            double known = cache.getValue(individual.actions);
+            if (!Double.isNaN(known)) {
+                individual.value = known;
+                numEvals++;
+                return individual.value;
+            }
+        }
+
+        // Start from the state of the longest prefix of the individual already simulated
+        StateObservation st = (cache != null) ? cache.start(individual.actions) : state.copy();
+        int first = (cache != null) ? cache.getPrefixLength() : 0;
         int i;
         double acum = 0, avg;
-        for (i = 0; i < SIMULATION_DEPTH; i++) {
+        for (i = first; i < SIMULATION_DEPTH; i++) {
             if (! st.isGameOver()) {
                 ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
                 st.advance(action_mapping.get(individual.actions[i]));
+                if (cache != null) cache.visit(st, individual.actions[i]);
 
                 acum += elapsedTimerIteration.elapsedMillis();
-                avg = acum / (i+1);
+                avg = acum / (i - first + 1);
                 remaining = timer.remainingTimeMillis();
                 if (remaining < 2*avg || remaining < BREAK_MS) break;
             } else {
@@ -170,6 +189,7 @@ public class Agent extends AbstractPlayer {
         }
 
         individual.value = heuristic.evaluateState(st);
+        if (cache != null && (i == SIMULATION_DEPTH || st.isGameOver())) cache.setValue(st, individual.value);
 
         numEvals++;
         acumTimeTakenEval += (elapsedTimerIterationEval.elapsedMillis());
@@ -227,6 +247,8 @@ public class Agent extends AbstractPlayer {
 
         double remaining = timer.remainingTimeMillis();
 
+        int lastNActions = N_ACTIONS;
+        Individual[] lastPop = population;
         N_ACTIONS = stateObs.getAvailableActions().size() + 1;
         action_mapping = new HashMap<>();
         int k = 0;
@@ -236,11 +258,24 @@ public class Agent extends AbstractPlayer {
         }
         action_mapping.put(k, Types.ACTIONS.ACTION_NIL);
 
+        if (N_ACTIONS != lastNActions) {
+            lastPop = null;
+            cache = null;
+            lastAction = -1;
+        }
+        if (PREFIX_CACHE) {
+            if (cache == null) cache = new PrefixCache(N_ACTIONS, CACHE_CAPACITY);
+            cache.setRoot(stateObs, lastAction);
+        }
+
         population = new Individual[POPULATION_SIZE];
         nextPop = new Individual[POPULATION_SIZE];
         for (int i = 0; i < POPULATION_SIZE; i++) {
             if (i == 0 || remaining > avgTimeTakenEval && remaining > BREAK_MS) {
-                population[i] = new Individual(SIMULATION_DEPTH, N_ACTIONS, randomGenerator);
+                if (SHIFT_BUFFER && lastPop != null && lastPop[i] != null)
+                    population[i] = lastPop[i].shift();
+                else
+                    population[i] = new Individual(SIMULATION_DEPTH, N_ACTIONS, randomGenerator);
                 evaluate(population[i], heuristic, stateObs);
                 remaining = timer.remainingTimeMillis();
                 NUM_INDIVIDUALS = i+1;
@@ -273,6 +308,7 @@ public class Agent extends AbstractPlayer {
      */
     private Types.ACTIONS get_best_action(Individual[] pop) {
         int bestAction = pop[0].actions[0];
+        lastAction = bestAction;
         return action_mapping.get(bestAction);
     }
 
@@ -49,6 +49,16 @@ public class Individual implements Comparable{
         return b;
     }
 
+    /**
+     * Returns new individual, for the next game step
+     * @return - new individual with the actions of this one from the second on, and a random last action
+     */
+    Individual shift() {
+        Individual b = new Individual(actions.length, nLegalActions, gen);
+        System.arraycopy(actions, 1, b.actions, 0, actions.length - 1);
+        return b;
+    }
+
     /**
      * Modifies individual
      * @param CROSSOVER_TYPE - type of crossover
@@ -6,6 +6,7 @@ import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tracks.singlePlayer.tools.Heuristics.StateHeuristic;
 import tracks.singlePlayer.tools.Heuristics.WinScoreHeuristic;
+import tracks.singlePlayer.tools.prefixCache.PrefixCache;
 
 import java.util.*;
 
@@ -13,6 +14,9 @@ public class Agent extends AbstractPlayer {
 
     // Parameters
     private int SIMULATION_DEPTH = 10;
+    private boolean SHIFT_BUFFER = true;    // start from the last best individual, shifted one action
+    private boolean PREFIX_CACHE = true;    // re-use the states of action prefixes already simulated
+    private int CACHE_CAPACITY = 1000;
     private StateHeuristic heuristic;
 
     // Constants
@@ -24,6 +28,8 @@ public class Agent extends AbstractPlayer {
     private int NUM_INDIVIDUALS;
     private HashMap<Integer, Types.ACTIONS> action_mapping;
     private Random randomGenerator;
+    private PrefixCache cache;
+    private int lastAction = -1;
 
     // Budget
     private ElapsedCpuTimer timer;
@@ -74,16 +80,29 @@ public class Agent extends AbstractPlayer {
 
         ElapsedCpuTimer elapsedTimerIterationEval = new ElapsedCpuTimer();
 
-        StateObservation st = state.copy();
+        if (cache != null) {
+            // The same sequence may have already been evaluated from this state
+            double known = cache.getValue(individual.actions);
+            if (!Double.isNaN(known)) {
+                individual.value = known;
+                numEvals++;
+                return individual.value;
+            }
+        }
+
+        // Start from the state of the longest prefix of the individual already simulated
+        StateObservation st = (cache != null) ? cache.start(individual.actions) : state.copy();
+        int first = (cache != null) ? cache.getPrefixLength() : 0;
         int i;
-        for (i = 0; i < SIMULATION_DEPTH; i++) {
+        for (i = first; i < SIMULATION_DEPTH; i++) {
             double acum = 0, avg;
             if (! st.isGameOver()) {
                 ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
                 st.advance(action_mapping.get(individual.actions[i]));
+                if (cache != null) cache.visit(st, individual.actions[i]);
 
                 acum += elapsedTimerIteration.elapsedMillis();
-                avg = acum / (i+1);
+                avg = acum / (i - first + 1);
                 remaining = timer.remainingTimeMillis();
                 if (remaining < 2*avg || remaining < BREAK_MS) break;
             } else {
@@ -92,6 +111,7 @@ public class Agent extends AbstractPlayer {
         }
 
         individual.value = heuristic.evaluateState(st);
+        if (cache != null && (i == SIMULATION_DEPTH || st.isGameOver())) cache.setValue(st, individual.value);
 
         numEvals++;
         acumTimeTakenEval += (elapsedTimerIterationEval.elapsedMillis());
@@ -109,6 +129,8 @@ public class Agent extends AbstractPlayer {
 
         double remaining;
 
+        Individual lastBest = (population != null && !population.isEmpty()) ? population.get(0) : null;
+        int lastNActions = (action_mapping != null) ? action_mapping.size() : 0;
         int n_ACTIONS = stateObs.getAvailableActions().size() + 1;
         action_mapping = new HashMap<>();
         int k = 0;
@@ -118,11 +140,25 @@ public class Agent extends AbstractPlayer {
         }
         action_mapping.put(k, Types.ACTIONS.ACTION_NIL);
 
+        if (n_ACTIONS != lastNActions) {
+            lastBest = null;
+            cache = null;
+            lastAction = -1;
+        }
+        if (PREFIX_CACHE) {
+            if (cache == null) cache = new PrefixCache(n_ACTIONS, CACHE_CAPACITY);
+            cache.setRoot(stateObs, lastAction);
+        }
+
         NUM_INDIVIDUALS = 0;
 
         population = new ArrayList<>();
         do {
-            Individual newInd = new Individual(SIMULATION_DEPTH, n_ACTIONS, randomGenerator);
+            Individual newInd;
+            if (SHIFT_BUFFER && lastBest != null && NUM_INDIVIDUALS == 0)
+                newInd = lastBest.shift();
+            else
+                newInd = new Individual(SIMULATION_DEPTH, n_ACTIONS, randomGenerator);
             evaluate(newInd, heuristic, stateObs);
             population.add(newInd);
             remaining = timer.remainingTimeMillis();
@@ -151,6 +187,7 @@ public class Agent extends AbstractPlayer {
      */
     private Types.ACTIONS get_best_action(ArrayList<Individual> pop) {
         int bestAction = pop.get(0).actions[0];
+        lastAction = bestAction;
         return action_mapping.get(bestAction);
     }
 
@@ -21,6 +21,16 @@ public class Individual implements Comparable{
         System.arraycopy(a, 0, actions, 0, a.length);
     }
 
+    /**
+     * Returns new individual, for the next game step
+     * @return - new individual with the actions of this one from the second on, and a random last action
+     */
+    Individual shift() {
+        Individual b = new Individual(actions.length, nLegalActions, gen);
+        System.arraycopy(actions, 1, b.actions, 0, actions.length - 1);
+        return b;
+    }
+
     @Override
     public int compareTo(Object o) {
         Individual a = this;
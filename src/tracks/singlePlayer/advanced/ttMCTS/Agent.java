@@ -0,0 +1,73 @@
+package tracks.singlePlayer.advanced.ttMCTS;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import core.game.StateObservation;
+import core.player.AbstractPlayer;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+
+/**
+ * MCTS UCT, as the sample MCTS, that shares the nodes of the states reached through different
+ * sequences of actions in a transposition table, and keeps them between decisions. The table
+ * is only used in deterministic games; in stochastic games this plays as the sample MCTS.
+ */
+public class Agent extends AbstractPlayer {
+
+    /**
+     * Maximum number of nodes kept in the transposition table.
+     */
+    public static int TABLE_CAPACITY = 100000;
+
+    public int num_actions;
+    public Types.ACTIONS[] actions;
+
+    protected SingleMCTSPlayer mctsPlayer;
+
+    /**
+     * Public constructor with state observation and time due.
+     * @param so state observation of the current game.
+     * @param elapsedTimer Timer for the controller creation.
+     */
+    public Agent(StateObservation so, ElapsedCpuTimer elapsedTimer)
+    {
+        //Get the actions in a static array.
+        ArrayList<Types.ACTIONS> act = so.getAvailableActions();
+        actions = new Types.ACTIONS[act.size()];
+        for(int i = 0; i < actions.length; ++i)
+        {
+            actions[i] = act.get(i);
+        }
+        num_actions = actions.length;
+
+        //Create the player.
+        mctsPlayer = getPlayer(so, elapsedTimer);
+    }
+
+    public SingleMCTSPlayer getPlayer(StateObservation so, ElapsedCpuTimer elapsedTimer) {
+        TranspositionTable table = so.isGameStochastic() ? null : new TranspositionTable(TABLE_CAPACITY);
+        return new SingleMCTSPlayer(new Random(), num_actions, actions, table);
+    }
+
+
+    /**
+     * Picks an action. This function is called every game step to request an
+     * action from the player.
+     * @param stateObs Observation of the current state.
+     * @param elapsedTimer Timer when the action returned is due.
+     * @return An action for the current state
+     */
+    public Types.ACTIONS act(StateObservation stateObs, ElapsedCpuTimer elapsedTimer) {
+
+        //Set the state observation object as the new root of the tree.
+        mctsPlayer.init(stateObs);
+
+        //Determine the action using MCTS...
+        int action = mctsPlayer.run(elapsedTimer);
+
+        //... and return it.
+        return actions[action];
+    }
+
+}
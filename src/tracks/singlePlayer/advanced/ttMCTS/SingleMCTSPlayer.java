@@ -0,0 +1,103 @@
+package tracks.singlePlayer.advanced.ttMCTS;
+
+import java.util.Random;
+
+import core.game.StateObservation;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+
+/**
+ * MCTS player of the sample MCTS, with a transposition table that is kept between decisions:
+ * the search for an action starts from the node of the new state, if the previous searches
+ * reached it, with all the statistics gathered below it.
+ */
+public class SingleMCTSPlayer
+{
+    /**
+     * Root of the tree.
+     */
+    public SingleTreeNode m_root;
+
+    /**
+     * Random generator.
+     */
+    public Random m_rnd;
+
+    public int num_actions;
+    public Types.ACTIONS[] actions;
+
+    /**
+     * Nodes of the states visited, or null if the tree doesn't share them.
+     */
+    public TranspositionTable table;
+
+    /**
+     * Number of iterations of the last search.
+     */
+    public int lastIterations;
+
+    /**
+     * Number of visits of the root after the last search, including those of previous searches.
+     */
+    public int lastRootVisits;
+
+    public SingleMCTSPlayer(Random a_rnd, int num_actions, Types.ACTIONS[] actions, TranspositionTable table)
+    {
+        this.num_actions = num_actions;
+        this.actions = actions;
+        this.table = table;
+        m_rnd = a_rnd;
+    }
+
+    /**
+     * Inits the tree with the new observation state in the root.
+     * @param a_gameState current state of the game.
+     */
+    public void init(StateObservation a_gameState)
+    {
+        //The same state can only be reached in different ways if the game is deterministic.
+        if(table != null && a_gameState.isGameStochastic())
+            table = null;
+
+        //In deterministic games, the state of the game is the one the search expected for the
+        //action played, so its node is kept as the root, and the rest of the table is dropped.
+        SingleTreeNode root = null;
+        if(table != null)
+        {
+            long key = TranspositionTable.key(a_gameState);
+            root = table.get(key);
+            if(root == null)
+            {
+                root = new SingleTreeNode(m_rnd, num_actions, actions, table);
+                root.key = key;
+            }
+            table.retain(root);
+        }else
+        {
+            root = new SingleTreeNode(m_rnd, num_actions, actions, null);
+        }
+
+        //Set the game observation to the root node.
+        if(m_root != null)
+            m_root.rootState = null;
+        m_root = root;
+        m_root.rootState = a_gameState;
+    }
+
+    /**
+     * Runs MCTS to decide the action to take. It does not reset the tree.
+     * @param elapsedTimer Timer when the action returned is due.
+     * @return the action to execute in the game.
+     */
+    public int run(ElapsedCpuTimer elapsedTimer)
+    {
+        //Do the search within the available time.
+        lastIterations = m_root.mctsSearch(elapsedTimer);
+        lastRootVisits = m_root.nVisits;
+
+        //Determine the best action to take and return it.
+        int action = m_root.mostVisitedAction();
+        return action;
+    }
+
+}
@@ -0,0 +1,349 @@
+package tracks.singlePlayer.advanced.ttMCTS;
+
+import java.util.Random;
+
+import core.game.StateObservation;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+import tools.Utils;
+
+/**
+ * Node of the sample MCTS search, shared by all the sequences of actions that reach the same
+ * state through a transposition table. When an action leads to a state that already has a
+ * node, that node becomes the child, with its statistics and the nodes below it, and the
+ * iteration ends there: its average value is backed up instead of playing a new rollout.
+ * As a node may have several parents, values are backed up along the path of each iteration.
+ */
+public class SingleTreeNode
+{
+    private final double HUGE_NEGATIVE = -10000000.0;
+    private final double HUGE_POSITIVE =  10000000.0;
+    public double epsilon = 1e-6;
+    public double egreedyEpsilon = 0.05;
+    public SingleTreeNode[] children;
+    public double totValue;
+    public int nVisits;
+    public Random m_rnd;
+    protected double[] bounds = new double[]{Double.MAX_VALUE, -Double.MAX_VALUE};
+
+    public int num_actions;
+    Types.ACTIONS[] actions;
+    public int ROLLOUT_DEPTH = 10;
+    public double K = Math.sqrt(2);
+
+    public StateObservation rootState;
+
+    /**
+     * Table of the nodes of the search, or null to grow a tree, as the sample MCTS.
+     */
+    public TranspositionTable table;
+
+    /**
+     * Key of the state this node reaches in the table (see TranspositionTable.key()).
+     */
+    public long key;
+
+    /**
+     * Nodes visited by the current iteration, starting at this node (the root), and how
+     * many of them there are.
+     */
+    private SingleTreeNode[] path;
+    private int pathLength;
+
+    /**
+     * Indicates if the current iteration reached a node that was already in the table.
+     */
+    private boolean transposition;
+
+    public SingleTreeNode(Random rnd, int num_actions, Types.ACTIONS[] actions, TranspositionTable table) {
+        this.m_rnd = rnd;
+        this.num_actions = num_actions;
+        this.actions = actions;
+        this.table = table;
+        children = new SingleTreeNode[num_actions];
+        totValue = 0.0;
+    }
+
+
+    /**
+     * Runs iterations of MCTS until the time is due.
+     * @param elapsedTimer Timer when the action is due.
+     * @return the number of iterations run.
+     */
+    public int mctsSearch(ElapsedCpuTimer elapsedTimer) {
+
+        double avgTimeTaken = 0;
+        double acumTimeTaken = 0;
+        long remaining = elapsedTimer.remainingTimeMillis();
+        int numIters = 0;
+
+        int remainingLimit = 5;
+        StateObservation state = null;
+        path = new SingleTreeNode[ROLLOUT_DEPTH + 1];
+        while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
+
+            //The same copy is restored to the root state in every iteration.
+            if(state == null)
+                state = rootState.copy();
+            else
+                state.copyFrom(rootState);
+
+            ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
+            SingleTreeNode selected = treePolicy(state);
+            if(transposition)
+                backUp(selected.totValue / selected.nVisits, pathLength - 1);
+            else
+                backUp(selected.rollOut(state, pathLength - 1), pathLength);
+
+            numIters++;
+            acumTimeTaken += (elapsedTimerIteration.elapsedMillis()) ;
+            avgTimeTaken  = acumTimeTaken/numIters;
+            remaining = elapsedTimer.remainingTimeMillis();
+        }
+        return numIters;
+    }
+
+    public SingleTreeNode treePolicy(StateObservation state) {
+
+        SingleTreeNode cur = this;
+        pathLength = 0;
+        path[pathLength++] = cur;
+        transposition = false;
+
+        while (!state.isGameOver() && pathLength <= ROLLOUT_DEPTH)
+        {
+            if (cur.notFullyExpanded()) {
+                cur = cur.expand(state);
+                path[pathLength++] = cur;
+                transposition = cur.nVisits > 0;
+                return cur;
+
+            } else {
+                cur = cur.uct(state);
+                path[pathLength++] = cur;
+            }
+        }
+
+        return cur;
+    }
+
+
+    public SingleTreeNode expand(StateObservation state) {
+
+        int bestAction = 0;
+        double bestValue = -1;
+
+        for (int i = 0; i < children.length; i++) {
+            double x = m_rnd.nextDouble();
+            if (x > bestValue && children[i] == null) {
+                bestAction = i;
+                bestValue = x;
+            }
+        }
+
+        //Roll the state
+        state.advance(actions[bestAction]);
+
+        //The node of the state, if it was already reached in another way.
+        SingleTreeNode tn = null;
+        long stateKey = 0;
+        if(table != null) {
+            stateKey = TranspositionTable.key(state);
+            tn = table.get(stateKey);
+        }
+
+        if(tn == null) {
+            tn = new SingleTreeNode(this.m_rnd, num_actions, actions, table);
+            tn.key = stateKey;
+            if(table != null)
+                table.put(stateKey, tn);
+        }
+        children[bestAction] = tn;
+        return tn;
+    }
+
+    public SingleTreeNode uct(StateObservation state) {
+
+        int selected = -1;
+        double bestValue = -Double.MAX_VALUE;
+        for (int i = 0; i < children.length; i++)
+        {
+            SingleTreeNode child = children[i];
+            double childValue = child.totValue / (child.nVisits + this.epsilon);
+
+            childValue = Utils.normalise(childValue, bounds[0], bounds[1]);
+
+            double uctValue = childValue +
+                    K * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + this.epsilon));
+
+            uctValue = Utils.noise(uctValue, this.epsilon, this.m_rnd.nextDouble());     //break ties randomly
+
+            // small sampleRandom numbers: break ties in unexpanded nodes
+            if (uctValue > bestValue) {
+                selected = i;
+                bestValue = uctValue;
+            }
+        }
+        if (selected == -1)
+        {
+            throw new RuntimeException("Warning! returning null: " + bestValue + " : " + this.children.length + " " +
+            + bounds[0] + " " + bounds[1]);
+        }
+
+        //Roll the state (children are shared, so the action is the one of this node):
+        state.advance(actions[selected]);
+
+        return children[selected];
+    }
+
+
+    /**
+     * Plays a random rollout from the state of this node.
+     * @param state state of this node, that is rolled.
+     * @param depth number of actions played from the root to this node.
+     * @return the value of the state reached.
+     */
+    public double rollOut(StateObservation state, int depth)
+    {
+        //Random actions up to the rollout depth, all played at once (until the game ends).
+        if (!finishRollout(state,depth)) {
+            Types.ACTIONS[] sequence = new Types.ACTIONS[ROLLOUT_DEPTH - depth];
+            for (int i = 0; i < sequence.length; i++)
+                sequence[i] = actions[m_rnd.nextInt(num_actions)];
+            state.advanceSequence(sequence);
+        }
+
+
+        double delta = value(state);
+
+        if(delta < bounds[0])
+            bounds[0] = delta;
+        if(delta > bounds[1])
+            bounds[1] = delta;
+
+        return delta;
+    }
+
+    public double value(StateObservation a_gameState) {
+
+        boolean gameOver = a_gameState.isGameOver();
+        Types.WINNER win = a_gameState.getGameWinner();
+        double rawScore = a_gameState.getGameScore();
+
+        if(gameOver && win == Types.WINNER.PLAYER_LOSES)
+            rawScore += HUGE_NEGATIVE;
+
+        if(gameOver && win == Types.WINNER.PLAYER_WINS)
+            rawScore += HUGE_POSITIVE;
+
+        return rawScore;
+    }
+
+    public boolean finishRollout(StateObservation rollerState, int depth)
+    {
+        if(depth >= ROLLOUT_DEPTH)      //rollout end condition.
+            return true;
+
+        if(rollerState.isGameOver())               //end of game
+            return true;
+
+        return false;
+    }
+
+    /**
+     * Adds a result to the nodes of the path of the current iteration.
+     * @param result value to add.
+     * @param length number of nodes of the path to update, starting at the root.
+     */
+    public void backUp(double result, int length)
+    {
+        for(int i = 0; i < length; i++)
+        {
+            SingleTreeNode n = path[i];
+            n.nVisits++;
+            n.totValue += result;
+            if (result < n.bounds[0]) {
+                n.bounds[0] = result;
+            }
+            if (result > n.bounds[1]) {
+                n.bounds[1] = result;
+            }
+        }
+    }
+
+
+    public int mostVisitedAction() {
+        int selected = -1;
+        double bestValue = -Double.MAX_VALUE;
+        boolean allEqual = true;
+        double first = -1;
+
+        for (int i=0; i<children.length; i++) {
+
+            if(children[i] != null)
+            {
+                if(first == -1)
+                    first = children[i].nVisits;
+                else if(first != children[i].nVisits)
+                {
+                    allEqual = false;
+                }
+
+                double childValue = children[i].nVisits;
+                childValue = Utils.noise(childValue, this.epsilon, this.m_rnd.nextDouble());     //break ties randomly
+                if (childValue > bestValue) {
+                    bestValue = childValue;
+                    selected = i;
+                }
+            }
+        }
+
+        if (selected == -1)
+        {
+            System.out.println("Unexpected selection!");
+            selected = 0;
+        }else if(allEqual)
+        {
+            //If all are equal, we opt to choose for the one with the best Q.
+            selected = bestAction();
+        }
+        return selected;
+    }
+
+    public int bestAction()
+    {
+        int selected = -1;
+        double bestValue = -Double.MAX_VALUE;
+
+        for (int i=0; i<children.length; i++) {
+
+            if(children[i] != null) {
+                double childValue = children[i].totValue / (children[i].nVisits + this.epsilon);
+                childValue = Utils.noise(childValue, this.epsilon, this.m_rnd.nextDouble());     //break ties randomly
+                if (childValue > bestValue) {
+                    bestValue = childValue;
+                    selected = i;
+                }
+            }
+        }
+
+        if (selected == -1)
+        {
+            System.out.println("Unexpected selection!");
+            selected = 0;
+        }
+
+        return selected;
+    }
+
+
+    public boolean notFullyExpanded() {
+        for (SingleTreeNode tn : children) {
+            if (tn == null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
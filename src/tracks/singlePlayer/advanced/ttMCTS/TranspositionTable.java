@@ -0,0 +1,160 @@
+package tracks.singlePlayer.advanced.ttMCTS;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import core.game.StateObservation;
+import tools.StateHash;
+
+/**
+ * Nodes of the search, by the state they reach (see StateObservation.getStateHash()) and its
+ * game tick. Nodes that reach the same state through different sequences of actions are
+ * shared, so the search is a graph instead of a tree. Keys are kept in an open addressing
+ * table of longs, so looking a state up doesn't allocate.
+ * The table is bounded: when it is full, new nodes are not added to it, and they are not
+ * shared. When the search moves to the next state of the game, nodes that can't be reached
+ * from it any more (older states, or other branches) are dropped (see retain()).
+ * Only valid for deterministic games.
+ */
+public class TranspositionTable
+{
+    /**
+     * Keys of the table, and the nodes stored with them. Empty slots have no node.
+     */
+    private long[] keys;
+    private SingleTreeNode[] nodes;
+
+    /**
+     * Number of nodes in the table, and maximum number of nodes it can hold.
+     */
+    private int size;
+    private final int capacity;
+
+    /**
+     * Number of lookups, and how many of them found a node.
+     */
+    private long numLookups;
+    private long numHits;
+
+    /**
+     * Creates a table.
+     * @param capacity maximum number of nodes of the table.
+     */
+    public TranspositionTable(int capacity)
+    {
+        this.capacity = capacity;
+        int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2; //Load factor of 0.5 at most.
+        keys = new long[slots];
+        nodes = new SingleTreeNode[slots];
+    }
+
+    /**
+     * Returns the key of a state in the table.
+     * @param state state to get the key of.
+     * @return the key of the state.
+     */
+    public static long key(StateObservation state)
+    {
+        return StateHash.combine(state.getStateHash(), state.getGameTick());
+    }
+
+    /**
+     * Returns the node stored with a key.
+     * @param key key to look for.
+     * @return the node, or null if there is no node with that key.
+     */
+    public SingleTreeNode get(long key)
+    {
+        numLookups++;
+        int mask = keys.length - 1;
+        for(int i = slot(key); nodes[i] != null; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+            {
+                numHits++;
+                return nodes[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores a node with a key, if the table is not full and there is no node with that key.
+     * @param key key of the state of the node.
+     * @param node node to store.
+     * @return true if the node was stored.
+     */
+    public boolean put(long key, SingleTreeNode node)
+    {
+        if(size >= capacity)
+            return false;
+
+        int mask = keys.length - 1;
+        int i = slot(key);
+        for(; nodes[i] != null; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+                return false;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+        size++;
+        return true;
+    }
+
+    /**
+     * Keeps only the nodes that can be reached from a node, the new root of the search.
+     * @param root node to keep, with the nodes below it.
+     */
+    public void retain(SingleTreeNode root)
+    {
+        Arrays.fill(nodes, null);
+        size = 0;
+
+        ArrayDeque<SingleTreeNode> pending = new ArrayDeque<SingleTreeNode>();
+        if(put(root.key, root))
+            pending.add(root);
+        while(!pending.isEmpty())
+        {
+            for(SingleTreeNode child : pending.poll().children)
+            {
+                if(child != null && put(child.key, child))
+                    pending.add(child);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the table.
+     * @return the number of nodes in the table.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the fraction of lookups that found a node.
+     * @return the hit rate of the table, 0 if it has not been used.
+     */
+    public double getHitRate()
+    {
+        return numLookups == 0 ? 0 : (double) numHits / numLookups;
+    }
+
+    /**
+     * Removes all the nodes from the table.
+     */
+    public void clear()
+    {
+        Arrays.fill(nodes, null);
+        size = 0;
+        numLookups = 0;
+        numHits = 0;
+    }
+
+    private int slot(long key)
+    {
+        return (int) StateHash.mix(key) & (keys.length - 1);
+    }
+}
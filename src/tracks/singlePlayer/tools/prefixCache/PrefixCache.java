@@ -0,0 +1,328 @@
+package tracks.singlePlayer.tools.prefixCache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import core.game.StateObservation;
+
+/**
+ * Cache of the states reached by sequences of actions from the current state of the game, for
+ * agents that evaluate sequences of actions (as the rolling horizon and random search agents).
+ * Sequences evaluated one after another often share their first actions (elites and their
+ * mutations, for example), so the cache keeps a trie of the sequences simulated, and the states
+ * reached by the prefixes that are simulated several times. A new sequence is then simulated
+ * from the state of the longest prefix it shares with them, and only the rest of its actions
+ * are played. The value of each sequence evaluated whole is also kept, so sequences evaluated
+ * again (as the elites, or children equal to their parents) are not simulated at all.
+ *
+ * When the agent plays an action, the part of the trie that starts with it is kept for the next
+ * state of the game, if the state it predicted is the one reached (see setRoot()).
+ *
+ * The cache holds a bounded number of states: when it is full, the least recently used one is
+ * dropped. It is only used in deterministic games: in stochastic games, sequences are always
+ * simulated from the current state.
+ *
+ * Usage, for each sequence of actions:
+ *   double value = cache.getValue(actions);
+ *   if (Double.isNaN(value)) {
+ *       StateObservation st = cache.start(actions);
+ *       for (int i = cache.getPrefixLength(); i < actions.length && !st.isGameOver(); i++) {
+ *           st.advance(...actions[i]...);
+ *           cache.visit(st, actions[i]);
+ *       }
+ *       value = ...value of st...;
+ *       cache.setValue(st, value);
+ *   }
+ */
+public class PrefixCache
+{
+    /**
+     * A sequence of actions in the trie.
+     */
+    private static final class Node
+    {
+        Node parent;
+        final Node[] children;
+
+        /**
+         * State reached by the sequence, or null if it's not kept.
+         */
+        StateObservation state;
+
+        /**
+         * Number of times the last action of the sequence has been simulated.
+         */
+        int visits;
+
+        /**
+         * Value of the sequence, if it has been evaluated whole (see setValue()).
+         */
+        double value;
+        int valueGeneration = -1;
+        boolean terminal;
+
+        Node(Node parent, int nActions)
+        {
+            this.parent = parent;
+            this.children = new Node[nActions];
+        }
+    }
+
+    /**
+     * Number of times a sequence is simulated before the state it reaches is kept. Copying a
+     * state costs as much as several advances, so only states likely to be reused are kept.
+     */
+    private static final int STORE_VISITS = 3;
+
+    /**
+     * Maximum number of dropped states kept to be reused.
+     */
+    private static final int MAX_SPARE = 64;
+
+    private final int nActions;
+    private final LinkedHashMap<Node, Node> stored;
+
+    /**
+     * Current state of the game, and the root of the trie (the empty sequence).
+     */
+    private StateObservation rootState;
+    private Node root;
+    private boolean enabled;
+
+    /**
+     * Incremented each time the root changes: values of sequences that don't end the game
+     * are only valid for the root they were evaluated from.
+     */
+    private int generation;
+
+    /**
+     * Sequence being simulated, and its length.
+     */
+    private Node cursor;
+    private int cursorDepth;
+    private int prefixLength;
+
+    /**
+     * State returned by start(), and states dropped from the cache, reused to keep other states.
+     */
+    private StateObservation scratch;
+    private final ArrayList<StateObservation> spare = new ArrayList<StateObservation>();
+
+    /**
+     * Creates a cache.
+     * @param nActions number of actions the sequences are made of (identified by 0..nActions-1).
+     * @param capacity maximum number of states kept.
+     */
+    public PrefixCache(int nActions, final int capacity)
+    {
+        this.nActions = nActions;
+
+        //Access order, so the eldest entry is the least recently used.
+        stored = new LinkedHashMap<Node, Node>(256, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Node, Node> eldest)
+            {
+                if(size() <= capacity)
+                    return false;
+                drop(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Sets the current state of the game, which sequences are simulated from. If it is the state
+     * predicted for the action played from the previous one, the sequences that start with that
+     * action are kept (without it). Otherwise, the cache is emptied.
+     * @param state current state of the game.
+     * @param action action played from the previous state given, or -1 if none.
+     */
+    public void setRoot(StateObservation state, int action)
+    {
+        enabled = !state.isGameStochastic();
+        rootState = state;
+        cursor = null;
+        generation++;
+
+        Node next = (root != null && action >= 0 && action < nActions) ? root.children[action] : null;
+        if(!enabled || next == null || next.state == null ||
+                next.state.getGameTick() != state.getGameTick() || !next.state.equiv(state))
+        {
+            for(Node n : stored.keySet())
+                drop(n);
+            stored.clear();
+            root = new Node(null, nActions);
+            return;
+        }
+
+        //Drop the states of the sequences that don't start with the action, keeping the order of use.
+        ArrayList<Node> kept = new ArrayList<Node>(stored.size());
+        for(Node n : stored.keySet())
+        {
+            Node m = n;
+            while(m != null && m != next)
+                m = m.parent;
+            if(m == next && n != next)
+                kept.add(n);
+            else
+                drop(n);
+        }
+        stored.clear();
+        for(Node n : kept)
+            stored.put(n, n);
+
+        next.parent = null;
+        root = next;
+    }
+
+    /**
+     * Starts the simulation of a sequence of actions.
+     * @param actions sequence of actions.
+     * @return a copy of the state reached by the longest prefix of the sequence kept in the
+     * cache (the current state if there is none), to advance with the rest of the actions,
+     * from getPrefixLength() on. The same object is returned by every call, so it must not
+     * be kept after the sequence is evaluated.
+     */
+    public StateObservation start(int[] actions)
+    {
+        if(!enabled)
+        {
+            cursor = null;
+            prefixLength = 0;
+            return copyToScratch(rootState);
+        }
+
+        Node n = root, best = root;
+        int depth = 0, bestDepth = 0;
+        while(depth < actions.length && (n = n.children[actions[depth]]) != null)
+        {
+            depth++;
+            if(n.state != null)
+            {
+                best = n;
+                bestDepth = depth;
+            }
+        }
+
+        cursor = best;
+        cursorDepth = prefixLength = bestDepth;
+        if(best == root)
+            return copyToScratch(rootState);
+
+        stored.get(best);       //Refresh the use of the state.
+        return copyToScratch(best.state);
+    }
+
+    /**
+     * Returns the value given to setValue() for a sequence of actions, or for a prefix of it
+     * that ends the game.
+     * @param actions sequence of actions.
+     * @return the value of the sequence, or Double.NaN if it is not known.
+     */
+    public double getValue(int[] actions)
+    {
+        if(!enabled)
+            return Double.NaN;
+
+        Node n = root;
+        for(int depth = 0; depth < actions.length && (n = n.children[actions[depth]]) != null; depth++)
+        {
+            if(n.terminal)
+                return n.value;
+            if(depth == actions.length - 1 && n.valueGeneration == generation)
+                return n.value;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Records the value of the sequence simulated since the last call to start(). It must
+     * only be called if the whole sequence has been simulated, or if the game is over.
+     * @param state state reached.
+     * @param value value of the state reached.
+     */
+    public void setValue(StateObservation state, double value)
+    {
+        if(cursor == null || cursor == root)
+            return;
+        cursor.value = value;
+        cursor.valueGeneration = generation;
+        cursor.terminal = state.isGameOver();
+    }
+
+    /**
+     * Returns the number of actions of the sequence given to start() that the state it
+     * returned has already been advanced with.
+     * @return the length of the prefix found in the cache.
+     */
+    public int getPrefixLength()
+    {
+        return prefixLength;
+    }
+
+    /**
+     * Records the next action of the sequence being simulated. The state reached is kept if
+     * the sequence so far has been simulated STORE_VISITS times, or if it is the first action
+     * (to check, in setRoot(), that the state of the game is the predicted one).
+     * @param state state reached, after advancing with the action.
+     * @param action action played.
+     */
+    public void visit(StateObservation state, int action)
+    {
+        if(cursor == null)
+            return;
+
+        Node child = cursor.children[action];
+        if(child == null)
+            child = cursor.children[action] = new Node(cursor, nActions);
+        cursorDepth++;
+
+        if(child.state == null && (child.visits >= STORE_VISITS || cursorDepth == 1))
+        {
+            if(spare.isEmpty())
+            {
+                child.state = state.copy();
+            }else
+            {
+                child.state = spare.remove(spare.size() - 1);
+                child.state.copyFrom(state);
+            }
+            stored.put(child, child);
+        }
+        child.visits++;
+        cursor = child;
+    }
+
+    /**
+     * Copies a state into the state returned by start().
+     */
+    private StateObservation copyToScratch(StateObservation state)
+    {
+        if(scratch == null)
+            scratch = state.copy();
+        else
+            scratch.copyFrom(state);
+        return scratch;
+    }
+
+    /**
+     * Drops the state of a node, to reuse it.
+     */
+    private void drop(Node n)
+    {
+        if(n.state != null && spare.size() < MAX_SPARE)
+            spare.add(n.state);
+        n.state = null;
+    }
+
+    /**
+     * Returns the number of states kept.
+     * @return the number of states kept.
+     */
+    public int size()
+    {
+        return stored.size();
+    }
+}
@@ -0,0 +1,172 @@
+package core.game;
+
+import core.vgdl.ParsedGame;
+import core.vgdl.VGDLFactory;
+import ontology.Types;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that advanceSequence() reaches the same state as calling advance() with each action.
+ * The observations of each cell of the observation grid are compared as sets, as their order
+ * within a cell is undefined.
+ */
+class AdvanceSequenceTest {
+
+	private static final String[] GAMES = {"aliens", "boulderdash", "sokoban", "zelda", "pacman", "frogs",
+			"missilecommand", "bait", "painter", "seaquest", "chase", "butterflies", "survivezombies"};
+	private static final String[] MULTI_PLAYER_GAMES = {"akkaarrh", "asteroids", "bombergirl"};
+
+	private static final int SEQUENCES = 30;
+	private static final int LENGTH = 20;
+
+	@BeforeEach void beforeEach() {
+		VGDLFactory.GetInstance().init();
+	}
+
+	@Test void sameStateAsAdvance() {
+		int checked = 0;
+		for (String game : GAMES) {
+			String path = "examples/gridphysics/" + game;
+			StateObservation state = ParsedGame.get(path + ".txt").newGame(path + "_lvl0.txt", 0).getObservation();
+			ArrayList<Types.ACTIONS> actions = state.getAvailableActions();
+			Random random = new Random(1);
+
+			for (int k = 0; k < SEQUENCES && !state.isGameOver(); ++k) {
+				Types.ACTIONS[] sequence = new Types.ACTIONS[LENGTH];
+				for (int i = 0; i < sequence.length; ++i) {
+					sequence[i] = actions.get(random.nextInt(actions.size()));
+				}
+
+				StateObservation stepwise = state.copy();
+				StateObservation advanced = state.copy();
+				stepwise.setNewSeed(k);
+				advanced.setNewSeed(k);
+
+				int steps = 0;
+				while (steps < sequence.length && !stepwise.isGameOver()) {
+					stepwise.advance(sequence[steps++]);
+				}
+
+				assertThat(advanced.advanceSequence(sequence)).as(game).isEqualTo(steps);
+				assertSameState(game, stepwise, advanced);
+				checked++;
+
+				state.advance(actions.get(random.nextInt(actions.size())));
+			}
+		}
+		assertThat(checked).isGreaterThan(GAMES.length * SEQUENCES / 2);
+	}
+
+	@Test void sameStateAsAdvanceMultiPlayer() {
+		for (String game : MULTI_PLAYER_GAMES) {
+			String path = "examples/2player/" + game;
+			StateObservationMulti state = ParsedGame.get(path + ".txt").newGame(path + "_lvl0.txt", 0).getObservationMulti(0);
+			int players = state.getNoPlayers();
+			Random random = new Random(1);
+
+			for (int k = 0; k < SEQUENCES && !state.isGameOver(); ++k) {
+				Types.ACTIONS[][] sequence = new Types.ACTIONS[LENGTH][];
+				for (int i = 0; i < sequence.length; ++i) {
+					sequence[i] = randomActions(state, players, random);
+				}
+
+				StateObservationMulti stepwise = state.copy();
+				StateObservationMulti advanced = state.copy();
+				stepwise.setNewSeed(k);
+				advanced.setNewSeed(k);
+
+				int steps = 0;
+				while (steps < sequence.length && !stepwise.isGameOver()) {
+					stepwise.advance(sequence[steps++]);
+				}
+
+				assertThat(advanced.advanceSequence(sequence)).as(game).isEqualTo(steps);
+				assertSameState(game, stepwise, advanced);
+				for (int i = 0; i < players; ++i) {
+					assertThat(advanced.getGameScore(i)).as(game).isEqualTo(stepwise.getGameScore(i));
+				}
+				assertThat(Arrays.asList(advanced.getMultiGameWinner())).as(game)
+						.isEqualTo(Arrays.asList(stepwise.getMultiGameWinner()));
+
+				state.advance(randomActions(state, players, random));
+			}
+		}
+	}
+
+	@Test void listenerStopsTheSequence() {
+		String path = "examples/gridphysics/aliens";
+		StateObservation state = ParsedGame.get(path + ".txt").newGame(path + "_lvl0.txt", 0).getObservation();
+		Types.ACTIONS[] sequence = new Types.ACTIONS[LENGTH];
+		Arrays.fill(sequence, Types.ACTIONS.ACTION_LEFT);
+
+		StateObservation stepwise = state.copy();
+		StateObservation advanced = state.copy();
+		stepwise.setNewSeed(0);
+		advanced.setNewSeed(0);
+		for (int i = 0; i < 3; ++i) {
+			stepwise.advance(sequence[i]);
+		}
+
+		ArrayList<Integer> ticks = new ArrayList<>();
+		int steps = advanced.advanceSequence(sequence, (step, current) -> {
+			ticks.add(current.getGameTick());
+			return step < 2;
+		});
+
+		assertThat(steps).isEqualTo(3);
+		assertThat(ticks).isEqualTo(Arrays.asList(state.getGameTick() + 1, state.getGameTick() + 2, state.getGameTick() + 3));
+		assertSameState("aliens", stepwise, advanced);
+	}
+
+	private static Types.ACTIONS[] randomActions(StateObservationMulti state, int players, Random random) {
+		Types.ACTIONS[] actions = new Types.ACTIONS[players];
+		for (int i = 0; i < players; ++i) {
+			ArrayList<Types.ACTIONS> available = state.getAvailableActions(i);
+			actions[i] = available.get(random.nextInt(available.size()));
+		}
+		return actions;
+	}
+
+	private static void assertSameState(String game, StateObservation expected, StateObservation actual) {
+		assertThat(describe(actual)).as(game).isEqualTo(describe(expected));
+		assertThat(actual.equiv(expected)).as(game).isTrue();
+	}
+
+	private static String describe(StateObservation state) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(state.getGameTick()).append(' ').append(state.getGameScore()).append(' ')
+				.append(state.getGameWinner()).append(' ').append(state.getStateHash()).append('\n');
+
+		for (ArrayList<Observation>[] positions : Arrays.asList(state.getNPCPositions(), state.getImmovablePositions(),
+				state.getMovablePositions(), state.getResourcesPositions(), state.getPortalsPositions(),
+				state.getFromAvatarSpritesPositions())) {
+			if (positions == null) continue;
+			for (ArrayList<Observation> observations : positions) {
+				for (Observation obs : observations) {
+					sb.append(obs.obsID).append('@').append(obs.position).append(' ');
+				}
+				sb.append('|');
+			}
+		}
+
+		ArrayList<Observation>[][] grid = state.getObservationGrid();
+		for (ArrayList<Observation>[] column : grid) {
+			for (ArrayList<Observation> cell : column) {
+				TreeSet<Integer> ids = new TreeSet<>();
+				for (Observation obs : cell) {
+					ids.add(obs.obsID);
+				}
+				sb.append(ids);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,105 @@
+package core.game;
+
+import core.competition.CompetitionParameters;
+import core.vgdl.ParsedGame;
+import core.vgdl.VGDLFactory;
+import ontology.Types;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plays the same games with and without the collision grid, and checks that both
+ * produce the same trace as the all-pairs collision scan.
+ */
+class FindCollisionsTest {
+
+	private static final int TICKS = 300;
+
+	private boolean useCollisionGrid;
+
+	@BeforeEach void beforeEach() {
+		useCollisionGrid = CompetitionParameters.USE_COLLISION_GRID;
+		VGDLFactory.GetInstance().init();
+	}
+
+	@AfterEach void afterEach() {
+		CompetitionParameters.USE_COLLISION_GRID = useCollisionGrid;
+	}
+
+	@Test void aliens() {
+		assertSameTrace("examples/gridphysics/aliens", 1);
+	}
+
+	@Test void boulderdash() {
+		assertSameTrace("examples/gridphysics/boulderdash", 2);
+	}
+
+	@Test void zelda() {
+		assertSameTrace("examples/gridphysics/zelda", 3);
+	}
+
+	@Test void missilecommand() {
+		assertSameTrace("examples/gridphysics/missilecommand", 4);
+	}
+
+	@Test void asteroids() {
+		assertSameTrace("examples/contphysics/asteroids", 5);
+	}
+
+	private void assertSameTrace(String game, int seed) {
+		CompetitionParameters.USE_COLLISION_GRID = false;
+		ArrayList<String> expected = trace(game, seed);
+		CompetitionParameters.USE_COLLISION_GRID = true;
+		ArrayList<String> actual = trace(game, seed);
+
+		assertThat(actual).as(game).isEqualTo(expected);
+	}
+
+	/**
+	 * Plays a game with random actions, and records the state and the events of each tick.
+	 */
+	private static ArrayList<String> trace(String game, int seed) {
+		StateObservation state = ParsedGame.get(game + ".txt").newGame(game + "_lvl0.txt", seed).getObservation();
+		state.setNewSeed(seed);
+		ArrayList<Types.ACTIONS> actions = state.getAvailableActions();
+		Random random = new Random(seed);
+
+		ArrayList<String> trace = new ArrayList<>();
+		for (int tick = 0; tick < TICKS && !state.isGameOver(); ++tick) {
+			state.advance(actions.get(random.nextInt(actions.size())));
+			trace.add(describe(state));
+		}
+		return trace;
+	}
+
+	private static String describe(StateObservation state) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(state.getGameTick()).append(' ').append(state.getGameScore()).append(' ')
+				.append(state.getGameWinner()).append(' ').append(state.getAvatarPosition()).append('\n');
+
+		for (ArrayList<Observation>[] positions : Arrays.asList(state.getNPCPositions(), state.getImmovablePositions(),
+				state.getMovablePositions(), state.getResourcesPositions(), state.getPortalsPositions(),
+				state.getFromAvatarSpritesPositions())) {
+			if (positions == null) continue;
+			for (ArrayList<Observation> observations : positions) {
+				for (Observation obs : observations) {
+					sb.append(obs.obsID).append('@').append(obs.position).append(' ');
+				}
+				sb.append('|');
+			}
+		}
+
+		for (Event event : state.getEventsHistory()) {
+			sb.append('\n').append(event.gameStep).append(' ').append(event.activeSpriteId).append(' ')
+					.append(event.passiveSpriteId).append(' ').append(event.position);
+		}
+		return sb.toString();
+	}
+}
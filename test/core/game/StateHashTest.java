@@ -0,0 +1,77 @@
+package core.game;
+
+import core.vgdl.ParsedGame;
+import core.vgdl.VGDLFactory;
+import ontology.Types;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the hash of a state, kept up to date as the game is played, is the same as
+ * the hash computed from scratch for a copy of the state.
+ */
+class StateHashTest {
+
+	private static final String[] GAMES = {"gridphysics/aliens", "gridphysics/boulderdash", "gridphysics/sokoban",
+			"gridphysics/zelda", "gridphysics/pacman", "gridphysics/missilecommand", "gridphysics/seaquest",
+			"gridphysics/butterflies", "gridphysics/painter", "contphysics/asteroids", "contphysics/lander"};
+
+	private static final int TICKS = 200;
+
+	@BeforeEach void beforeEach() {
+		VGDLFactory.GetInstance().init();
+	}
+
+	@Test void sameHashAsCopy() {
+		for (String game : GAMES) {
+			String path = "examples/" + game;
+			StateObservation state = ParsedGame.get(path + ".txt").newGame(path + "_lvl0.txt", 0).getObservation();
+			state.setNewSeed(0);
+			ArrayList<Types.ACTIONS> actions = state.getAvailableActions();
+			Random random = new Random(1);
+
+			for (int tick = 0; tick < TICKS && !state.isGameOver(); ++tick) {
+				state.advance(actions.get(random.nextInt(actions.size())));
+				StateObservation copy = state.copy();
+
+				assertThat(state.getStateHash()).as(game + " at tick " + tick).isEqualTo(copy.getStateHash());
+				assertThat(state.equiv(copy)).as(game + " at tick " + tick).isTrue();
+			}
+		}
+	}
+
+	@Test void sameHashAfterCopyFrom() {
+		String path = "examples/gridphysics/boulderdash";
+		StateObservation state = ParsedGame.get(path + ".txt").newGame(path + "_lvl0.txt", 0).getObservation();
+		ArrayList<Types.ACTIONS> actions = state.getAvailableActions();
+		Random random = new Random(1);
+		StateObservation reused = state.copy();
+
+		for (int tick = 0; tick < TICKS && !state.isGameOver(); ++tick) {
+			StateObservation next = state.copy();
+			next.advance(actions.get(random.nextInt(actions.size())));
+			reused.copyFrom(next);
+
+			assertThat(reused.getStateHash()).as("tick " + tick).isEqualTo(next.copy().getStateHash());
+			state = next;
+		}
+	}
+
+	@Test void differentPositionsDifferentHashes() {
+		String path = "examples/gridphysics/sokoban";
+		StateObservation state = ParsedGame.get(path + ".txt").newGame(path + "_lvl0.txt", 0).getObservation();
+		StateObservation moved = state.copy();
+		moved.advance(Types.ACTIONS.ACTION_LEFT);
+		if (moved.getAvatarPosition().equals(state.getAvatarPosition())) {
+			moved.advance(Types.ACTIONS.ACTION_RIGHT);
+		}
+
+		assertThat(moved.getAvatarPosition()).isNotEqualTo(state.getAvatarPosition());
+		assertThat(moved.getStateHash()).isNotEqualTo(state.getStateHash());
+	}
+}
@@ -0,0 +1,123 @@
+package core.vgdl;
+
+import ontology.sprites.Immovable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CollisionGridTest {
+
+	private static final int CELL = 10;
+	private static final Dimension SCREEN = new Dimension(100, 80);
+
+	private CollisionGrid grid;
+	private ArrayList<VGDLSprite> sprites;
+
+	@BeforeEach void beforeEach() {
+		grid = new CollisionGrid(SCREEN, CELL);
+		sprites = new ArrayList<>();
+	}
+
+	@Test void empty() {
+		assertThat(collect(new Rectangle(0, 0, SCREEN.width, SCREEN.height))).isEmpty();
+	}
+
+	@Test void spriteOutsideTheScreen() {
+		VGDLSprite left = add(-50, 20, CELL, CELL);
+		VGDLSprite below = add(30, 200, CELL, CELL);
+
+		assertThat(collect(new Rectangle(-45, 25, 1, 1))).contains(left);
+		assertThat(collect(new Rectangle(35, 205, 1, 1))).contains(below);
+		assertMatchesBruteForce(new Rectangle(-60, -60, 300, 300));
+	}
+
+	@Test void spritesClampedToBorderCells() {
+		VGDLSprite topLeft = add(-5, -5, CELL, CELL);
+		VGDLSprite bottomRight = add(SCREEN.width - 3, SCREEN.height - 3, CELL, CELL);
+
+		assertThat(collect(new Rectangle(0, 0, 1, 1))).contains(topLeft);
+		assertThat(collect(new Rectangle(SCREEN.width + 5, SCREEN.height + 5, 1, 1))).contains(bottomRight);
+		assertMatchesBruteForce(new Rectangle(-10, -10, CELL, CELL));
+		assertMatchesBruteForce(new Rectangle(SCREEN.width, SCREEN.height, CELL, CELL));
+	}
+
+	@Test void spriteLargerThanACell() {
+		VGDLSprite big = add(5, 5, 4 * CELL + 3, 3 * CELL);
+
+		assertThat(collect(new Rectangle(45, 30, 1, 1))).contains(big);
+		assertThat(collect(new Rectangle(47, 34, 2, 2))).contains(big);
+		assertMatchesBruteForce(new Rectangle(40, 30, CELL, CELL));
+	}
+
+	@Test void spriteMoved() {
+		VGDLSprite sprite = add(0, 0, CELL, CELL);
+		sprite.setRect(new Rectangle(73, 61, CELL, CELL));
+
+		assertThat(collect(new Rectangle(80, 70, 1, 1))).contains(sprite);
+		assertMatchesBruteForce(new Rectangle(0, 0, CELL, CELL));
+	}
+
+	@Test void spriteRemoved() {
+		VGDLSprite sprite = add(20, 20, CELL, CELL);
+		grid.remove(sprite);
+		sprites.remove(sprite);
+
+		assertThat(collect(new Rectangle(20, 20, CELL, CELL))).doesNotContain(sprite);
+	}
+
+	@Test void randomSpritesAgainstBruteForce() {
+		Random random = new Random(17);
+		for (int i = 0; i < 200; ++i) {
+			add(random.nextInt(160) - 30, random.nextInt(140) - 30, 1 + random.nextInt(3 * CELL), 1 + random.nextInt(3 * CELL));
+		}
+
+		for (int step = 0; step < 20; ++step) {
+			for (int i = 0; i < 500; ++i) {
+				Rectangle area = new Rectangle(random.nextInt(160) - 30, random.nextInt(140) - 30,
+						1 + random.nextInt(2 * CELL), 1 + random.nextInt(2 * CELL));
+				assertMatchesBruteForce(area);
+			}
+
+			for (VGDLSprite sprite : sprites) {
+				Rectangle r = sprite.rect;
+				sprite.setRect(new Rectangle(r.x + random.nextInt(2 * CELL + 1) - CELL,
+						r.y + random.nextInt(2 * CELL + 1) - CELL, r.width, r.height));
+			}
+		}
+	}
+
+	private VGDLSprite add(int x, int y, int width, int height) {
+		VGDLSprite sprite = new Immovable();
+		sprite.setRect(new Rectangle(x, y, width, height));
+		grid.add(sprite);
+		sprites.add(sprite);
+		return sprite;
+	}
+
+	private ArrayList<VGDLSprite> collect(Rectangle area) {
+		ArrayList<VGDLSprite> result = new ArrayList<>();
+		grid.collect(area, result);
+		return result;
+	}
+
+	/**
+	 * Checks that all the sprites that intersect the area are collected, once each.
+	 */
+	private void assertMatchesBruteForce(Rectangle area) {
+		ArrayList<VGDLSprite> expected = new ArrayList<>();
+		for (VGDLSprite sprite : sprites) {
+			if (sprite.rect.intersects(area)) {
+				expected.add(sprite);
+			}
+		}
+
+		ArrayList<VGDLSprite> collected = collect(area);
+		assertThat(collected).as("sprites collected for " + area).doesNotHaveDuplicates().containsAll(expected);
+	}
+}